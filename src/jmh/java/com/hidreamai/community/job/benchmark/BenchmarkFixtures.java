@@ -0,0 +1,210 @@
+package com.hidreamai.community.job.benchmark;
+
+import com.hidreamai.community.infra.dal.content.entity.SocialRelation;
+import com.hidreamai.community.infra.entity.resp.BaseResponse;
+import com.hidreamai.community.job.dal.content.dao.ContentOwnerDao;
+import com.hidreamai.community.job.dal.content.entity.ContentOwner;
+import com.hidreamai.community.job.dal.relation.dao.LikeRelationScanDao;
+import com.hidreamai.community.job.dal.relation.entity.LikeNotifyRelation;
+import com.hidreamai.community.notify.proxy.NotifyContentQueryProxy;
+import com.hidreamai.community.notify.service.MessageNotifyService;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 基准测试用的内存依赖
+ * 关系、内容和所有者按id确定性生成，每次调用可注入固定延迟以模拟数据库和下游服务
+ *
+ * @author hidream
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 生成一页点赞关系
+     *
+     * @param contentCount 内容总数，越小热点越集中
+     * @param selfLikeEvery 每隔多少条生成一条自赞，0表示不生成
+     */
+    public static List<SocialRelation> relations(long afterId, int limit, int contentCount, int selfLikeEvery) {
+        List<SocialRelation> relations = new ArrayList<>(limit);
+        long now = System.currentTimeMillis();
+        for (int i = 1; i <= limit; i++) {
+            long id = afterId + i;
+            long contentIndex = id % contentCount;
+            SocialRelation relation = new SocialRelation();
+            relation.setId(id);
+            relation.setTargetId(contentId(contentIndex));
+            relation.setSourceId(selfLikeEvery > 0 && id % selfLikeEvery == 0
+                    ? ownerId(contentIndex) : "user-" + (id % 100000));
+            relation.setCreateTime(new Date(now - (limit - i) * 1000L));
+            relations.add(relation);
+        }
+        return relations;
+    }
+
+    public static String contentId(long contentIndex) {
+        return "content-" + contentIndex;
+    }
+
+    public static String ownerId(long contentIndex) {
+        return "owner-" + (contentIndex % 5000);
+    }
+
+    /**
+     * 按页生成关系的扫描dao，超过 maxId 后返回空页
+     */
+    public static LikeRelationScanDao scanDao(long maxId, int contentCount, int selfLikeEvery, long latencyMicros) {
+        return new FakeLikeRelationScanDao(maxId, contentCount, selfLikeEvery, latencyMicros);
+    }
+
+    /**
+     * 批量所有者查询，每次调用注入一次延迟
+     */
+    public static ContentOwnerDao contentOwnerDao(long latencyMicros) {
+        return contentIds -> {
+            pause(latencyMicros);
+            List<ContentOwner> owners = new ArrayList<>(contentIds.size());
+            for (String contentId : contentIds) {
+                ContentOwner owner = new ContentOwner();
+                owner.setContentId(contentId);
+                owner.setUserId(ownerId(contentIndex(contentId)));
+                owners.add(owner);
+            }
+            return owners;
+        };
+    }
+
+    /**
+     * 逐条所有者查询代理，每次调用注入一次延迟；
+     * 代理和通知服务来自外部依赖，使用不记录调用的 stubOnly 桩，避免调用记录随测量时长无限增长
+     */
+    public static NotifyContentQueryProxy contentQueryProxy(long latencyMicros) {
+        NotifyContentQueryProxy proxy = mock(NotifyContentQueryProxy.class, withSettings().stubOnly());
+        when(proxy.queryUserIdByContentId(anyString())).thenAnswer(invocation -> {
+            pause(latencyMicros);
+            String contentId = invocation.getArgument(0);
+            return ownerId(contentIndex(contentId));
+        });
+        return proxy;
+    }
+
+    /**
+     * 通知服务，每条通知注入一次延迟，始终返回成功
+     */
+    public static MessageNotifyService messageNotifyService(long latencyMicros) {
+        MessageNotifyService service = mock(MessageNotifyService.class, withSettings().stubOnly());
+        when(service.notify(any())).thenAnswer(invocation -> {
+            pause(latencyMicros);
+            return BaseResponse.success(Boolean.TRUE);
+        });
+        return service;
+    }
+
+    private static long contentIndex(String contentId) {
+        return Long.parseLong(contentId.substring("content-".length()));
+    }
+
+    private static void pause(long latencyMicros) {
+        if (latencyMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+        }
+    }
+
+    /**
+     * 按id确定性生成关系的扫描dao，只实现热路径用到的查询
+     */
+    private static final class FakeLikeRelationScanDao implements LikeRelationScanDao {
+
+        private final long maxId;
+        private final int contentCount;
+        private final int selfLikeEvery;
+        private final long latencyMicros;
+
+        private FakeLikeRelationScanDao(long maxId, int contentCount, int selfLikeEvery, long latencyMicros) {
+            this.maxId = maxId;
+            this.contentCount = contentCount;
+            this.selfLikeEvery = selfLikeEvery;
+            this.latencyMicros = latencyMicros;
+        }
+
+        @Override
+        public List<SocialRelation> scanRelationsAfterId(Integer type, Long lastId, Long endId, Integer limit) {
+            pause(latencyMicros);
+            return relations(lastId, pageSize(lastId, endId, limit), contentCount, selfLikeEvery);
+        }
+
+        @Override
+        public void scanRelationColumnsAfterId(Integer type, Long lastId, Long endId, Integer limit,
+                                               ResultHandler<SocialRelation> handler) {
+            pause(latencyMicros);
+            DefaultResultContext<SocialRelation> context = new DefaultResultContext<>();
+            for (SocialRelation relation : relations(lastId, pageSize(lastId, endId, limit), contentCount, selfLikeEvery)) {
+                context.nextResultObject(relation);
+                handler.handleResult(context);
+            }
+        }
+
+        @Override
+        public Long queryPageEndId(Integer type, Long lastId, Long endId, Integer offset) {
+            long pageEndId = lastId + offset + 1;
+            return pageEndId <= Math.min(maxId, endId) ? pageEndId : null;
+        }
+
+        @Override
+        public void scanLikeNotifyRows(Integer type, Long lastId, Long endId, ResultHandler<LikeNotifyRelation> handler) {
+            pause(latencyMicros);
+            DefaultResultContext<LikeNotifyRelation> context = new DefaultResultContext<>();
+            int size = (int) Math.max(0, Math.min(maxId, endId) - lastId);
+            for (SocialRelation relation : relations(lastId, size, contentCount, selfLikeEvery)) {
+                String ownerId = ownerId(contentIndex(relation.getTargetId()));
+                if (ownerId.equals(relation.getSourceId())) {
+                    continue;
+                }
+                LikeNotifyRelation row = new LikeNotifyRelation();
+                row.setId(relation.getId());
+                row.setSourceId(relation.getSourceId());
+                row.setTargetId(relation.getTargetId());
+                row.setOwnerId(ownerId);
+                row.setCreateTime(relation.getCreateTime());
+                context.nextResultObject(row);
+                handler.handleResult(context);
+            }
+        }
+
+        @Override
+        public Cursor<SocialRelation> streamRelationsAfterId(Integer type, Long lastId, Long endId) {
+            throw new UnsupportedOperationException("基准测试不使用流式读取");
+        }
+
+        @Override
+        public Long queryMaxId(Integer type) {
+            return maxId;
+        }
+
+        @Override
+        public Long queryMaxIdCreatedBefore(Integer type, Date createdBefore) {
+            return maxId;
+        }
+
+        private int pageSize(Long lastId, Long endId, Integer limit) {
+            long upper = endId == null ? maxId : Math.min(maxId, endId);
+            return (int) Math.max(0, Math.min(limit, upper - lastId));
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.hidreamai.community.job.benchmark;
+
+import com.hidreamai.community.infra.dal.content.entity.SocialRelation;
+import com.hidreamai.community.job.config.BatchEngineProperties;
+import com.hidreamai.community.job.config.JobConfig;
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import com.hidreamai.community.job.dal.relation.dao.LikeRelationScanDao;
+import com.hidreamai.community.job.support.AdaptiveConcurrencyController;
+import com.hidreamai.community.job.support.ContentOwnerResolver;
+import com.hidreamai.community.job.support.LikeNotifyAggregator;
+import com.hidreamai.community.job.support.LikeNotifyMetrics;
+import com.hidreamai.community.job.support.NotifyBatchWriter;
+import com.hidreamai.community.job.support.NotifyWriteResult;
+import com.hidreamai.community.job.support.RelationColumns;
+import com.hidreamai.community.job.support.ResourceBudget;
+import com.hidreamai.community.job.task.LikeNotifySyncJob;
+import com.hidreamai.community.notify.entity.request.MessageNotifyReq;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * 点赞通知热路径基准测试
+ * 分别测量请求构建（含所有者解析和过滤）、聚合、分组写入，以及 扫描 -> 构建 -> 写入 的单批端到端路径，
+ * 每组参数分别在平台线程池和虚拟线程两种执行器模式下运行；
+ * 依赖替换为 {@link BenchmarkFixtures} 中可注入延迟的内存实现，配合 -prof gc 查看分配速率
+ *
+ * @author hidream
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LikeNotifyHotPathBenchmark {
+
+    private static final LongConsumer IGNORE_LATENCY = latency -> { };
+
+    @Param({"200", "1000"})
+    private int batchSize;
+
+    /**
+     * 内容总数，越小同一内容的点赞越集中
+     */
+    @Param({"50", "100000"})
+    private int contentCount;
+
+    @Param({"0", "200"})
+    private long notifyLatencyMicros;
+
+    @Param({"0"})
+    private long ownerLatencyMicros;
+
+    @Param({"0"})
+    private long scanLatencyMicros;
+
+    @Param({"false", "true"})
+    private boolean aggregate;
+
+    /**
+     * 阻塞 IO 执行器模式，virtual 需要在 JDK 21+ 上运行，否则退回平台线程池
+     */
+    @Param({LikeNotifyProperties.EXECUTOR_MODE_PLATFORM, LikeNotifyProperties.EXECUTOR_MODE_VIRTUAL})
+    private String executorMode;
+
+    private LikeNotifySyncJob job;
+    private LikeRelationScanDao scanDao;
+    private LikeNotifyAggregator aggregator;
+    private NotifyBatchWriter writer;
+    private Executor notifyWriteExecutor;
+    private Executor ownerLookupExecutor;
+    private List<SocialRelation> relations;
+    private List<MessageNotifyReq> requests;
+    private long cursor;
+    private MethodHandle scanLikeRelations;
+    private MethodHandle processBatchNotifySync;
+    private MethodHandle enrichRelations;
+    private MethodHandle toNotifyRequests;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        LikeNotifyProperties properties = new LikeNotifyProperties();
+        properties.setExecutorMode(executorMode);
+
+        // 与应用使用同一个执行器工厂，对比平台线程池和虚拟线程
+        JobConfig jobConfig = new JobConfig();
+        notifyWriteExecutor = jobConfig.notifyWriteExecutor(properties);
+        ownerLookupExecutor = jobConfig.ownerLookupExecutor(properties);
+
+        LikeNotifyMetrics metrics = new LikeNotifyMetrics();
+        ReflectionTestUtils.setField(metrics, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(metrics, "notifyWriteExecutor", notifyWriteExecutor);
+        metrics.init();
+
+        // 基准测试不限制下游QPS
+        BatchEngineProperties engineProperties = new BatchEngineProperties();
+        engineProperties.setDownstreamQps(0);
+        engineProperties.setContentQueryQps(0);
+        ResourceBudget budget = new ResourceBudget();
+        ReflectionTestUtils.setField(budget, "batchEngineProperties", engineProperties);
+        budget.init();
+
+        ContentOwnerResolver resolver = new ContentOwnerResolver();
+        ReflectionTestUtils.setField(resolver, "contentOwnerDao", BenchmarkFixtures.contentOwnerDao(ownerLatencyMicros));
+        ReflectionTestUtils.setField(resolver, "notifyContentQueryProxy", BenchmarkFixtures.contentQueryProxy(ownerLatencyMicros));
+        ReflectionTestUtils.setField(resolver, "likeNotifyProperties", properties);
+        ReflectionTestUtils.setField(resolver, "ownerLookupExecutor", ownerLookupExecutor);
+        ReflectionTestUtils.setField(resolver, "resourceBudget", budget);
+        resolver.init();
+
+        aggregator = new LikeNotifyAggregator();
+        ReflectionTestUtils.setField(aggregator, "likeNotifyProperties", properties);
+
+        writer = new NotifyBatchWriter();
+        ReflectionTestUtils.setField(writer, "messageNotifyService", BenchmarkFixtures.messageNotifyService(notifyLatencyMicros));
+        ReflectionTestUtils.setField(writer, "likeNotifyProperties", properties);
+        ReflectionTestUtils.setField(writer, "notifyWriteExecutor", notifyWriteExecutor);
+        ReflectionTestUtils.setField(writer, "likeNotifyMetrics", metrics);
+        ReflectionTestUtils.setField(writer, "resourceBudget", budget);
+        writer.init();
+
+        AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController();
+        ReflectionTestUtils.setField(controller, "likeNotifyProperties", properties);
+        controller.begin(batchSize, true);
+
+        // 每处理一行都会检查应用是否在关闭，使用真实的上下文而不是会记录调用的mock
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        applicationContext.getEnvironment().setActiveProfiles("benchmark");
+
+        scanDao = BenchmarkFixtures.scanDao(Long.MAX_VALUE, contentCount, 50, scanLatencyMicros);
+        job = new LikeNotifySyncJob();
+        ReflectionTestUtils.setField(job, "likeRelationScanDao", scanDao);
+        ReflectionTestUtils.setField(job, "contentOwnerResolver", resolver);
+        ReflectionTestUtils.setField(job, "likeNotifyAggregator", aggregator);
+        ReflectionTestUtils.setField(job, "notifyBatchWriter", writer);
+        ReflectionTestUtils.setField(job, "adaptiveConcurrencyController", controller);
+        ReflectionTestUtils.setField(job, "likeNotifyMetrics", metrics);
+        ReflectionTestUtils.setField(job, "resourceBudget", budget);
+        ReflectionTestUtils.setField(job, "likeNotifyProperties", properties);
+        ReflectionTestUtils.setField(job, "applicationContext", applicationContext);
+        scanLikeRelations = privateMethod("scanLikeRelations", long.class, long.class, int.class);
+        processBatchNotifySync = privateMethod("processBatchNotifySync", List.class);
+        enrichRelations = privateMethod("enrichRelations", RelationColumns.class, LongConsumer.class);
+        toNotifyRequests = privateMethod("toNotifyRequests", RelationColumns.class);
+
+        // 聚合和写入基准使用未聚合的逐条请求作为输入
+        relations = BenchmarkFixtures.relations(0, batchSize, contentCount, 50);
+        properties.setNotifyAggregateEnabled(false);
+        requests = buildNotifyRequests(relations);
+        properties.setNotifyAggregateEnabled(aggregate);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        shutdown(notifyWriteExecutor);
+        shutdown(ownerLookupExecutor);
+    }
+
+    /**
+     * 请求构建：实体到列式批次的映射、所有者解析（缓存命中）、自赞过滤和请求对象创建
+     */
+    @Benchmark
+    public List<MessageNotifyReq> buildRequests() throws Throwable {
+        return buildNotifyRequests(relations);
+    }
+
+    /**
+     * 按接收人和内容聚合
+     */
+    @Benchmark
+    public List<MessageNotifyReq> aggregateRequests() {
+        return aggregator.aggregate(requests);
+    }
+
+    /**
+     * 分组并发写入
+     */
+    @Benchmark
+    public NotifyWriteResult writeBatch() {
+        return writer.writeAll(requests);
+    }
+
+    /**
+     * 单批端到端：扫描一页、构建请求、写入通知
+     */
+    @Benchmark
+    public boolean endToEndBatch() throws Throwable {
+        RelationColumns page = (RelationColumns) scanLikeRelations.invoke(job, cursor, Long.MAX_VALUE, batchSize);
+        cursor += page.size();
+        List<MessageNotifyReq> built = buildNotifyRequests(page);
+        return (boolean) processBatchNotifySync.invoke(job, built);
+    }
+
+    private List<MessageNotifyReq> buildNotifyRequests(List<SocialRelation> batch) throws Throwable {
+        return buildNotifyRequests(RelationColumns.of(batch));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<MessageNotifyReq> buildNotifyRequests(RelationColumns batch) throws Throwable {
+        enrichRelations.invoke(job, batch, IGNORE_LATENCY);
+        List<MessageNotifyReq> built = (List<MessageNotifyReq>) toNotifyRequests.invoke(job, batch);
+        return aggregator.aggregate(built);
+    }
+
+    private static void shutdown(Executor executor) {
+        if (executor instanceof ThreadPoolTaskExecutor) {
+            ((ThreadPoolTaskExecutor) executor).shutdown();
+        } else if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    /**
+     * 热路径方法是任务的私有方法，在初始化时解析一次为方法句柄，避免每次调用都做反射查找
+     */
+    private MethodHandle privateMethod(String name, Class<?>... parameterTypes) throws ReflectiveOperationException {
+        Method method = LikeNotifySyncJob.class.getDeclaredMethod(name, parameterTypes);
+        method.setAccessible(true);
+        return MethodHandles.lookup().unreflect(method);
+    }
+}
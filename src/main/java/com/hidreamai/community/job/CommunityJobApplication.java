@@ -13,7 +13,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
  */
 @EnableAsync
 @EnableScheduling
-@MapperScan("com.hidreamai.community.infra.dal")
+@MapperScan({"com.hidreamai.community.infra.dal", "com.hidreamai.community.job.dal"})
 @SpringBootApplication
 public class CommunityJobApplication {
     
@@ -1,11 +1,13 @@
 package com.hidreamai.community.job.admin;
 
 import com.hidreamai.community.infra.entity.resp.BaseResponse;
+import com.hidreamai.community.job.dal.notify.entity.NotifyDeadLetter;
 import com.hidreamai.community.job.service.JobManageService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -26,15 +28,16 @@ public class AdminController {
      * 管理员手动触发点赞通知同步任务
      */
     @PostMapping("/like-notify/sync")
-    public BaseResponse<String> adminTriggerLikeNotifySync(@RequestParam(defaultValue = "0") int startBatch,
-                                                          @RequestParam(defaultValue = "-1") int endBatch,
+    public BaseResponse<String> adminTriggerLikeNotifySync(@RequestParam(defaultValue = "0") long startId,
+                                                          @RequestParam(defaultValue = "-1") long endId,
                                                           @RequestParam(defaultValue = "-1") int batchSize,
+                                                          @RequestParam(required = false) String mode,
                                                           @RequestParam(required = false) String operator) {
         try {
-            log.info("管理员触发点赞通知同步任务，操作人: {}, 参数: startBatch={}, endBatch={}, batchSize={}", 
-                    operator, startBatch, endBatch, batchSize);
-            jobManageService.triggerLikeNotifySync(startBatch, endBatch, batchSize);
-            return BaseResponse.success("管理员已成功触发点赞通知同步任务");
+            log.info("管理员触发点赞通知同步任务，操作人: {}, 参数: mode={}, startId={}, endId={}, batchSize={}", 
+                    operator, mode, startId, endId, batchSize);
+            String runId = jobManageService.triggerLikeNotifySync(mode, startId, endId, batchSize);
+            return BaseResponse.success("管理员已成功触发点赞通知同步任务，runId: " + runId);
         } catch (Exception e) {
             log.error("管理员触发点赞通知同步任务失败，操作人: {}", operator, e);
             return BaseResponse.fail(-1,"触发任务失败: " + e.getMessage());
@@ -42,13 +45,52 @@ public class AdminController {
     }
 
     /**
-     * 管理员获取点赞通知同步任务状态
+     * 管理员试运行点赞通知同步任务，抽样推算通知数和预计耗时，不发送通知
+     */
+    @GetMapping("/like-notify/dry-run")
+    public BaseResponse<Map<String, Object>> adminDryRunLikeNotifySync(@RequestParam(defaultValue = "0") long startId,
+                                                                      @RequestParam(defaultValue = "-1") long endId,
+                                                                      @RequestParam(defaultValue = "-1") int batchSize,
+                                                                      @RequestParam(required = false) String mode,
+                                                                      @RequestParam(defaultValue = "0") int sampleBatches,
+                                                                      @RequestParam(required = false) String operator) {
+        try {
+            log.info("管理员试运行点赞通知同步任务，操作人: {}, 参数: mode={}, startId={}, endId={}, batchSize={}, sampleBatches={}", 
+                    operator, mode, startId, endId, batchSize, sampleBatches);
+            return BaseResponse.success(jobManageService.dryRunLikeNotifySync(mode, startId, endId, batchSize, sampleBatches));
+        } catch (Exception e) {
+            log.error("管理员试运行点赞通知同步任务失败，操作人: {}", operator, e);
+            return BaseResponse.fail(-1,"试运行失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 管理员从检查点恢复点赞通知同步任务
+     */
+    @PostMapping("/like-notify/resume")
+    public BaseResponse<String> adminResumeLikeNotifySync(@RequestParam(required = false) String runId,
+                                                         @RequestParam(required = false) String operator) {
+        try {
+            log.info("管理员恢复点赞通知同步任务，操作人: {}, runId: {}", operator, runId);
+            String resumedRunId = jobManageService.resumeLikeNotifySync(runId);
+            return BaseResponse.success("管理员已成功触发点赞通知同步任务恢复，runId: " + resumedRunId);
+        } catch (Exception e) {
+            log.error("管理员恢复点赞通知同步任务失败，操作人: {}", operator, e);
+            return BaseResponse.fail(-1,"恢复任务失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 管理员获取点赞通知同步任务状态，指定 runId 时只返回该次运行
      */
     @GetMapping("/like-notify/status")
-    public BaseResponse<Map<String, Object>> adminGetLikeNotifyStatus(@RequestParam(required = false) String operator) {
+    public BaseResponse<Map<String, Object>> adminGetLikeNotifyStatus(@RequestParam(required = false) String runId,
+                                                                      @RequestParam(required = false) String operator) {
         try {
-            log.info("管理员查询点赞通知同步任务状态，操作人: {}", operator);
-            Map<String, Object> status = jobManageService.getLikeNotifyStatus();
+            log.info("管理员查询点赞通知同步任务状态，操作人: {}, runId: {}", operator, runId);
+            Map<String, Object> status = runId == null || runId.isEmpty()
+                    ? jobManageService.getLikeNotifyStatus()
+                    : jobManageService.getLikeNotifyRun(runId);
             return BaseResponse.success(status);
         } catch (Exception e) {
             log.error("管理员获取点赞通知同步任务状态失败，操作人: {}", operator, e);
@@ -56,6 +98,53 @@ public class AdminController {
         }
     }
 
+    /**
+     * 管理员获取点赞通知同步任务运行历史，标记吞吐量低于基线的运行
+     */
+    @GetMapping("/like-notify/history")
+    public BaseResponse<List<Map<String, Object>>> adminGetLikeNotifyHistory(@RequestParam(defaultValue = "20") int limit,
+                                                                            @RequestParam(required = false) Double thresholdPct,
+                                                                            @RequestParam(required = false) String operator) {
+        try {
+            log.info("管理员查询点赞通知同步任务运行历史，操作人: {}, limit: {}, thresholdPct: {}", operator, limit, thresholdPct);
+            return BaseResponse.success(jobManageService.getLikeNotifyHistory(limit, thresholdPct));
+        } catch (Exception e) {
+            log.error("管理员获取点赞通知同步任务运行历史失败，操作人: {}", operator, e);
+            return BaseResponse.fail(-1,"获取运行历史失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 管理员查看点赞通知死信
+     */
+    @GetMapping("/like-notify/dead-letters")
+    public BaseResponse<List<NotifyDeadLetter>> adminListDeadLetters(@RequestParam(required = false) String status,
+                                                                     @RequestParam(defaultValue = "20") int limit,
+                                                                     @RequestParam(required = false) String operator) {
+        try {
+            log.info("管理员查询点赞通知死信，操作人: {}, status: {}, limit: {}", operator, status, limit);
+            return BaseResponse.success(jobManageService.listLikeNotifyDeadLetters(status, limit));
+        } catch (Exception e) {
+            log.error("管理员查询点赞通知死信失败，操作人: {}", operator, e);
+            return BaseResponse.fail(-1,"查询死信失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 管理员重放点赞通知死信
+     */
+    @PostMapping("/like-notify/dead-letters/replay")
+    public BaseResponse<Map<String, Object>> adminReplayDeadLetters(@RequestParam(defaultValue = "0") int limit,
+                                                                    @RequestParam(required = false) String operator) {
+        try {
+            log.info("管理员重放点赞通知死信，操作人: {}, limit: {}", operator, limit);
+            return BaseResponse.success(jobManageService.replayLikeNotifyDeadLetters(limit));
+        } catch (Exception e) {
+            log.error("管理员重放点赞通知死信失败，操作人: {}", operator, e);
+            return BaseResponse.fail(-1,"重放死信失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 管理员停止点赞通知同步任务
      */
@@ -71,6 +160,101 @@ public class AdminController {
         }
     }
 
+    /**
+     * 管理员获取批处理引擎上注册的任务列表
+     */
+    @GetMapping("/jobs")
+    public BaseResponse<List<Map<String, Object>>> adminListBatchJobs(@RequestParam(required = false) String operator) {
+        try {
+            log.info("管理员查询批处理任务列表，操作人: {}", operator);
+            return BaseResponse.success(jobManageService.listBatchJobs());
+        } catch (Exception e) {
+            log.error("管理员获取批处理任务列表失败，操作人: {}", operator, e);
+            return BaseResponse.fail(-1,"获取任务列表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 管理员触发批处理任务
+     */
+    @PostMapping("/jobs/{jobName}/sync")
+    public BaseResponse<String> adminTriggerBatchJob(@PathVariable String jobName,
+                                                     @RequestParam(defaultValue = "0") long startId,
+                                                     @RequestParam(defaultValue = "-1") long endId,
+                                                     @RequestParam(defaultValue = "-1") int batchSize,
+                                                     @RequestParam(required = false) String operator) {
+        try {
+            log.info("管理员触发批处理任务，操作人: {}, 任务: {}, 参数: startId={}, endId={}, batchSize={}",
+                    operator, jobName, startId, endId, batchSize);
+            jobManageService.triggerBatchJob(jobName, startId, endId, batchSize);
+            return BaseResponse.success("管理员已成功触发任务: " + jobName);
+        } catch (Exception e) {
+            log.error("管理员触发批处理任务失败，操作人: {}, 任务: {}", operator, jobName, e);
+            return BaseResponse.fail(-1,"触发任务失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 管理员获取批处理任务状态
+     */
+    @GetMapping("/jobs/{jobName}/status")
+    public BaseResponse<Map<String, Object>> adminGetBatchJobStatus(@PathVariable String jobName,
+                                                                    @RequestParam(required = false) String operator) {
+        try {
+            log.info("管理员查询批处理任务状态，操作人: {}, 任务: {}", operator, jobName);
+            return BaseResponse.success(jobManageService.getBatchJobStatus(jobName));
+        } catch (Exception e) {
+            log.error("管理员获取批处理任务状态失败，操作人: {}, 任务: {}", operator, jobName, e);
+            return BaseResponse.fail(-1,"获取状态失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 管理员停止批处理任务
+     */
+    @PostMapping("/jobs/{jobName}/stop")
+    public BaseResponse<String> adminStopBatchJob(@PathVariable String jobName,
+                                                  @RequestParam(required = false) String operator) {
+        try {
+            log.info("管理员停止批处理任务，操作人: {}, 任务: {}", operator, jobName);
+            boolean running = jobManageService.stopBatchJob(jobName);
+            return BaseResponse.success(running ? "任务正在停止: " + jobName : "任务未在运行: " + jobName);
+        } catch (Exception e) {
+            log.error("管理员停止批处理任务失败，操作人: {}, 任务: {}", operator, jobName, e);
+            return BaseResponse.fail(-1,"停止任务失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 管理员查看下游限流器
+     */
+    @GetMapping("/rate-limits")
+    public BaseResponse<Map<String, Object>> adminGetRateLimits(@RequestParam(required = false) String operator) {
+        try {
+            log.info("管理员查询下游限流器，操作人: {}", operator);
+            return BaseResponse.success(jobManageService.getRateLimits());
+        } catch (Exception e) {
+            log.error("管理员查询下游限流器失败，操作人: {}", operator, e);
+            return BaseResponse.fail(-1,"查询限流器失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 管理员调整下游限流速率，立即生效
+     */
+    @PostMapping("/rate-limits/{name}")
+    public BaseResponse<Map<String, Object>> adminUpdateRateLimit(@PathVariable String name,
+                                                                 @RequestParam double qps,
+                                                                 @RequestParam(required = false) String operator) {
+        try {
+            log.info("管理员调整下游限流速率，操作人: {}, 限流器: {}, QPS: {}", operator, name, qps);
+            return BaseResponse.success(jobManageService.updateRateLimit(name, qps));
+        } catch (Exception e) {
+            log.error("管理员调整下游限流速率失败，操作人: {}, 限流器: {}", operator, name, e);
+            return BaseResponse.fail(-1,"调整限流速率失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 管理员获取所有任务状态概览
      */
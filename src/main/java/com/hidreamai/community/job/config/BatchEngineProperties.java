@@ -0,0 +1,107 @@
+package com.hidreamai.community.job.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 批处理任务引擎配置
+ * 全局资源预算由所有同时运行的批处理任务共享，包括点赞通知同步任务
+ *
+ * @author hidream
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "job.engine")
+public class BatchEngineProperties {
+
+    /**
+     * 所有任务同时占用的数据库连接上限，应小于连接池大小，给在线查询留出余量
+     */
+    private int maxDbConnections = 6;
+
+    /**
+     * 所有任务对下游通知服务的总QPS上限，0 表示不限制
+     */
+    private int downstreamQps = 1000;
+
+    /**
+     * 所有任务对内容查询代理（逐条查询内容所有者）的总QPS上限，0 表示不限制
+     */
+    private int contentQueryQps = 200;
+
+    /**
+     * 引擎任务默认批量大小
+     */
+    private int defaultBatchSize = 500;
+
+    /**
+     * 单批读取或写入的最大重试次数
+     */
+    private int maxRetryTimes = 3;
+
+    /**
+     * 重试延迟（毫秒），按重试次数线性递增
+     */
+    private long retryDelayMs = 3000;
+
+    /**
+     * 是否根据数据库健康状况调节读取和写入节奏
+     */
+    private boolean dbHealthEnabled = true;
+
+    /**
+     * 数据库健康采样间隔（毫秒）
+     */
+    private long dbHealthSampleIntervalMs = 5000;
+
+    /**
+     * 探测查询耗时超过该值（毫秒）时减速
+     */
+    private long dbProbeSlowMs = 200;
+
+    /**
+     * 探测查询耗时超过该值（毫秒）时暂停
+     */
+    private long dbProbePauseMs = 1000;
+
+    /**
+     * Threads_running 超过该值时减速
+     */
+    private int dbThreadsRunningSlow = 32;
+
+    /**
+     * Threads_running 超过该值时暂停
+     */
+    private int dbThreadsRunningPause = 64;
+
+    /**
+     * 复制延迟超过该秒数时减速
+     */
+    private long dbReplicaLagSlowSeconds = 30;
+
+    /**
+     * 复制延迟超过该秒数时暂停
+     */
+    private long dbReplicaLagPauseSeconds = 120;
+
+    /**
+     * 减速时每批读取或写入前的等待时间（毫秒）
+     */
+    private long dbThrottleDelayMs = 200;
+
+    /**
+     * 单次暂停的最长等待时间（毫秒），超过后继续处理
+     */
+    private long dbMaxPauseMs = 60000;
+
+    /**
+     * 是否启用关注通知同步任务
+     */
+    private boolean followNotifyEnabled = false;
+
+    /**
+     * 关注关系在 social_relation 中的类型编码
+     */
+    private Integer followRelationType;
+}
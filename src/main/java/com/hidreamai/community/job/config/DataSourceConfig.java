@@ -1,19 +1,50 @@
 package com.hidreamai.community.job.config;
 
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import com.hidreamai.community.job.support.ReadRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-
-import javax.sql.DataSource;
+import org.springframework.context.annotation.Primary;
 
 /**
  * 数据源配置类
- * 
+ * 主库连接池仍由 spring.datasource 配置；启用 job.datasource.replica 后，
+ * 标记为副本读取的查询路由到独立连接池的只读副本，其余查询和所有写入走主库
+ *
  * @author hidream
  */
 @Configuration
 public class DataSourceConfig {
-    
-    // 数据源配置由application.yml中的spring.datasource配置自动处理
-    // 这里可以添加自定义的数据源配置逻辑
-    
-} 
\ No newline at end of file
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public ReadRoutingDataSource dataSource(HikariDataSource primaryDataSource,
+                                            ReplicaDataSourceProperties replicaProperties) {
+        HikariDataSource replica = replicaProperties.isEnabled() ? replicaDataSource(replicaProperties) : null;
+        return new ReadRoutingDataSource(primaryDataSource, replica, replicaProperties);
+    }
+
+    private HikariDataSource replicaDataSource(ReplicaDataSourceProperties properties) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setDriverClassName(properties.getDriverClassName());
+        dataSource.setJdbcUrl(properties.getUrl());
+        dataSource.setUsername(properties.getUsername());
+        dataSource.setPassword(properties.getPassword());
+        dataSource.setMaximumPoolSize(properties.getMaximumPoolSize());
+        dataSource.setMinimumIdle(properties.getMinimumIdle());
+        dataSource.setConnectionTimeout(properties.getConnectionTimeoutMs());
+        dataSource.setReadOnly(true);
+        // 副本不可用时不影响启动，读取回退到主库
+        dataSource.setInitializationFailTimeout(-1);
+        return dataSource;
+    }
+}
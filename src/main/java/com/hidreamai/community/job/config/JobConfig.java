@@ -1,5 +1,6 @@
 package com.hidreamai.community.job.config;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -7,6 +8,9 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 
 /**
@@ -15,6 +19,7 @@ import java.util.concurrent.ThreadPoolExecutor;
  * @author hidream
  */
 @Configuration
+@Slf4j
 @EnableAsync
 @EnableScheduling
 public class JobConfig {
@@ -45,6 +50,76 @@ public class JobConfig {
         return executor;
     }
 
+    /**
+     * 通知写入线程池配置
+     */
+    @Bean("notifyWriteExecutor")
+    public Executor notifyWriteExecutor(LikeNotifyProperties likeNotifyProperties) {
+        return ioExecutor(likeNotifyProperties, "notify-write-", likeNotifyProperties.getNotifyWriteThreads(),
+                likeNotifyProperties.getNotifyGroupSize());
+    }
+
+    /**
+     * 内容所有者逐条查询线程池配置，仅在批量查询降级时使用
+     */
+    @Bean("ownerLookupExecutor")
+    public Executor ownerLookupExecutor(LikeNotifyProperties likeNotifyProperties) {
+        return ioExecutor(likeNotifyProperties, "owner-lookup-", likeNotifyProperties.getOwnerLookupMaxInFlight(),
+                likeNotifyProperties.getOwnerQueryBatchSize());
+    }
+
+    /**
+     * 创建阻塞 IO 执行器：virtual 模式下每个任务一个虚拟线程，并发由调用方按下游依赖的信号量限制；
+     * 运行时不支持虚拟线程时退回平台线程池
+     */
+    private Executor ioExecutor(LikeNotifyProperties likeNotifyProperties, String threadNamePrefix, int threads, int queueCapacity) {
+        if (LikeNotifyProperties.EXECUTOR_MODE_VIRTUAL.equalsIgnoreCase(likeNotifyProperties.getExecutorMode())) {
+            ExecutorService virtualExecutor = newVirtualThreadExecutor(threadNamePrefix);
+            if (virtualExecutor != null) {
+                log.info("{} 使用虚拟线程执行器", threadNamePrefix);
+                return virtualExecutor;
+            }
+            log.warn("当前运行时不支持虚拟线程，{} 退回平台线程池", threadNamePrefix);
+        }
+
+        int poolSize = Math.max(1, threads);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // 核心线程数
+        executor.setCorePoolSize(poolSize);
+        // 最大线程数
+        executor.setMaxPoolSize(poolSize);
+        // 队列容量
+        executor.setQueueCapacity(Math.max(1, queueCapacity));
+        // 线程名前缀
+        executor.setThreadNamePrefix(threadNamePrefix);
+        // 拒绝策略，队列满时由提交线程直接执行，形成背压
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // 等待所有任务结束后再关闭线程池
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        // 等待时间
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器（JDK 21+），以便在低版本 JDK 上编译和运行
+     *
+     * @return 虚拟线程执行器，不支持时返回 null
+     */
+    private ExecutorService newVirtualThreadExecutor(String threadNamePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
     /**
      * 定时任务线程池配置
      */
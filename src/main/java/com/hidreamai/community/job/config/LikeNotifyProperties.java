@@ -0,0 +1,318 @@
+package com.hidreamai.community.job.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 点赞通知同步任务配置
+ *
+ * @author hidream
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "job.like-notify")
+public class LikeNotifyProperties {
+
+    public static final String EXECUTOR_MODE_PLATFORM = "platform";
+    public static final String EXECUTOR_MODE_VIRTUAL = "virtual";
+    public static final String SCAN_MODE_PAGE = "page";
+    public static final String SCAN_MODE_STREAM = "stream";
+
+    /**
+     * 内容所有者缓存最大条目数（包含不存在内容的负缓存）
+     */
+    private int ownerCacheSize = 100000;
+
+    /**
+     * 单次批量查询内容所有者的最大id数
+     */
+    private int ownerQueryBatchSize = 500;
+
+    /**
+     * 增量同步的稳定窗口（秒），创建时间在窗口内的数据留到下次处理，
+     * 避免水位线越过尚未提交的事务写入的较小id
+     */
+    private long incrementalOverlapWindowSeconds = 300;
+
+    /**
+     * 每完成多少个批次保存一次检查点
+     */
+    private int checkpointIntervalBatches = 20;
+
+    /**
+     * 检查点保留天数
+     */
+    private long checkpointTtlDays = 7;
+
+    /**
+     * 重试延迟（毫秒）
+     */
+    private long retryDelayMs = 3000;
+
+    /**
+     * 单条通知最多尝试发送次数（含首次），仍失败则写入死信表
+     */
+    private int notifyRetryMaxAttempts = 5;
+
+    /**
+     * 通知重试的基础退避时间（毫秒），每次失败翻倍并加随机抖动
+     */
+    private long notifyRetryBaseDelayMs = 1000;
+
+    /**
+     * 通知重试的最大退避时间（毫秒）
+     */
+    private long notifyRetryMaxDelayMs = 60000;
+
+    /**
+     * 重试队列容量，队列已满时失败通知直接写入死信表
+     */
+    private int notifyRetryQueueCapacity = 100000;
+
+    /**
+     * 单次重放的最大死信条数
+     */
+    private int deadLetterReplayBatchSize = 500;
+
+    /**
+     * 吞吐量基线取同一模式此前最近多少次已完成的运行（取中位数）
+     */
+    private int historyBaselineRuns = 5;
+
+    /**
+     * 吞吐量低于基线超过该百分比时标记为性能回退
+     */
+    private double historyRegressionThresholdPct = 30;
+
+    /**
+     * 处理行数少于该值的运行不参与基线，也不做回退判断，避免小批量运行的噪声
+     */
+    private long historyMinRows = 10000;
+
+    /**
+     * 试运行默认抽样批次数，抽样位置在处理范围内均匀分布
+     */
+    private int dryRunSampleBatches = 10;
+
+    /**
+     * 试运行推算写入耗时使用的单条通知调用耗时（毫秒），本进程已有通知调用时使用实测平均值
+     */
+    private long dryRunNotifyLatencyMs = 20;
+
+    /**
+     * 读取模式：page 按主键分页查询，stream 在一次流式查询内逐行读取
+     */
+    private String scanMode = SCAN_MODE_PAGE;
+
+    /**
+     * 分页读取时是否在库内关联内容表解析所有者，并在库内过滤字段缺失、内容已删除和自己给自己的点赞；
+     * 仅 page 模式生效，试运行仍按原始关系抽样以便统计各类过滤数量
+     */
+    private boolean ownerJoinEnabled = false;
+
+    /**
+     * 流式读取时单次查询覆盖的id跨度，限制单个查询占用连接的时长，以及提前停止时驱动需要丢弃的剩余行数
+     */
+    private long streamWindowSize = 1000000;
+
+    /**
+     * 读取阶段并发数，id范围按并发数切分为连续子范围分别扫描
+     */
+    private int pipelineReaderThreads = 1;
+
+    /**
+     * 补全阶段（所有者解析与过滤）并发数
+     */
+    private int pipelineEnrichThreads = 2;
+
+    /**
+     * 写入阶段并发数，即同时写入的批次数
+     */
+    private int pipelineWriteThreads = 2;
+
+    /**
+     * 阶段之间有界队列的容量（批次数）
+     */
+    private int pipelineQueueCapacity = 4;
+
+    /**
+     * 通知组提交大小，同一组内的请求并发写入
+     */
+    private int notifyGroupSize = 100;
+
+    /**
+     * 相邻两组通知提交之间的最小间隔（毫秒），0表示不等待
+     */
+    private long notifyFlushIntervalMs = 0;
+
+    /**
+     * 通知写入并发度
+     */
+    private int notifyWriteThreads = 4;
+
+    /**
+     * 是否按 (接收人, 内容, 时间窗口) 聚合点赞通知
+     */
+    private boolean notifyAggregateEnabled = false;
+
+    /**
+     * 聚合时间窗口（秒），同一窗口内的点赞合并为一条通知，0表示不按时间拆分
+     */
+    private long notifyAggregateWindowSeconds = 3600;
+
+    /**
+     * 聚合通知携带的最近点赞用户数
+     */
+    private int notifyAggregateRecentUsers = 5;
+
+    /**
+     * 阻塞 IO 执行器模式：platform 使用平台线程池，virtual 使用虚拟线程（需要 JDK 21+，不支持时退回 platform）
+     */
+    private String executorMode = EXECUTOR_MODE_PLATFORM;
+
+    /**
+     * 同时进行中的通知调用上限
+     */
+    private int notifyMaxInFlight = 64;
+
+    /**
+     * 同时进行中的内容所有者逐条查询上限
+     */
+    private int ownerLookupMaxInFlight = 16;
+
+    /**
+     * 老年代GC后占用达到该比例时读取减速
+     */
+    private double memorySlowRatio = 0.70;
+
+    /**
+     * 老年代GC后占用达到该比例时暂停读取，直到回落到减速阈值以下
+     */
+    private double memoryPauseRatio = 0.85;
+
+    /**
+     * 减速时每批次读取前的等待时间（毫秒）
+     */
+    private long memoryThrottleDelayMs = 200;
+
+    /**
+     * 单次暂停的最长等待时间（毫秒）
+     */
+    private long memoryMaxPauseMs = 30000;
+
+    /**
+     * 是否启用 Redis Stream 实时消费点赞事件，启用后定时任务作为对账跳过已实时通知的关系
+     */
+    private boolean streamEnabled = false;
+
+    /**
+     * 点赞事件 stream 的key
+     */
+    private String streamKey = "community:like-events";
+
+    /**
+     * 消费组名
+     */
+    private String streamGroup = "community-job";
+
+    /**
+     * 微批次最大事件数
+     */
+    private int streamBatchSize = 500;
+
+    /**
+     * 微批次最大等待时间（毫秒），从批次收到第一条事件开始计算
+     */
+    private long streamMaxLatencyMs = 1000;
+
+    /**
+     * 其他消费者的事件超过该时间（毫秒）未确认时由本节点认领
+     */
+    private long streamClaimIdleMs = 60000;
+
+    /**
+     * 是否启用多节点分片执行
+     */
+    private boolean shardEnabled = false;
+
+    /**
+     * 每个分片覆盖的id跨度
+     */
+    private long shardSize = 1000000;
+
+    /**
+     * 分片租约有效期（毫秒），持有节点失联超过该时间后分片可被其他节点接管
+     */
+    private long shardLeaseTtlMs = 30000;
+
+    /**
+     * 分片租约心跳续期间隔（毫秒），应明显小于租约有效期
+     */
+    private long shardLeaseHeartbeatMs = 10000;
+
+    /**
+     * 空闲节点检查活跃分片运行的间隔（毫秒）
+     */
+    private long shardPollIntervalMs = 5000;
+
+    /**
+     * 是否启用自适应批量大小和写入并发
+     */
+    private boolean adaptiveEnabled = true;
+
+    /**
+     * 自适应批量大小下限
+     */
+    private int adaptiveMinBatchSize = 100;
+
+    /**
+     * 自适应批量大小上限
+     */
+    private int adaptiveMaxBatchSize = 2000;
+
+    /**
+     * 指标正常时批量大小每次增加的步长
+     */
+    private int adaptiveBatchStep = 100;
+
+    /**
+     * 自适应写入并发下限
+     */
+    private int adaptiveMinWriteConcurrency = 1;
+
+    /**
+     * 自适应写入并发上限，写入阶段按该值创建线程
+     */
+    private int adaptiveMaxWriteConcurrency = 8;
+
+    /**
+     * 指标超标时批量大小和并发的乘性下降系数
+     */
+    private double adaptiveDecreaseFactor = 0.5;
+
+    /**
+     * 单次主键扫描的目标耗时（毫秒）
+     */
+    private long adaptiveScanLatencyTargetMs = 500;
+
+    /**
+     * 单批所有者查询的目标耗时（毫秒）
+     */
+    private long adaptiveOwnerLatencyTargetMs = 300;
+
+    /**
+     * 通知写入失败率阈值
+     */
+    private double adaptiveErrorRateThreshold = 0.05;
+
+    /**
+     * 每统计多少个写入批次调整一次
+     */
+    private int adaptiveWindowBatches = 5;
+
+    /**
+     * 保留的调整历史条数
+     */
+    private int adaptiveHistorySize = 50;
+}
@@ -0,0 +1,55 @@
+package com.hidreamai.community.job.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 只读副本数据源配置
+ * 任务的大批量读取（计数、主键扫描、内容所有者查询）走只读副本，使用独立的连接池，不与主库的在线流量争抢
+ *
+ * @author hidream
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "job.datasource.replica")
+public class ReplicaDataSourceProperties {
+
+    /**
+     * 是否启用只读副本，未启用时所有查询走主库
+     */
+    private boolean enabled = false;
+
+    private String driverClassName = "com.mysql.cj.jdbc.Driver";
+
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    /**
+     * 副本连接池最大连接数
+     */
+    private int maximumPoolSize = 8;
+
+    /**
+     * 副本连接池最小空闲连接数
+     */
+    private int minimumIdle = 1;
+
+    /**
+     * 获取副本连接的超时时间（毫秒），超时后本次查询回退到主库
+     */
+    private long connectionTimeoutMs = 3000;
+
+    /**
+     * 复制延迟超过该秒数时读取回退到主库，应小于 job.like-notify.incremental-overlap-window-seconds
+     */
+    private long maxLagSeconds = 60;
+
+    /**
+     * 副本健康检查间隔（毫秒）
+     */
+    private long healthCheckIntervalMs = 10000;
+}
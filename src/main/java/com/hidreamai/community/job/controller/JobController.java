@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -25,13 +26,14 @@ public class JobController {
      * 手动触发点赞通知同步任务
      */
     @PostMapping("/like-notify/sync")
-    public BaseResponse<String> triggerLikeNotifySync(@RequestParam(defaultValue = "0") int startBatch,
-                                                     @RequestParam(defaultValue = "-1") int endBatch,
-                                                     @RequestParam(defaultValue = "-1") int batchSize) {
+    public BaseResponse<String> triggerLikeNotifySync(@RequestParam(defaultValue = "0") long startId,
+                                                     @RequestParam(defaultValue = "-1") long endId,
+                                                     @RequestParam(defaultValue = "-1") int batchSize,
+                                                     @RequestParam(required = false) String mode) {
         try {
-            log.info("手动触发点赞通知同步任务，startBatch: {}, endBatch: {}, batchSize: {}", startBatch, endBatch, batchSize);
-            jobManageService.triggerLikeNotifySync(startBatch, endBatch, batchSize);
-            return BaseResponse.success("点赞通知同步任务已启动");
+            log.info("手动触发点赞通知同步任务，mode: {}, startId: {}, endId: {}, batchSize: {}", mode, startId, endId, batchSize);
+            String runId = jobManageService.triggerLikeNotifySync(mode, startId, endId, batchSize);
+            return BaseResponse.success("点赞通知同步任务已启动，runId: " + runId);
         } catch (Exception e) {
             log.error("触发点赞通知同步任务失败", e);
             return BaseResponse.fail(-1, "触发任务失败: " + e.getMessage());
@@ -39,12 +41,46 @@ public class JobController {
     }
 
     /**
-     * 获取点赞通知同步任务状态
+     * 试运行点赞通知同步任务：在处理范围内抽样若干批次，推算通知数、过滤数和预计耗时，不发送通知
+     */
+    @GetMapping("/like-notify/dry-run")
+    public BaseResponse<Map<String, Object>> dryRunLikeNotifySync(@RequestParam(defaultValue = "0") long startId,
+                                                                 @RequestParam(defaultValue = "-1") long endId,
+                                                                 @RequestParam(defaultValue = "-1") int batchSize,
+                                                                 @RequestParam(required = false) String mode,
+                                                                 @RequestParam(defaultValue = "0") int sampleBatches) {
+        try {
+            return BaseResponse.success(jobManageService.dryRunLikeNotifySync(mode, startId, endId, batchSize, sampleBatches));
+        } catch (Exception e) {
+            log.error("试运行点赞通知同步任务失败", e);
+            return BaseResponse.fail(-1, "试运行失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 从检查点恢复点赞通知同步任务
+     */
+    @PostMapping("/like-notify/resume")
+    public BaseResponse<String> resumeLikeNotifySync(@RequestParam(required = false) String runId) {
+        try {
+            log.info("恢复点赞通知同步任务，runId: {}", runId);
+            String resumedRunId = jobManageService.resumeLikeNotifySync(runId);
+            return BaseResponse.success("点赞通知同步任务已开始恢复，runId: " + resumedRunId);
+        } catch (Exception e) {
+            log.error("恢复点赞通知同步任务失败", e);
+            return BaseResponse.fail(-1, "恢复任务失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取点赞通知同步任务状态，指定 runId 时只返回该次运行
      */
     @GetMapping("/like-notify/status")
-    public BaseResponse<Map<String, Object>> getLikeNotifyStatus() {
+    public BaseResponse<Map<String, Object>> getLikeNotifyStatus(@RequestParam(required = false) String runId) {
         try {
-            Map<String, Object> status = jobManageService.getLikeNotifyStatus();
+            Map<String, Object> status = runId == null || runId.isEmpty()
+                    ? jobManageService.getLikeNotifyStatus()
+                    : jobManageService.getLikeNotifyRun(runId);
             return BaseResponse.success(status);
         } catch (Exception e) {
             log.error("获取点赞通知同步任务状态失败", e);
@@ -52,6 +88,20 @@ public class JobController {
         }
     }
 
+    /**
+     * 获取点赞通知同步任务运行历史，标记吞吐量低于基线的运行
+     */
+    @GetMapping("/like-notify/history")
+    public BaseResponse<List<Map<String, Object>>> getLikeNotifyHistory(@RequestParam(defaultValue = "20") int limit,
+                                                                       @RequestParam(required = false) Double thresholdPct) {
+        try {
+            return BaseResponse.success(jobManageService.getLikeNotifyHistory(limit, thresholdPct));
+        } catch (Exception e) {
+            log.error("获取点赞通知同步任务运行历史失败", e);
+            return BaseResponse.fail(-1, "获取运行历史失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 停止点赞通知同步任务
      */
@@ -67,6 +117,65 @@ public class JobController {
         }
     }
 
+    /**
+     * 获取批处理引擎上注册的任务列表
+     */
+    @GetMapping("/jobs")
+    public BaseResponse<List<Map<String, Object>>> listBatchJobs() {
+        try {
+            return BaseResponse.success(jobManageService.listBatchJobs());
+        } catch (Exception e) {
+            log.error("获取批处理任务列表失败", e);
+            return BaseResponse.fail(-1, "获取任务列表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 手动触发批处理任务
+     */
+    @PostMapping("/jobs/{jobName}/sync")
+    public BaseResponse<String> triggerBatchJob(@PathVariable String jobName,
+                                                @RequestParam(defaultValue = "0") long startId,
+                                                @RequestParam(defaultValue = "-1") long endId,
+                                                @RequestParam(defaultValue = "-1") int batchSize) {
+        try {
+            log.info("手动触发批处理任务，任务: {}, startId: {}, endId: {}, batchSize: {}", jobName, startId, endId, batchSize);
+            jobManageService.triggerBatchJob(jobName, startId, endId, batchSize);
+            return BaseResponse.success("任务已启动: " + jobName);
+        } catch (Exception e) {
+            log.error("触发批处理任务失败，任务: {}", jobName, e);
+            return BaseResponse.fail(-1, "触发任务失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取批处理任务状态
+     */
+    @GetMapping("/jobs/{jobName}/status")
+    public BaseResponse<Map<String, Object>> getBatchJobStatus(@PathVariable String jobName) {
+        try {
+            return BaseResponse.success(jobManageService.getBatchJobStatus(jobName));
+        } catch (Exception e) {
+            log.error("获取批处理任务状态失败，任务: {}", jobName, e);
+            return BaseResponse.fail(-1, "获取状态失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 停止批处理任务，当前批次处理完后退出
+     */
+    @PostMapping("/jobs/{jobName}/stop")
+    public BaseResponse<String> stopBatchJob(@PathVariable String jobName) {
+        try {
+            log.info("手动停止批处理任务，任务: {}", jobName);
+            boolean running = jobManageService.stopBatchJob(jobName);
+            return BaseResponse.success(running ? "任务正在停止: " + jobName : "任务未在运行: " + jobName);
+        } catch (Exception e) {
+            log.error("停止批处理任务失败，任务: {}", jobName, e);
+            return BaseResponse.fail(-1, "停止任务失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 获取所有任务状态概览
      */
@@ -0,0 +1,22 @@
+package com.hidreamai.community.job.dal.content.dao;
+
+import com.hidreamai.community.job.dal.content.entity.ContentOwner;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 内容所有者批量查询DAO
+ *
+ * @author hidream
+ */
+public interface ContentOwnerDao {
+
+    /**
+     * 批量查询内容所有者，已删除或不存在的内容不返回
+     *
+     * @param contentIds 内容id集合
+     */
+    List<ContentOwner> batchQueryContentOwners(@Param("contentIds") Collection<String> contentIds);
+}
@@ -0,0 +1,22 @@
+package com.hidreamai.community.job.dal.content.entity;
+
+import lombok.Data;
+
+/**
+ * 内容所有者映射
+ *
+ * @author hidream
+ */
+@Data
+public class ContentOwner {
+
+    /**
+     * 内容id
+     */
+    private String contentId;
+
+    /**
+     * 内容所有者用户id
+     */
+    private String userId;
+}
@@ -0,0 +1,72 @@
+package com.hidreamai.community.job.dal.notify.dao;
+
+import com.hidreamai.community.job.dal.notify.entity.NotifyDeadLetter;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 通知死信DAO
+ *
+ * @author hidream
+ */
+public interface NotifyDeadLetterDao {
+
+    /**
+     * 批量写入，写入后回填自增id
+     */
+    int batchInsert(@Param("list") List<NotifyDeadLetter> deadLetters);
+
+    /**
+     * 按id顺序认领待重放的死信，重放中但更新时间早于 staleBefore 的死信视为上次重放中断，可重新认领
+     *
+     * @param claimToken  本次认领标识
+     * @param staleBefore 重放中断判定时间
+     * @param limit       最大认领条数
+     * @return 认领的条数
+     */
+    int claim(@Param("jobName") String jobName, @Param("claimToken") String claimToken,
+              @Param("staleBefore") Date staleBefore, @Param("limit") Integer limit);
+
+    List<NotifyDeadLetter> listByClaimToken(@Param("claimToken") String claimToken);
+
+    int markReplayed(@Param("ids") List<Long> ids);
+
+    /**
+     * 重放失败的死信回到待重放状态，尝试次数加一
+     */
+    int release(@Param("ids") List<Long> ids, @Param("lastError") String lastError);
+
+    /**
+     * 重试中的通知再次重发失败，尝试次数加一并刷新更新时间
+     */
+    int markRetried(@Param("ids") List<Long> ids);
+
+    /**
+     * 删除已重发成功的重试中通知
+     */
+    int deleteRetrying(@Param("ids") List<Long> ids);
+
+    /**
+     * 重试中的通知转为待重放
+     */
+    int markPending(@Param("ids") List<Long> ids, @Param("lastError") String lastError);
+
+    /**
+     * 更新时间早于 staleBefore 的重试中通知转为待重放
+     *
+     * @return 转换的条数
+     */
+    int recoverRetrying(@Param("staleBefore") Date staleBefore, @Param("lastError") String lastError);
+
+    /**
+     * 按id倒序查询死信
+     *
+     * @param status 状态，为空时不限
+     */
+    List<NotifyDeadLetter> listRecent(@Param("jobName") String jobName, @Param("status") String status,
+                                      @Param("limit") Integer limit);
+
+    long countByStatus(@Param("jobName") String jobName, @Param("status") String status);
+}
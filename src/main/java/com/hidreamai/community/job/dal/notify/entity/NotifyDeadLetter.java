@@ -0,0 +1,60 @@
+package com.hidreamai.community.job.dal.notify.entity;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 通知死信
+ *
+ * @author hidream
+ */
+@Data
+public class NotifyDeadLetter {
+
+    public static final String STATUS_RETRYING = "RETRYING";
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_REPLAYING = "REPLAYING";
+    public static final String STATUS_REPLAYED = "REPLAYED";
+
+    private Long id;
+
+    private String jobName;
+
+    private String userId;
+
+    private String relateUserId;
+
+    private Integer relateType;
+
+    private String contentId;
+
+    private Long notifyTime;
+
+    /**
+     * 聚合通知合并的点赞数，非聚合通知为空
+     */
+    private Integer aggregateCount;
+
+    /**
+     * 聚合通知最近的点赞用户，逗号分隔
+     */
+    private String recentRelateUserIds;
+
+    private Long firstNotifyTime;
+
+    private Integer attempts;
+
+    /**
+     * RETRYING 重试队列中，PENDING 待重放，REPLAYING 重放中，REPLAYED 已重放成功
+     */
+    private String status;
+
+    private String claimToken;
+
+    private String lastError;
+
+    private Date createTime;
+
+    private Date updateTime;
+}
@@ -0,0 +1,95 @@
+package com.hidreamai.community.job.dal.relation.dao;
+
+import com.hidreamai.community.infra.dal.content.entity.SocialRelation;
+import com.hidreamai.community.job.dal.relation.entity.LikeNotifyRelation;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 关系数据游标扫描DAO
+ * 基于主键的 keyset 分页，避免 OFFSET 深翻页；也支持单次查询的流式读取
+ *
+ * @author hidream
+ */
+public interface LikeRelationScanDao {
+
+    /**
+     * 按主键顺序扫描 id 大于 lastId 的关系数据
+     *
+     * @param type   关系类型
+     * @param lastId 上一批次最后一条数据的 id（不包含）
+     * @param endId  扫描的 id 上界（包含），为空时不限制
+     * @param limit  本批次最大条数
+     */
+    List<SocialRelation> scanRelationsAfterId(@Param("type") Integer type,
+                                              @Param("lastId") Long lastId,
+                                              @Param("endId") Long endId,
+                                              @Param("limit") Integer limit);
+
+    /**
+     * 同 {@link #scanRelationsAfterId}，逐行交给结果处理器而不收集为列表，调用方可直接映射到列式批次
+     *
+     * @param handler 逐行结果处理器
+     */
+    void scanRelationColumnsAfterId(@Param("type") Integer type,
+                                    @Param("lastId") Long lastId,
+                                    @Param("endId") Long endId,
+                                    @Param("limit") Integer limit,
+                                    ResultHandler<SocialRelation> handler);
+
+    /**
+     * 查询 (lastId, endId] 内按主键顺序第 offset + 1 条关系的 id，只访问索引，用作一页的上界
+     *
+     * @param type   关系类型
+     * @param lastId 起始 id（不包含）
+     * @param endId  结束 id（包含）
+     * @param offset 跳过的条数，即页大小减一
+     * @return 剩余不足 offset + 1 条时返回 null
+     */
+    Long queryPageEndId(@Param("type") Integer type,
+                        @Param("lastId") Long lastId,
+                        @Param("endId") Long endId,
+                        @Param("offset") Integer offset);
+
+    /**
+     * 扫描 id 在 (lastId, endId] 内的点赞关系并关联内容表得到内容所有者；
+     * 字段缺失、内容已删除或不存在以及自己给自己点赞的关系在库内过滤，不返回
+     *
+     * @param type    关系类型
+     * @param lastId  起始 id（不包含）
+     * @param endId   结束 id（包含）
+     * @param handler 逐行结果处理器
+     */
+    void scanLikeNotifyRows(@Param("type") Integer type,
+                            @Param("lastId") Long lastId,
+                            @Param("endId") Long endId,
+                            ResultHandler<LikeNotifyRelation> handler);
+
+    /**
+     * 流式扫描 id 在 (lastId, endId] 内的关系数据，需要在打开的 SqlSession 内迭代，迭代结束后关闭
+     *
+     * @param type   关系类型
+     * @param lastId 起始 id（不包含）
+     * @param endId  结束 id（包含）
+     */
+    Cursor<SocialRelation> streamRelationsAfterId(@Param("type") Integer type,
+                                                  @Param("lastId") Long lastId,
+                                                  @Param("endId") Long endId);
+
+    /**
+     * 查询指定关系类型的最大 id
+     */
+    Long queryMaxId(@Param("type") Integer type);
+
+    /**
+     * 查询创建时间不晚于指定时间的最大 id
+     *
+     * @param type          关系类型
+     * @param createdBefore 创建时间上界（包含）
+     */
+    Long queryMaxIdCreatedBefore(@Param("type") Integer type, @Param("createdBefore") Date createdBefore);
+}
@@ -0,0 +1,39 @@
+package com.hidreamai.community.job.dal.relation.entity;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 已在库内关联出内容所有者的点赞关系
+ *
+ * @author hidream
+ */
+@Data
+public class LikeNotifyRelation {
+
+    /**
+     * 关系id
+     */
+    private Long id;
+
+    /**
+     * 点赞用户id
+     */
+    private String sourceId;
+
+    /**
+     * 内容id
+     */
+    private String targetId;
+
+    /**
+     * 内容所有者用户id
+     */
+    private String ownerId;
+
+    /**
+     * 点赞时间
+     */
+    private Date createTime;
+}
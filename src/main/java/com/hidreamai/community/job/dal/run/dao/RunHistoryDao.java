@@ -0,0 +1,24 @@
+package com.hidreamai.community.job.dal.run.dao;
+
+import com.hidreamai.community.job.dal.run.entity.RunHistory;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 任务运行历史DAO
+ *
+ * @author hidream
+ */
+public interface RunHistoryDao {
+
+    int insert(RunHistory history);
+
+    /**
+     * 按结束时间倒序查询任务最近的运行
+     *
+     * @param jobName 任务名
+     * @param limit   最大条数
+     */
+    List<RunHistory> listRecent(@Param("jobName") String jobName, @Param("limit") Integer limit);
+}
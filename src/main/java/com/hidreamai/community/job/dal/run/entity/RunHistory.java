@@ -0,0 +1,64 @@
+package com.hidreamai.community.job.dal.run.entity;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 任务运行历史
+ *
+ * @author hidream
+ */
+@Data
+public class RunHistory {
+
+    private Long id;
+
+    private String jobName;
+
+    private String runId;
+
+    private String mode;
+
+    /**
+     * 触发方式：manual、resume、scheduled、shard-join
+     */
+    private String triggerType;
+
+    private String status;
+
+    private Long startId;
+
+    private Long endId;
+
+    private Integer batchSize;
+
+    /**
+     * 运行参数（并发、执行器模式等），JSON
+     */
+    private String params;
+
+    private Date startTime;
+
+    private Date endTime;
+
+    private Long durationMs;
+
+    private Long processedCount;
+
+    private Integer successBatches;
+
+    private Integer failedBatches;
+
+    /**
+     * 吞吐量（行/秒）
+     */
+    private Double rowsPerSecond;
+
+    /**
+     * 各阶段耗时分位数，JSON
+     */
+    private String stageLatencies;
+
+    private String message;
+}
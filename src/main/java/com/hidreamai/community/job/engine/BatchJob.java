@@ -0,0 +1,53 @@
+package com.hidreamai.community.job.engine;
+
+import java.util.List;
+
+/**
+ * 批处理任务扩展点
+ * 任务只描述 读取（source）-> 转换（transform）-> 写入（sink） 三步，调度、重试、停止和全局资源预算由 {@link BatchJobEngine} 统一负责；
+ * 实现类注册为 Spring Bean 即被引擎发现。读取按主键游标进行，写入通知时应通过
+ * {@link com.hidreamai.community.job.support.NotifyBatchWriter}，以计入下游QPS预算
+ *
+ * @param <S> 读取的源数据类型
+ * @param <T> 写入的目标数据类型
+ * @author hidream
+ */
+public interface BatchJob<S, T> {
+
+    /**
+     * 任务名，全局唯一，用于接口路径和状态查询
+     */
+    String getName();
+
+    /**
+     * 任务描述
+     */
+    String getDescription();
+
+    /**
+     * 查询源数据当前的最大id，作为未指定结束id时的扫描上界
+     */
+    Long queryMaxId();
+
+    /**
+     * 读取 id 在 (afterId, endId] 内的一批源数据，按 id 升序
+     */
+    List<S> read(long afterId, long endId, int limit);
+
+    /**
+     * 源数据的游标id
+     */
+    long idOf(S item);
+
+    /**
+     * 转换一批源数据，过滤掉的数据不出现在结果中
+     */
+    List<T> transform(List<S> items);
+
+    /**
+     * 写入一批目标数据
+     *
+     * @return 写入失败的数据，引擎按配置只重试这些数据；全部成功时返回空列表
+     */
+    List<T> write(List<T> items);
+}
@@ -0,0 +1,285 @@
+package com.hidreamai.community.job.engine;
+
+import com.hidreamai.community.job.config.BatchEngineProperties;
+import com.hidreamai.community.job.support.ResourceBudget;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批处理任务引擎
+ * 运行所有 {@link BatchJob} 实现：按主键游标分批读取、转换、写入，每次读取前检查堆内存余量并占用全局数据库连接预算；
+ * 同一任务同一时间只允许一次运行
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class BatchJobEngine {
+
+    @Autowired(required = false)
+    private List<BatchJob<?, ?>> batchJobs = Collections.emptyList();
+
+    @Resource
+    private ResourceBudget resourceBudget;
+
+    @Resource
+    private BatchEngineProperties batchEngineProperties;
+
+    @Resource
+    @Qualifier("jobTaskExecutor")
+    private Executor jobTaskExecutor;
+
+    private final Map<String, BatchJob<?, ?>> jobs = new LinkedHashMap<>();
+    private final Map<String, RunState> activeRuns = new ConcurrentHashMap<>();
+    private final Map<String, RunState> lastRuns = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (BatchJob<?, ?> job : batchJobs) {
+            if (jobs.putIfAbsent(job.getName(), job) != null) {
+                throw new IllegalStateException("批处理任务名重复: " + job.getName());
+            }
+        }
+        log.info("批处理任务引擎初始化完成，已注册任务: {}", jobs.keySet());
+    }
+
+    /**
+     * 异步启动任务
+     *
+     * @param startId   起始id（不包含）
+     * @param endId     结束id（包含），小于 0 时使用源数据当前最大id
+     * @param batchSize 批量大小，不大于 0 时使用默认值
+     * @throws IllegalArgumentException 任务不存在
+     * @throws IllegalStateException    任务正在运行
+     */
+    public void trigger(String jobName, long startId, long endId, int batchSize) {
+        BatchJob<?, ?> job = getJob(jobName);
+        RunState state = new RunState(startId, endId,
+                batchSize > 0 ? batchSize : batchEngineProperties.getDefaultBatchSize());
+        if (activeRuns.putIfAbsent(jobName, state) != null) {
+            throw new IllegalStateException("任务正在运行: " + jobName);
+        }
+        try {
+            jobTaskExecutor.execute(() -> run(job, state));
+        } catch (RuntimeException e) {
+            activeRuns.remove(jobName, state);
+            throw e;
+        }
+    }
+
+    /**
+     * 请求停止任务，当前批次处理完后退出
+     *
+     * @return 任务是否在运行
+     */
+    public boolean stop(String jobName) {
+        getJob(jobName);
+        RunState state = activeRuns.get(jobName);
+        if (state == null) {
+            return false;
+        }
+        state.stopRequested = true;
+        return true;
+    }
+
+    private <S, T> void run(BatchJob<S, T> job, RunState state) {
+        String name = job.getName();
+        try {
+            long endId = state.endId;
+            if (endId < 0) {
+                Long maxId = resourceBudget.callWithDbConnection(job::queryMaxId);
+                endId = maxId == null ? state.startId : maxId;
+            }
+            state.resolvedEndId = endId;
+            log.info("批处理任务开始，任务: {}, id范围: ({}, {}], 批量大小: {}", name, state.startId, endId, state.batchSize);
+
+            long cursor = state.startId;
+            while (cursor < endId && !state.stopRequested) {
+                resourceBudget.awaitHeapHeadroom();
+                resourceBudget.awaitDbHealth();
+                List<S> items = read(job, cursor, endId, state.batchSize);
+                if (items == null) {
+                    state.status = "FAILED";
+                    return;
+                }
+                if (items.isEmpty()) {
+                    break;
+                }
+
+                List<T> outputs = job.transform(items);
+                if (!outputs.isEmpty() && !write(job, outputs, state)) {
+                    state.failedBatches.incrementAndGet();
+                    log.warn("批处理任务写入失败，任务: {}, id范围: ({}, {}]", name, cursor, job.idOf(items.get(items.size() - 1)));
+                }
+                cursor = job.idOf(items.get(items.size() - 1));
+                state.cursor = cursor;
+                state.processedCount.addAndGet(items.size());
+                if (items.size() < state.batchSize) {
+                    break;
+                }
+            }
+            state.status = state.stopRequested ? "STOPPED" : "COMPLETED";
+            log.info("批处理任务结束，任务: {}, 状态: {}, 处理: {}, 写入: {}, 失败批次: {}, 耗时: {}ms", name, state.status,
+                    state.processedCount.get(), state.writtenCount.get(), state.failedBatches.get(),
+                    System.currentTimeMillis() - state.startTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state.status = "STOPPED";
+            log.warn("批处理任务被中断，任务: {}, 游标: {}", name, state.cursor);
+        } catch (Exception e) {
+            state.status = "FAILED";
+            log.error("批处理任务异常，任务: {}, 游标: {}", name, state.cursor, e);
+        } finally {
+            state.endTime = System.currentTimeMillis();
+            lastRuns.put(name, state);
+            activeRuns.remove(name, state);
+        }
+    }
+
+    /**
+     * 占用数据库连接预算读取一批数据
+     *
+     * @return 查询结果，重试耗尽时返回 null
+     */
+    private <S> List<S> read(BatchJob<S, ?> job, long afterId, long endId, int limit) throws InterruptedException {
+        int maxRetryTimes = batchEngineProperties.getMaxRetryTimes();
+        for (int retryCount = 0; ; retryCount++) {
+            try {
+                return resourceBudget.callWithDbConnection(() -> job.read(afterId, endId, limit));
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                if (retryCount >= maxRetryTimes) {
+                    log.error("批处理任务读取失败，已重试{}次，任务: {}, afterId: {}", maxRetryTimes, job.getName(), afterId, e);
+                    return null;
+                }
+                log.warn("批处理任务读取失败，第{}次重试，任务: {}, afterId: {}, 错误: {}",
+                        retryCount + 1, job.getName(), afterId, e.getMessage());
+                Thread.sleep(batchEngineProperties.getRetryDelayMs() * (retryCount + 1));
+            }
+        }
+    }
+
+    /**
+     * 写入一批数据，只重试失败的部分
+     *
+     * @return 是否全部写入成功
+     */
+    private <T> boolean write(BatchJob<?, T> job, List<T> outputs, RunState state) throws InterruptedException {
+        int maxRetryTimes = batchEngineProperties.getMaxRetryTimes();
+        List<T> pending = outputs;
+        for (int retryCount = 0; ; retryCount++) {
+            try {
+                List<T> failed = job.write(pending);
+                state.writtenCount.addAndGet(pending.size() - failed.size());
+                pending = failed;
+                if (pending.isEmpty()) {
+                    return true;
+                }
+            } catch (Exception e) {
+                log.warn("批处理任务写入异常，任务: {}, 错误: {}", job.getName(), e.getMessage());
+            }
+            if (retryCount >= maxRetryTimes || Thread.currentThread().isInterrupted()) {
+                state.failedCount.addAndGet(pending.size());
+                return false;
+            }
+            Thread.sleep(batchEngineProperties.getRetryDelayMs() * (retryCount + 1));
+        }
+    }
+
+    private BatchJob<?, ?> getJob(String jobName) {
+        BatchJob<?, ?> job = jobs.get(jobName);
+        if (job == null) {
+            throw new IllegalArgumentException("批处理任务不存在: " + jobName);
+        }
+        return job;
+    }
+
+    /**
+     * 已注册的任务列表
+     */
+    public List<Map<String, Object>> listJobs() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (BatchJob<?, ?> job : jobs.values()) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("name", job.getName());
+            item.put("description", job.getDescription());
+            item.put("isRunning", activeRuns.containsKey(job.getName()));
+            list.add(item);
+        }
+        return list;
+    }
+
+    /**
+     * 获取任务状态，包括当前运行和最近一次结束的运行
+     */
+    public Map<String, Object> getStatus(String jobName) {
+        BatchJob<?, ?> job = getJob(jobName);
+        Map<String, Object> status = new HashMap<>();
+        status.put("name", jobName);
+        status.put("description", job.getDescription());
+        RunState active = activeRuns.get(jobName);
+        status.put("isRunning", active != null);
+        status.put("currentRun", active == null ? null : active.toMap());
+        RunState last = lastRuns.get(jobName);
+        status.put("lastRun", last == null ? null : last.toMap());
+        return status;
+    }
+
+    /**
+     * 单次运行状态
+     */
+    private static class RunState {
+        private final long startId;
+        private final long endId;
+        private final int batchSize;
+        private final long startTime = System.currentTimeMillis();
+        private final AtomicLong processedCount = new AtomicLong(0);
+        private final AtomicLong writtenCount = new AtomicLong(0);
+        private final AtomicLong failedCount = new AtomicLong(0);
+        private final AtomicLong failedBatches = new AtomicLong(0);
+        private volatile long resolvedEndId = -1;
+        private volatile long cursor;
+        private volatile long endTime;
+        private volatile String status = "RUNNING";
+        private volatile boolean stopRequested;
+
+        RunState(long startId, long endId, int batchSize) {
+            this.startId = startId;
+            this.endId = endId;
+            this.batchSize = batchSize;
+            this.cursor = startId;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("status", status);
+            map.put("startId", startId);
+            map.put("endId", resolvedEndId);
+            map.put("cursor", cursor);
+            map.put("batchSize", batchSize);
+            map.put("processedCount", processedCount.get());
+            map.put("writtenCount", writtenCount.get());
+            map.put("failedCount", failedCount.get());
+            map.put("failedBatches", failedBatches.get());
+            map.put("startTime", startTime);
+            map.put("endTime", endTime);
+            map.put("stopRequested", stopRequested);
+            return map;
+        }
+    }
+}
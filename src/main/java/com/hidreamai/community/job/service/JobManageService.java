@@ -1,12 +1,38 @@
 package com.hidreamai.community.job.service;
 
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import com.hidreamai.community.job.dal.notify.entity.NotifyDeadLetter;
+import com.hidreamai.community.job.dal.run.entity.RunHistory;
+import com.hidreamai.community.job.engine.BatchJobEngine;
+import com.hidreamai.community.job.support.AdaptiveConcurrencyController;
+import com.hidreamai.community.job.support.ContentOwnerResolver;
+import com.hidreamai.community.job.support.DbHealthGovernor;
+import com.hidreamai.community.job.support.LikeNotifyAggregator;
+import com.hidreamai.community.job.support.MemoryGovernor;
+import com.hidreamai.community.job.support.NotifyBatchWriter;
+import com.hidreamai.community.job.support.NotifyDeadLetterStore;
+import com.hidreamai.community.job.support.NotifyRetryQueue;
+import com.hidreamai.community.job.support.ReadRoutingDataSource;
+import com.hidreamai.community.job.support.ResourceBudget;
+import com.hidreamai.community.job.support.RunHistoryStore;
+import com.hidreamai.community.job.support.RunRecord;
+import com.hidreamai.community.job.support.RunRegistry;
+import com.hidreamai.community.job.support.ShardLeaseManager;
+import com.hidreamai.community.job.support.SyncCheckpointStore;
+import com.hidreamai.community.job.support.SyncWatermarkStore;
+import com.hidreamai.community.job.task.LikeEventStreamConsumer;
 import com.hidreamai.community.job.task.LikeNotifySyncJob;
+import com.hidreamai.community.job.task.LikeNotifySyncMode;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * 任务管理服务
@@ -17,15 +43,180 @@ import java.util.Map;
 @Slf4j
 public class JobManageService {
 
+    /**
+     * 查询运行历史时额外读取的更早运行数，用于计算最早几条运行的基线
+     */
+    private static final int HISTORY_BASELINE_LOOKBACK = 100;
+
+    private static final int MAX_HISTORY_LIMIT = 200;
+
     @Autowired
     private LikeNotifySyncJob likeNotifySyncJob;
 
+    @Autowired
+    private ContentOwnerResolver contentOwnerResolver;
+
+    @Autowired
+    private MemoryGovernor memoryGovernor;
+
+    @Autowired
+    private SyncWatermarkStore syncWatermarkStore;
+
+    @Autowired
+    private SyncCheckpointStore syncCheckpointStore;
+
+    @Autowired
+    private ShardLeaseManager shardLeaseManager;
+
+    @Autowired
+    private AdaptiveConcurrencyController adaptiveConcurrencyController;
+
+    @Autowired
+    private NotifyBatchWriter notifyBatchWriter;
+
+    @Autowired
+    private LikeNotifyAggregator likeNotifyAggregator;
+
+    @Autowired
+    private LikeEventStreamConsumer likeEventStreamConsumer;
+
+    @Autowired
+    private LikeNotifyProperties likeNotifyProperties;
+
+    @Autowired
+    private BatchJobEngine batchJobEngine;
+
+    @Autowired
+    private ResourceBudget resourceBudget;
+
+    @Autowired
+    private RunRegistry runRegistry;
+
+    @Autowired
+    private RunHistoryStore runHistoryStore;
+
+    @Autowired
+    private NotifyRetryQueue notifyRetryQueue;
+
+    @Autowired
+    private NotifyDeadLetterStore notifyDeadLetterStore;
+
+    @Autowired
+    private ReadRoutingDataSource readRoutingDataSource;
+
+    @Autowired
+    private DbHealthGovernor dbHealthGovernor;
+
     /**
      * 触发点赞通知同步任务
+     *
+     * @return 本次运行的运行id
+     * @throws IllegalStateException 已有运行在进行时拒绝
+     */
+    public String triggerLikeNotifySync(String mode, long startId, long endId, int batchSize) {
+        LikeNotifySyncMode syncMode = LikeNotifySyncMode.resolve(mode, startId, endId);
+        log.info("触发点赞通知同步任务，参数: mode={}, startId={}, endId={}, batchSize={}", syncMode, startId, endId, batchSize);
+        return likeNotifySyncJob.submitSync(syncMode, startId, endId, batchSize);
+    }
+
+    /**
+     * 试运行点赞通知同步任务：抽样推算通知数、过滤数和预计耗时，不发送通知
+     *
+     * @param sampleBatches 抽样批次数，小于等于0时使用配置值
+     * @throws IllegalStateException 没有可处理的数据
+     */
+    public Map<String, Object> dryRunLikeNotifySync(String mode, long startId, long endId, int batchSize, int sampleBatches) {
+        LikeNotifySyncMode syncMode = LikeNotifySyncMode.resolve(mode, startId, endId);
+        log.info("试运行点赞通知同步任务，参数: mode={}, startId={}, endId={}, batchSize={}, sampleBatches={}", 
+                syncMode, startId, endId, batchSize, sampleBatches);
+        Map<String, Object> estimate = likeNotifySyncJob.estimateSync(syncMode, startId, endId, batchSize, sampleBatches);
+        if (estimate == null) {
+            throw new IllegalStateException("处理范围内没有需要同步的点赞关系数据");
+        }
+        return estimate;
+    }
+
+    /**
+     * 从检查点恢复点赞通知同步任务
+     *
+     * @param runId 运行id，为空时恢复最近一次运行
+     * @return 恢复的运行id
+     */
+    public String resumeLikeNotifySync(String runId) {
+        log.info("恢复点赞通知同步任务，runId: {}", runId);
+        return likeNotifySyncJob.submitResume(runId);
+    }
+
+    /**
+     * 查询本节点上点赞通知同步任务的某次运行，包括进行中和最近结束的运行
+     *
+     * @throws IllegalArgumentException 运行不存在
      */
-    public void triggerLikeNotifySync(int startBatch, int endBatch, int batchSize) {
-        log.info("触发点赞通知同步任务，参数: startBatch={}, endBatch={}, batchSize={}", startBatch, endBatch, batchSize);
-        likeNotifySyncJob.syncLikeNotifications(startBatch, endBatch, batchSize);
+    public Map<String, Object> getLikeNotifyRun(String runId) {
+        RunRecord record = runRegistry.find(runId);
+        if (record == null || !LikeNotifySyncJob.JOB_NAME.equals(record.getJobName())) {
+            throw new IllegalArgumentException("运行不存在或已过期: " + runId);
+        }
+        Map<String, Object> run = record.toMap();
+        run.put("isActive", record == runRegistry.getActive(LikeNotifySyncJob.JOB_NAME));
+        return run;
+    }
+
+    /**
+     * 查询点赞通知同步任务的运行历史，并与同一模式此前运行的吞吐量中位数比较，标记性能回退
+     *
+     * @param limit        返回的运行数
+     * @param thresholdPct 回退阈值百分比，为空时使用配置值
+     */
+    public List<Map<String, Object>> getLikeNotifyHistory(int limit, Double thresholdPct) {
+        int size = Math.max(1, Math.min(limit, MAX_HISTORY_LIMIT));
+        double threshold = thresholdPct != null ? thresholdPct : likeNotifyProperties.getHistoryRegressionThresholdPct();
+        List<RunHistory> runs = runHistoryStore.listRecent(LikeNotifySyncJob.JOB_NAME, size + HISTORY_BASELINE_LOOKBACK);
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (int i = 0; i < Math.min(size, runs.size()); i++) {
+            RunHistory run = runs.get(i);
+            Double baseline = baselineRowsPerSecond(runs, i);
+            Double dropPct = null;
+            if (baseline != null && baseline > 0 && isBaselineEligible(run)) {
+                dropPct = (1 - run.getRowsPerSecond() / baseline) * 100;
+            }
+            Map<String, Object> item = new HashMap<>();
+            item.put("run", run);
+            item.put("baselineRowsPerSecond", baseline);
+            item.put("throughputDropPct", dropPct);
+            item.put("regression", dropPct != null && dropPct > threshold);
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 基线：同一模式、更早的已完成运行中最近若干次的吞吐量中位数
+     *
+     * @param runs  按结束时间倒序的运行列表
+     * @param index 待比较运行的下标
+     */
+    private Double baselineRowsPerSecond(List<RunHistory> runs, int index) {
+        String mode = runs.get(index).getMode();
+        List<Double> samples = new ArrayList<>();
+        for (int j = index + 1; j < runs.size() && samples.size() < likeNotifyProperties.getHistoryBaselineRuns(); j++) {
+            RunHistory prior = runs.get(j);
+            if (Objects.equals(mode, prior.getMode()) && isBaselineEligible(prior)) {
+                samples.add(prior.getRowsPerSecond());
+            }
+        }
+        if (samples.isEmpty()) {
+            return null;
+        }
+        Collections.sort(samples);
+        int mid = samples.size() / 2;
+        return samples.size() % 2 == 1 ? samples.get(mid) : (samples.get(mid - 1) + samples.get(mid)) / 2;
+    }
+
+    private boolean isBaselineEligible(RunHistory run) {
+        return RunRecord.STATUS_COMPLETED.equals(run.getStatus()) && run.getRowsPerSecond() != null
+                && run.getProcessedCount() != null && run.getProcessedCount() >= likeNotifyProperties.getHistoryMinRows();
     }
 
     /**
@@ -36,6 +227,36 @@ public class JobManageService {
         status.put("taskName", "点赞通知同步任务");
         status.put("isRunning", likeNotifySyncJob.isTaskRunning());
         status.put("status", likeNotifySyncJob.getTaskStatus());
+        RunRecord active = runRegistry.getActive(LikeNotifySyncJob.JOB_NAME);
+        status.put("currentRun", active == null ? null : active.toMap());
+        List<Map<String, Object>> recentRuns = new ArrayList<>();
+        for (RunRecord record : runRegistry.listRecent(LikeNotifySyncJob.JOB_NAME)) {
+            recentRuns.add(record.toMap());
+        }
+        status.put("recentRuns", recentRuns);
+        status.put("ownerCache", contentOwnerResolver.getStats());
+        status.put("memoryGovernor", memoryGovernor.getStatus());
+        status.put("dbHealth", dbHealthGovernor.getStatus());
+        status.put("pipeline", likeNotifySyncJob.getPipelineStatus());
+        status.put("adaptive", adaptiveConcurrencyController.getStatus());
+        Map<String, Object> executor = new HashMap<>();
+        executor.put("mode", likeNotifyProperties.getExecutorMode());
+        executor.put("notifyInFlight", notifyBatchWriter.getInFlightCount());
+        executor.put("notifyMaxInFlight", likeNotifyProperties.getNotifyMaxInFlight());
+        status.put("executor", executor);
+        status.put("aggregation", likeNotifyAggregator.getStats());
+        status.put("stream", likeEventStreamConsumer.getStatus());
+        status.put("budget", resourceBudget.getStatus());
+        status.put("retryQueue", notifyRetryQueue.getStatus());
+        status.put("dataSource", readRoutingDataSource.getStatus());
+        try {
+            status.put("deadLetterPending", notifyDeadLetterStore.countPending(LikeNotifySyncJob.JOB_NAME));
+            status.put("watermark", syncWatermarkStore.getWatermark(LikeNotifySyncJob.JOB_NAME));
+            status.put("lastCheckpoint", syncCheckpointStore.load(LikeNotifySyncJob.JOB_NAME, null));
+            status.put("shardedRun", shardLeaseManager.getActiveRunStatus(LikeNotifySyncJob.JOB_NAME));
+        } catch (Exception e) {
+            log.warn("查询同步水位线、检查点、分片运行或死信数失败: {}", e.getMessage());
+        }
         status.put("timestamp", System.currentTimeMillis());
         return status;
     }
@@ -49,6 +270,80 @@ public class JobManageService {
         // 由于任务本身有超时和中断处理机制，这里主要提供接口层面的停止信号
     }
 
+    /**
+     * 获取批处理引擎上注册的任务列表
+     */
+    public List<Map<String, Object>> listBatchJobs() {
+        return batchJobEngine.listJobs();
+    }
+
+    /**
+     * 触发批处理引擎上的任务
+     */
+    public void triggerBatchJob(String jobName, long startId, long endId, int batchSize) {
+        log.info("触发批处理任务，任务: {}, 参数: startId={}, endId={}, batchSize={}", jobName, startId, endId, batchSize);
+        batchJobEngine.trigger(jobName, startId, endId, batchSize);
+    }
+
+    /**
+     * 获取批处理引擎上的任务状态
+     */
+    public Map<String, Object> getBatchJobStatus(String jobName) {
+        Map<String, Object> status = batchJobEngine.getStatus(jobName);
+        status.put("budget", resourceBudget.getStatus());
+        status.put("timestamp", System.currentTimeMillis());
+        return status;
+    }
+
+    /**
+     * 停止批处理引擎上的任务
+     *
+     * @return 任务是否在运行
+     */
+    public boolean stopBatchJob(String jobName) {
+        log.info("停止批处理任务，任务: {}", jobName);
+        return batchJobEngine.stop(jobName);
+    }
+
+    /**
+     * 获取下游限流器的速率和使用情况
+     */
+    public Map<String, Object> getRateLimits() {
+        return resourceBudget.getRateLimits();
+    }
+
+    /**
+     * 调整下游限流速率，立即对本节点所有任务生效，重启后恢复为配置值
+     *
+     * @throws IllegalArgumentException 限流器不存在或速率为负数
+     */
+    public Map<String, Object> updateRateLimit(String name, double qps) {
+        resourceBudget.updateRateLimit(name, qps);
+        return resourceBudget.getRateLimits();
+    }
+
+    /**
+     * 按id倒序查询点赞通知的死信
+     *
+     * @param status 状态，为空时不限
+     */
+    public List<NotifyDeadLetter> listLikeNotifyDeadLetters(String status, int limit) {
+        return notifyDeadLetterStore.listRecent(LikeNotifySyncJob.JOB_NAME, status,
+                Math.max(1, Math.min(limit, MAX_HISTORY_LIMIT)));
+    }
+
+    /**
+     * 重放一批点赞通知的死信
+     *
+     * @param limit 最大重放条数，小于等于0时使用配置值
+     */
+    public Map<String, Object> replayLikeNotifyDeadLetters(int limit) {
+        int batchSize = Math.max(1, likeNotifyProperties.getDeadLetterReplayBatchSize());
+        int replayLimit = limit > 0 ? Math.min(limit, batchSize) : batchSize;
+        log.info("重放点赞通知死信，最大条数: {}", replayLimit);
+        return notifyDeadLetterStore.replay(LikeNotifySyncJob.JOB_NAME, replayLimit);
+    }
+
     /**
      * 获取所有任务状态概览
      */
@@ -59,6 +354,10 @@ public class JobManageService {
         Map<String, Object> likeNotifyStatus = getLikeNotifyStatus();
         overview.put("likeNotifySync", likeNotifyStatus);
         
+        // 批处理引擎任务和全局资源预算
+        overview.put("batchJobs", batchJobEngine.listJobs());
+        overview.put("budget", resourceBudget.getStatus());
+        
         // 服务基本信息
         overview.put("serviceName", "community-job");
         overview.put("timestamp", System.currentTimeMillis());
@@ -0,0 +1,236 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 自适应并发与批量大小控制器
+ * 按窗口统计扫描耗时、所有者查询耗时和通知写入失败率，采用 AIMD 策略调整：
+ * 指标健康时批量大小和写入并发加性增长，任一指标超标时乘性下降
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class AdaptiveConcurrencyController {
+
+    @Resource
+    private LikeNotifyProperties likeNotifyProperties;
+
+    private final Object permitLock = new Object();
+
+    private volatile int batchSize;
+    private volatile int writeConcurrency;
+    private volatile boolean batchSizeFixed = false;
+    private int activeWrites = 0;
+
+    // 当前窗口统计，由 this 保护
+    private int windowBatches = 0;
+    private int windowScans = 0;
+    private long windowScanMillis = 0;
+    private long windowOwnerMillis = 0;
+    private int windowOwnerLookups = 0;
+    private long windowWriteTotal = 0;
+    private long windowWriteFailed = 0;
+
+    private final Deque<Map<String, Object>> history = new ArrayDeque<>();
+    private long increaseCount = 0;
+    private long decreaseCount = 0;
+
+    /**
+     * 开始一次运行
+     *
+     * @param initialBatchSize 初始批量大小
+     * @param fixedBatchSize   为 true 时批量大小保持不变（调用方显式指定了批量大小），只调整写入并发
+     */
+    public synchronized void begin(int initialBatchSize, boolean fixedBatchSize) {
+        this.batchSizeFixed = fixedBatchSize || !likeNotifyProperties.isAdaptiveEnabled();
+        this.batchSize = batchSizeFixed ? initialBatchSize : clampBatchSize(initialBatchSize);
+        setWriteConcurrency(likeNotifyProperties.isAdaptiveEnabled()
+                ? clampConcurrency(likeNotifyProperties.getPipelineWriteThreads())
+                : likeNotifyProperties.getPipelineWriteThreads());
+        resetWindow();
+        log.info("自适应控制器初始化，批量大小: {}{}, 写入并发: {}", batchSize, batchSizeFixed ? "(固定)" : "", writeConcurrency);
+    }
+
+    /**
+     * 写入阶段需要的最大线程数，实际并发由写入许可控制
+     */
+    public int getMaxWriteThreads() {
+        if (!likeNotifyProperties.isAdaptiveEnabled()) {
+            return likeNotifyProperties.getPipelineWriteThreads();
+        }
+        return Math.max(likeNotifyProperties.getPipelineWriteThreads(), likeNotifyProperties.getAdaptiveMaxWriteConcurrency());
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getWriteConcurrency() {
+        return writeConcurrency;
+    }
+
+    /**
+     * 获取写入许可，并发已达当前上限时阻塞
+     */
+    public void acquireWritePermit() throws InterruptedException {
+        synchronized (permitLock) {
+            while (activeWrites >= writeConcurrency) {
+                permitLock.wait(100);
+            }
+            activeWrites++;
+        }
+    }
+
+    /**
+     * 归还写入许可
+     */
+    public void releaseWritePermit() {
+        synchronized (permitLock) {
+            activeWrites--;
+            permitLock.notifyAll();
+        }
+    }
+
+    /**
+     * 记录一次主键扫描的耗时
+     */
+    public synchronized void recordScan(long latencyMs) {
+        windowScanMillis += latencyMs;
+        windowScans++;
+    }
+
+    /**
+     * 记录一次批量所有者查询的耗时
+     */
+    public synchronized void recordOwnerLookup(long latencyMs) {
+        windowOwnerMillis += latencyMs;
+        windowOwnerLookups++;
+    }
+
+    /**
+     * 记录一个批次的通知写入结果，每满一个统计窗口进行一次调整
+     */
+    public synchronized void recordWrite(int total, int failed) {
+        windowWriteTotal += total;
+        windowWriteFailed += failed;
+        windowBatches++;
+        if (likeNotifyProperties.isAdaptiveEnabled()
+                && windowBatches >= Math.max(1, likeNotifyProperties.getAdaptiveWindowBatches())) {
+            adjust();
+            resetWindow();
+        }
+    }
+
+    private void adjust() {
+        long avgScanMs = windowScans > 0 ? windowScanMillis / windowScans : 0;
+        long avgOwnerMs = windowOwnerLookups > 0 ? windowOwnerMillis / windowOwnerLookups : 0;
+        double errorRate = windowWriteTotal > 0 ? (double) windowWriteFailed / windowWriteTotal : 0D;
+
+        String reason = null;
+        if (errorRate > likeNotifyProperties.getAdaptiveErrorRateThreshold()) {
+            reason = "写入失败率过高";
+        } else if (avgScanMs > likeNotifyProperties.getAdaptiveScanLatencyTargetMs()) {
+            reason = "扫描耗时超过目标";
+        } else if (avgOwnerMs > likeNotifyProperties.getAdaptiveOwnerLatencyTargetMs()) {
+            reason = "所有者查询耗时超过目标";
+        }
+
+        int previousBatchSize = batchSize;
+        int previousConcurrency = writeConcurrency;
+        double factor = likeNotifyProperties.getAdaptiveDecreaseFactor();
+        if (reason != null) {
+            decreaseCount++;
+            if (!batchSizeFixed) {
+                batchSize = clampBatchSize((int) (batchSize * factor));
+            }
+            // 失败率高说明下游写入吃紧，优先降低写入并发；延迟超标则主要由批量大小承担
+            if (errorRate > likeNotifyProperties.getAdaptiveErrorRateThreshold() || batchSizeFixed) {
+                setWriteConcurrency(clampConcurrency((int) (writeConcurrency * factor)));
+            }
+        } else {
+            increaseCount++;
+            reason = "指标正常";
+            if (!batchSizeFixed) {
+                batchSize = clampBatchSize(batchSize + likeNotifyProperties.getAdaptiveBatchStep());
+            }
+            setWriteConcurrency(clampConcurrency(writeConcurrency + 1));
+        }
+
+        if (previousBatchSize != batchSize || previousConcurrency != writeConcurrency) {
+            log.info("自适应调整: {}，批量大小 {} -> {}, 写入并发 {} -> {}, 平均扫描耗时: {}ms, 平均所有者查询耗时: {}ms, 失败率: {}",
+                    reason, previousBatchSize, batchSize, previousConcurrency, writeConcurrency,
+                    avgScanMs, avgOwnerMs, String.format("%.4f", errorRate));
+        }
+
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("time", System.currentTimeMillis());
+        entry.put("reason", reason);
+        entry.put("batchSize", batchSize);
+        entry.put("writeConcurrency", writeConcurrency);
+        entry.put("avgScanMs", avgScanMs);
+        entry.put("avgOwnerLookupMs", avgOwnerMs);
+        entry.put("errorRate", errorRate);
+        history.addLast(entry);
+        while (history.size() > Math.max(1, likeNotifyProperties.getAdaptiveHistorySize())) {
+            history.removeFirst();
+        }
+    }
+
+    private void setWriteConcurrency(int concurrency) {
+        synchronized (permitLock) {
+            writeConcurrency = concurrency;
+            permitLock.notifyAll();
+        }
+    }
+
+    private void resetWindow() {
+        windowBatches = 0;
+        windowScans = 0;
+        windowScanMillis = 0;
+        windowOwnerMillis = 0;
+        windowOwnerLookups = 0;
+        windowWriteTotal = 0;
+        windowWriteFailed = 0;
+    }
+
+    private int clampBatchSize(int size) {
+        return Math.max(likeNotifyProperties.getAdaptiveMinBatchSize(),
+                Math.min(likeNotifyProperties.getAdaptiveMaxBatchSize(), size));
+    }
+
+    private int clampConcurrency(int concurrency) {
+        return Math.max(Math.max(1, likeNotifyProperties.getAdaptiveMinWriteConcurrency()),
+                Math.min(likeNotifyProperties.getAdaptiveMaxWriteConcurrency(), concurrency));
+    }
+
+    /**
+     * 获取当前设置和调整历史
+     */
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", likeNotifyProperties.isAdaptiveEnabled());
+        status.put("batchSize", batchSize);
+        status.put("batchSizeFixed", batchSizeFixed);
+        status.put("writeConcurrency", writeConcurrency);
+        status.put("minBatchSize", likeNotifyProperties.getAdaptiveMinBatchSize());
+        status.put("maxBatchSize", likeNotifyProperties.getAdaptiveMaxBatchSize());
+        status.put("minWriteConcurrency", likeNotifyProperties.getAdaptiveMinWriteConcurrency());
+        status.put("maxWriteConcurrency", likeNotifyProperties.getAdaptiveMaxWriteConcurrency());
+        status.put("increaseCount", increaseCount);
+        status.put("decreaseCount", decreaseCount);
+        List<Map<String, Object>> entries = new ArrayList<>(history);
+        status.put("history", entries);
+        return status;
+    }
+}
@@ -0,0 +1,34 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.notify.entity.request.MessageNotifyReq;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * 聚合通知请求
+ * 同一接收人、同一内容在一个时间窗口内的多条点赞合并为一条通知；
+ * 基类字段保持为最近一次点赞，不识别聚合字段的下游仍能展示为一条普通通知
+ *
+ * @author hidream
+ */
+@Getter
+@Setter
+public class AggregatedNotifyReq extends MessageNotifyReq {
+
+    /**
+     * 合并的点赞数
+     */
+    private int aggregateCount;
+
+    /**
+     * 最近的点赞用户id，按时间倒序
+     */
+    private List<String> recentRelateUserIds;
+
+    /**
+     * 窗口内最早一次点赞时间
+     */
+    private Long firstNotifyTime;
+}
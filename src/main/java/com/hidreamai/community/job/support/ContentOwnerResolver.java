@@ -0,0 +1,230 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import com.hidreamai.community.job.dal.content.dao.ContentOwnerDao;
+import com.hidreamai.community.job.dal.content.entity.ContentOwner;
+import com.hidreamai.community.notify.proxy.NotifyContentQueryProxy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内容所有者批量解析器
+ * 一个批次的内容id去重后一次查询，结果放入有界LRU缓存，不存在的内容同样缓存；
+ * 批量查询失败时在查询执行器上并发逐条查询，进行中的查询数由信号量限制
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class ContentOwnerResolver {
+
+    /**
+     * 负缓存占位值，表示内容不存在或已删除
+     */
+    private static final String ABSENT = "";
+
+    @Resource
+    private ContentOwnerDao contentOwnerDao;
+
+    @Resource
+    private NotifyContentQueryProxy notifyContentQueryProxy;
+
+    @Resource
+    private LikeNotifyProperties likeNotifyProperties;
+
+    @Resource
+    @Qualifier("ownerLookupExecutor")
+    private Executor ownerLookupExecutor;
+
+    @Resource
+    private ResourceBudget resourceBudget;
+
+    private Semaphore lookupPermits;
+
+    private final AtomicLong hitCount = new AtomicLong(0);
+    private final AtomicLong negativeHitCount = new AtomicLong(0);
+    private final AtomicLong missCount = new AtomicLong(0);
+    private final AtomicLong evictionCount = new AtomicLong(0);
+    private final AtomicLong bulkQueryCount = new AtomicLong(0);
+    private final AtomicLong fallbackQueryCount = new AtomicLong(0);
+
+    private final Map<String, String> cache = new LinkedHashMap<String, String>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            if (size() > likeNotifyProperties.getOwnerCacheSize()) {
+                evictionCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        lookupPermits = new Semaphore(Math.max(1, likeNotifyProperties.getOwnerLookupMaxInFlight()));
+    }
+
+    /**
+     * 批量解析内容所有者
+     *
+     * @param contentIds 内容id集合，允许重复
+     * @return 内容id到所有者用户id的映射，无法解析的内容不包含在结果中
+     */
+    public Map<String, String> resolveOwners(Collection<String> contentIds) {
+        Map<String, String> owners = new HashMap<>(contentIds.size() * 2);
+        Set<String> missing = new LinkedHashSet<>();
+
+        synchronized (cache) {
+            for (String contentId : contentIds) {
+                if (contentId == null || owners.containsKey(contentId) || missing.contains(contentId)) {
+                    continue;
+                }
+                String cached = cache.get(contentId);
+                if (cached == null) {
+                    missing.add(contentId);
+                } else if (ABSENT.equals(cached)) {
+                    negativeHitCount.incrementAndGet();
+                } else {
+                    hitCount.incrementAndGet();
+                    owners.put(contentId, cached);
+                }
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return owners;
+        }
+        missCount.addAndGet(missing.size());
+
+        Set<String> unresolved = ConcurrentHashMap.newKeySet();
+        Map<String, String> loaded = loadOwners(missing, unresolved);
+        // 被中断时未查询的内容和逐条查询失败的内容不能当作不存在缓存
+        boolean interrupted = Thread.currentThread().isInterrupted();
+        synchronized (cache) {
+            for (String contentId : missing) {
+                String ownerId = loaded.get(contentId);
+                if (ownerId != null || (!interrupted && !unresolved.contains(contentId))) {
+                    cache.put(contentId, ownerId == null ? ABSENT : ownerId);
+                }
+            }
+        }
+        owners.putAll(loaded);
+        return owners;
+    }
+
+    /**
+     * 从数据库批量加载所有者，批量查询失败时降级为逐条代理查询
+     *
+     * @param unresolved 收集逐条查询失败或未查询的内容id
+     */
+    private Map<String, String> loadOwners(Set<String> contentIds, Set<String> unresolved) {
+        Map<String, String> loaded = new HashMap<>(contentIds.size() * 2);
+        List<String> ids = new ArrayList<>(contentIds);
+        int chunkSize = Math.max(1, likeNotifyProperties.getOwnerQueryBatchSize());
+
+        for (int i = 0; i < ids.size(); i += chunkSize) {
+            List<String> chunk = ids.subList(i, Math.min(i + chunkSize, ids.size()));
+            try {
+                bulkQueryCount.incrementAndGet();
+                List<ContentOwner> rows = resourceBudget.callWithDbConnection(() -> ReadRoutingDataSource.readFromReplica(
+                        () -> contentOwnerDao.batchQueryContentOwners(chunk)));
+                if (rows != null) {
+                    for (ContentOwner row : rows) {
+                        if (row.getContentId() != null && row.getUserId() != null) {
+                            loaded.put(row.getContentId(), row.getUserId());
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.warn("批量查询内容所有者失败，降级为逐条查询，数量: {}, 错误: {}", chunk.size(), e.getMessage());
+                loaded.putAll(lookupOwnersOneByOne(chunk, unresolved));
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 并发逐条查询所有者，单条查询失败只影响该内容，记入 unresolved，不让整批失败
+     */
+    private Map<String, String> lookupOwnersOneByOne(List<String> contentIds, Set<String> unresolved) {
+        Map<String, String> loaded = new ConcurrentHashMap<>(contentIds.size() * 2);
+        CompletableFuture<?>[] lookups = new CompletableFuture<?>[contentIds.size()];
+        for (int i = 0; i < contentIds.size(); i++) {
+            String contentId = contentIds.get(i);
+            lookups[i] = CompletableFuture.runAsync(() -> {
+                try {
+                    resourceBudget.acquireContentQuery(1);
+                    lookupPermits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    unresolved.add(contentId);
+                    return;
+                }
+                try {
+                    fallbackQueryCount.incrementAndGet();
+                    String ownerId = notifyContentQueryProxy.queryUserIdByContentId(contentId);
+                    if (ownerId != null) {
+                        loaded.put(contentId, ownerId);
+                    }
+                } catch (Exception e) {
+                    unresolved.add(contentId);
+                    log.warn("逐条查询内容所有者失败，contentId: {}, 错误: {}", contentId, e.getMessage());
+                } finally {
+                    lookupPermits.release();
+                }
+            }, ownerLookupExecutor);
+        }
+        CompletableFuture.allOf(lookups).join();
+        return loaded;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long hits = hitCount.get() + negativeHitCount.get();
+        long misses = missCount.get();
+        synchronized (cache) {
+            stats.put("size", cache.size());
+        }
+        stats.put("maxSize", likeNotifyProperties.getOwnerCacheSize());
+        stats.put("hitCount", hitCount.get());
+        stats.put("negativeHitCount", negativeHitCount.get());
+        stats.put("missCount", misses);
+        stats.put("evictionCount", evictionCount.get());
+        stats.put("bulkQueryCount", bulkQueryCount.get());
+        stats.put("fallbackQueryCount", fallbackQueryCount.get());
+        stats.put("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0D);
+        return stats;
+    }
+}
@@ -0,0 +1,250 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.BatchEngineProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据库健康调控器
+ * 定期在主库上采样探测查询耗时、Threads_running 和复制延迟，任一指标越过阈值即对读取和写入阶段减速或暂停，
+ * 避免在备份、复制追赶等数据库繁忙时段继续满速运行；只读副本启用时复制延迟取副本的检查结果
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class DbHealthGovernor {
+
+    private static final int HISTORY_SIZE = 20;
+
+    /**
+     * 调控级别
+     */
+    public enum Level {
+        /** 正常放行 */
+        PROCEED,
+        /** 减速放行 */
+        THROTTLE,
+        /** 暂停后放行 */
+        PAUSE
+    }
+
+    @Resource
+    private BatchEngineProperties batchEngineProperties;
+
+    @Resource
+    private ReadRoutingDataSource readRoutingDataSource;
+
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "db-health-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object levelSignal = new Object();
+    private volatile Level level = Level.PROCEED;
+    private volatile String reason;
+    private volatile long probeLatencyMs = -1;
+    private volatile long threadsRunning = -1;
+    private volatile Long replicaLagSeconds;
+    private volatile long lastSampleTime = 0;
+
+    private final Deque<Map<String, Object>> history = new ArrayDeque<>();
+    private final AtomicLong proceedCount = new AtomicLong(0);
+    private final AtomicLong throttleCount = new AtomicLong(0);
+    private final AtomicLong pauseCount = new AtomicLong(0);
+    private final AtomicLong pausedMillis = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        if (!batchEngineProperties.isDbHealthEnabled()) {
+            return;
+        }
+        long interval = Math.max(1000, batchEngineProperties.getDbHealthSampleIntervalMs());
+        sampler.scheduleWithFixedDelay(this::sample, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        sampler.shutdownNow();
+    }
+
+    /**
+     * 在读取或写入下一批数据前调用，按最近一次采样的级别放行、减速或暂停；
+     * 暂停直到采样恢复到暂停阈值以下或超过最长等待时间
+     *
+     * @return 本次的调控级别
+     */
+    public Level awaitHealthy() throws InterruptedException {
+        Level current = level;
+        if (current == Level.PAUSE) {
+            pauseCount.incrementAndGet();
+            long pauseStart = System.currentTimeMillis();
+            long deadline = pauseStart + batchEngineProperties.getDbMaxPauseMs();
+            synchronized (levelSignal) {
+                while (level == Level.PAUSE) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        log.warn("数据库繁忙暂停超过最大等待时间 {}ms，继续处理", batchEngineProperties.getDbMaxPauseMs());
+                        break;
+                    }
+                    levelSignal.wait(Math.min(remaining, 1000));
+                }
+            }
+            pausedMillis.addAndGet(System.currentTimeMillis() - pauseStart);
+        } else if (current == Level.THROTTLE) {
+            throttleCount.incrementAndGet();
+            long delay = batchEngineProperties.getDbThrottleDelayMs();
+            Thread.sleep(delay);
+            pausedMillis.addAndGet(delay);
+        } else {
+            proceedCount.incrementAndGet();
+        }
+        return current;
+    }
+
+    /**
+     * 采样一次并更新调控级别
+     */
+    void sample() {
+        List<String> reasons = new ArrayList<>();
+        Level next = Level.PROCEED;
+        try (Connection connection = readRoutingDataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            long probeStart = System.currentTimeMillis();
+            try (ResultSet ignored = statement.executeQuery("SELECT 1")) {
+                probeLatencyMs = System.currentTimeMillis() - probeStart;
+            }
+            threadsRunning = queryThreadsRunning(statement);
+            // 启用只读副本时取副本的复制延迟，否则检查任务连接的库本身是否在追赶复制
+            replicaLagSeconds = readRoutingDataSource.isReplicaEnabled()
+                    ? readRoutingDataSource.getReplicaLagSeconds()
+                    : queryReplicaLag(statement);
+
+            next = max(next, grade(probeLatencyMs, batchEngineProperties.getDbProbeSlowMs(),
+                    batchEngineProperties.getDbProbePauseMs(), "探测查询耗时 " + probeLatencyMs + "ms", reasons));
+            if (threadsRunning >= 0) {
+                next = max(next, grade(threadsRunning, batchEngineProperties.getDbThreadsRunningSlow(),
+                        batchEngineProperties.getDbThreadsRunningPause(), "Threads_running " + threadsRunning, reasons));
+            }
+            if (replicaLagSeconds != null) {
+                next = max(next, grade(replicaLagSeconds, batchEngineProperties.getDbReplicaLagSlowSeconds(),
+                        batchEngineProperties.getDbReplicaLagPauseSeconds(), "复制延迟 " + replicaLagSeconds + "s", reasons));
+            }
+        } catch (Exception e) {
+            next = Level.THROTTLE;
+            reasons.add("健康采样失败: " + e.getMessage());
+        }
+        lastSampleTime = System.currentTimeMillis();
+        updateLevel(next, reasons.isEmpty() ? null : String.join("; ", reasons));
+    }
+
+    private long queryThreadsRunning(Statement statement) {
+        try (ResultSet rows = statement.executeQuery("SHOW GLOBAL STATUS LIKE 'Threads_running'")) {
+            return rows.next() ? rows.getLong(2) : -1;
+        } catch (Exception e) {
+            log.debug("查询 Threads_running 失败: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * 查询本库的复制延迟，不是副本、复制线程未运行或没有权限时不作为调控依据
+     */
+    private Long queryReplicaLag(Statement statement) {
+        try {
+            return ReadRoutingDataSource.queryReplicaLagSeconds(statement);
+        } catch (Exception e) {
+            log.debug("查询复制状态失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Level grade(long value, long slowThreshold, long pauseThreshold, String description, List<String> reasons) {
+        if (pauseThreshold > 0 && value >= pauseThreshold) {
+            reasons.add(description);
+            return Level.PAUSE;
+        }
+        if (slowThreshold > 0 && value >= slowThreshold) {
+            reasons.add(description);
+            return Level.THROTTLE;
+        }
+        return Level.PROCEED;
+    }
+
+    private Level max(Level a, Level b) {
+        return a.ordinal() >= b.ordinal() ? a : b;
+    }
+
+    private void updateLevel(Level next, String nextReason) {
+        Level previous = level;
+        reason = nextReason;
+        if (previous == next) {
+            return;
+        }
+        level = next;
+        if (next == Level.PROCEED) {
+            log.info("数据库负载恢复正常，恢复满速处理");
+        } else {
+            log.warn("数据库繁忙，{}处理: {}", next == Level.PAUSE ? "暂停" : "减速", nextReason);
+        }
+        Map<String, Object> change = new LinkedHashMap<>();
+        change.put("time", System.currentTimeMillis());
+        change.put("from", previous.name());
+        change.put("to", next.name());
+        change.put("reason", nextReason);
+        synchronized (history) {
+            history.addFirst(change);
+            while (history.size() > HISTORY_SIZE) {
+                history.removeLast();
+            }
+        }
+        synchronized (levelSignal) {
+            levelSignal.notifyAll();
+        }
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * 获取调控状态，包括最近的采样值和级别变化
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", batchEngineProperties.isDbHealthEnabled());
+        status.put("level", level.name());
+        status.put("reason", reason);
+        status.put("probeLatencyMs", probeLatencyMs);
+        status.put("threadsRunning", threadsRunning);
+        status.put("replicaLagSeconds", replicaLagSeconds);
+        status.put("lastSampleTime", lastSampleTime);
+        status.put("proceedCount", proceedCount.get());
+        status.put("throttleCount", throttleCount.get());
+        status.put("pauseCount", pauseCount.get());
+        status.put("pausedMillis", pausedMillis.get());
+        synchronized (history) {
+            status.put("history", new ArrayList<>(history));
+        }
+        return status;
+    }
+}
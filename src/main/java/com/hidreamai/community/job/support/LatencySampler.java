@@ -0,0 +1,57 @@
+package com.hidreamai.community.job.support;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 单次运行内的耗时采样
+ * 固定容量的蓄水池抽样，样本数超过容量后等概率替换，内存占用与运行长度无关；运行结束时计算分位数
+ *
+ * @author hidream
+ */
+public class LatencySampler {
+
+    private static final int CAPACITY = 2048;
+
+    private final long[] samples = new long[CAPACITY];
+    private long count;
+    private long max;
+
+    public synchronized void record(long latencyMs) {
+        if (count < CAPACITY) {
+            samples[(int) count] = latencyMs;
+        } else {
+            long slot = ThreadLocalRandom.current().nextLong(count + 1);
+            if (slot < CAPACITY) {
+                samples[(int) slot] = latencyMs;
+            }
+        }
+        count++;
+        max = Math.max(max, latencyMs);
+    }
+
+    /**
+     * 计算 p50/p95/p99 和最大值（毫秒），没有样本时返回空映射
+     */
+    public synchronized Map<String, Object> percentiles() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        int size = (int) Math.min(count, CAPACITY);
+        if (size == 0) {
+            return result;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        result.put("count", count);
+        result.put("p50", sorted[index(size, 0.50)]);
+        result.put("p95", sorted[index(size, 0.95)]);
+        result.put("p99", sorted[index(size, 0.99)]);
+        result.put("max", max);
+        return result;
+    }
+
+    private static int index(int size, double quantile) {
+        return Math.min(size - 1, (int) Math.ceil(quantile * size) - 1);
+    }
+}
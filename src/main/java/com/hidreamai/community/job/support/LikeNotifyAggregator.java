@@ -0,0 +1,132 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import com.hidreamai.community.notify.entity.request.MessageNotifyReq;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 点赞通知聚合器
+ * 按 (接收人, 内容, 时间窗口) 对一个批次内的通知请求分组，多条点赞合并为一条携带计数和最近点赞用户的通知
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class LikeNotifyAggregator {
+
+    private static final Comparator<MessageNotifyReq> LATEST_FIRST = Comparator.comparing(
+            (MessageNotifyReq req) -> req.getNotifyTime() == null ? Long.MIN_VALUE : req.getNotifyTime()).reversed();
+
+    @Resource
+    private LikeNotifyProperties likeNotifyProperties;
+
+    private final AtomicLong inputCount = new AtomicLong(0);
+    private final AtomicLong outputCount = new AtomicLong(0);
+    private final AtomicLong aggregatedGroupCount = new AtomicLong(0);
+
+    /**
+     * 聚合通知请求，未启用聚合时原样返回
+     *
+     * @param requests 逐条点赞生成的通知请求
+     * @return 聚合后的通知请求，只有一条点赞的分组保持原请求
+     */
+    public List<MessageNotifyReq> aggregate(List<MessageNotifyReq> requests) {
+        if (!likeNotifyProperties.isNotifyAggregateEnabled() || requests.size() < 2) {
+            return requests;
+        }
+
+        Map<String, List<MessageNotifyReq>> groups = new LinkedHashMap<>();
+        for (MessageNotifyReq req : requests) {
+            groups.computeIfAbsent(groupKey(req), k -> new ArrayList<>(1)).add(req);
+        }
+
+        List<MessageNotifyReq> aggregated = new ArrayList<>(groups.size());
+        for (List<MessageNotifyReq> group : groups.values()) {
+            if (group.size() == 1) {
+                aggregated.add(group.get(0));
+            } else {
+                aggregated.add(merge(group));
+                aggregatedGroupCount.incrementAndGet();
+            }
+        }
+
+        inputCount.addAndGet(requests.size());
+        outputCount.addAndGet(aggregated.size());
+        log.debug("点赞通知聚合完成，输入: {}, 输出: {}", requests.size(), aggregated.size());
+        return aggregated;
+    }
+
+    /**
+     * 计算聚合后的通知数，不合并请求也不计入统计，用于试运行推算
+     */
+    public int countAggregated(List<MessageNotifyReq> requests) {
+        if (!likeNotifyProperties.isNotifyAggregateEnabled() || requests.size() < 2) {
+            return requests.size();
+        }
+        Set<String> keys = new HashSet<>();
+        for (MessageNotifyReq req : requests) {
+            keys.add(groupKey(req));
+        }
+        return keys.size();
+    }
+
+    private String groupKey(MessageNotifyReq req) {
+        long windowMs = likeNotifyProperties.getNotifyAggregateWindowSeconds() * 1000;
+        long window = windowMs > 0 && req.getNotifyTime() != null ? req.getNotifyTime() / windowMs : 0;
+        return req.getUserId() + "|" + req.getContentId() + "|" + window;
+    }
+
+    private AggregatedNotifyReq merge(List<MessageNotifyReq> group) {
+        group.sort(LATEST_FIRST);
+        MessageNotifyReq latest = group.get(0);
+
+        int recentLimit = Math.max(1, likeNotifyProperties.getNotifyAggregateRecentUsers());
+        Set<String> recentUsers = new LinkedHashSet<>();
+        for (MessageNotifyReq req : group) {
+            if (recentUsers.size() >= recentLimit) {
+                break;
+            }
+            recentUsers.add(req.getRelateUserId());
+        }
+
+        AggregatedNotifyReq merged = new AggregatedNotifyReq();
+        merged.setUserId(latest.getUserId());
+        merged.setRelateUserId(latest.getRelateUserId());
+        merged.setRelateType(latest.getRelateType());
+        merged.setContentId(latest.getContentId());
+        merged.setNotifyTime(latest.getNotifyTime());
+        merged.setAggregateCount(group.size());
+        merged.setRecentRelateUserIds(new ArrayList<>(recentUsers));
+        merged.setFirstNotifyTime(group.get(group.size() - 1).getNotifyTime());
+        return merged;
+    }
+
+    /**
+     * 获取聚合统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long input = inputCount.get();
+        long output = outputCount.get();
+        stats.put("enabled", likeNotifyProperties.isNotifyAggregateEnabled());
+        stats.put("windowSeconds", likeNotifyProperties.getNotifyAggregateWindowSeconds());
+        stats.put("inputCount", input);
+        stats.put("outputCount", output);
+        stats.put("aggregatedGroupCount", aggregatedGroupCount.get());
+        stats.put("reductionRatio", input > 0 ? 1 - (double) output / input : 0D);
+        return stats;
+    }
+}
@@ -0,0 +1,183 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.infra.enums.biz.RelationTypeEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * 点赞通知同步指标
+ * 各阶段的耗时、批次结果、处理行数、重试次数和队列深度，统一按任务名和关系类型打标签
+ *
+ * @author hidream
+ */
+@Component
+public class LikeNotifyMetrics {
+
+    private static final String PREFIX = "community.job.";
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    @Qualifier("notifyWriteExecutor")
+    private Executor notifyWriteExecutor;
+
+    private Tags tags;
+    private Timer pageQueryTimer;
+    private Timer ownerLookupTimer;
+    private Timer notifySuccessTimer;
+    private Timer notifyFailureTimer;
+    private Timer batchWriteTimer;
+    private Counter batchSuccessCounter;
+    private Counter batchFailureCounter;
+    private Counter rowsCounter;
+    private Counter notificationsCounter;
+    private Counter scanRetryCounter;
+    private Counter notifyRetryCounter;
+    private Counter deadLetterCounter;
+    private Counter streamAckedCounter;
+    private Counter streamFailedCounter;
+
+    private final Map<String, IntSupplier> stageQueueSizes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        tags = Tags.of("job", "like-notify",
+                "relation_type", String.valueOf(RelationTypeEnum.USER_LIKE_CONTENT.getCode()));
+
+        pageQueryTimer = Timer.builder(PREFIX + "page.query")
+                .description("主键游标分页查询耗时").tags(tags).publishPercentileHistogram().register(meterRegistry);
+        ownerLookupTimer = Timer.builder(PREFIX + "owner.lookup")
+                .description("单批内容所有者解析耗时").tags(tags).publishPercentileHistogram().register(meterRegistry);
+        notifySuccessTimer = Timer.builder(PREFIX + "notify.call")
+                .description("单条通知调用耗时").tags(tags).tag("outcome", "success").register(meterRegistry);
+        notifyFailureTimer = Timer.builder(PREFIX + "notify.call")
+                .description("单条通知调用耗时").tags(tags).tag("outcome", "failure").register(meterRegistry);
+        batchWriteTimer = Timer.builder(PREFIX + "batch.write")
+                .description("单批通知写入耗时（不含重试队列）").tags(tags).publishPercentileHistogram().register(meterRegistry);
+        batchSuccessCounter = Counter.builder(PREFIX + "batches")
+                .description("写入批次数").tags(tags).tag("outcome", "success").register(meterRegistry);
+        batchFailureCounter = Counter.builder(PREFIX + "batches")
+                .description("写入批次数").tags(tags).tag("outcome", "failure").register(meterRegistry);
+        rowsCounter = Counter.builder(PREFIX + "rows")
+                .description("已处理的关系行数").tags(tags).register(meterRegistry);
+        notificationsCounter = Counter.builder(PREFIX + "notifications")
+                .description("已提交写入的通知数").tags(tags).register(meterRegistry);
+        scanRetryCounter = Counter.builder(PREFIX + "retries")
+                .description("重试次数").tags(tags).tag("operation", "scan").register(meterRegistry);
+        notifyRetryCounter = Counter.builder(PREFIX + "retries")
+                .description("重试次数").tags(tags).tag("operation", "notify").register(meterRegistry);
+        deadLetterCounter = Counter.builder(PREFIX + "dead.letters")
+                .description("重试后仍失败写入死信的通知数").tags(tags).register(meterRegistry);
+
+        streamAckedCounter = Counter.builder(PREFIX + "stream.events")
+                .description("实时消费的点赞事件数").tags(tags).tag("outcome", "acked").register(meterRegistry);
+        streamFailedCounter = Counter.builder(PREFIX + "stream.events")
+                .description("实时消费的点赞事件数").tags(tags).tag("outcome", "failed").register(meterRegistry);
+
+        if (notifyWriteExecutor instanceof ThreadPoolTaskExecutor) {
+            ThreadPoolTaskExecutor executor = (ThreadPoolTaskExecutor) notifyWriteExecutor;
+            Gauge.builder(PREFIX + "executor.queue.depth", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                    .description("执行器等待队列长度").tags(tags).tag("executor", "notify-write").register(meterRegistry);
+        }
+        for (String stage : new String[]{"like-notify-read", "like-notify-enrich", "like-notify-write"}) {
+            Gauge.builder(PREFIX + "stage.queue.depth", stageQueueSizes, sizes -> queueSize(sizes, stage))
+                    .description("流水线阶段输入队列长度").tags(tags).tag("stage", stage).register(meterRegistry);
+        }
+    }
+
+    public void recordPageQuery(long latencyMs) {
+        pageQueryTimer.record(latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordOwnerLookup(long latencyMs) {
+        ownerLookupTimer.record(latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordNotifyCall(long latencyNanos, boolean success) {
+        (success ? notifySuccessTimer : notifyFailureTimer).record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 本进程内成功通知调用的平均耗时（毫秒），尚无调用时返回 -1
+     */
+    public double getNotifyCallMeanMs() {
+        return notifySuccessTimer.count() > 0 ? notifySuccessTimer.mean(TimeUnit.MILLISECONDS) : -1;
+    }
+
+    /**
+     * 记录一个批次的写入结果
+     *
+     * @param latencyMs     批次写入耗时
+     * @param relationCount 批次包含的关系行数
+     * @param notifyCount   批次提交的通知数
+     */
+    public void recordBatch(long latencyMs, int relationCount, int notifyCount, boolean success) {
+        batchWriteTimer.record(latencyMs, TimeUnit.MILLISECONDS);
+        (success ? batchSuccessCounter : batchFailureCounter).increment();
+        rowsCounter.increment(relationCount);
+        notificationsCounter.increment(notifyCount);
+    }
+
+    public void recordScanRetry() {
+        scanRetryCounter.increment();
+    }
+
+    /**
+     * 记录重试队列重新发送的通知数
+     */
+    public void recordNotifyRetry(int count) {
+        notifyRetryCounter.increment(count);
+    }
+
+    public void recordDeadLetters(int count) {
+        deadLetterCounter.increment(count);
+    }
+
+    /**
+     * 注册重试队列长度指标，Gauge 只弱引用状态对象，直接以队列本身作为状态对象
+     */
+    public void registerRetryQueue(Collection<?> queue) {
+        Gauge.builder(PREFIX + "retry.queue.depth", queue, Collection::size)
+                .description("等待重试的通知数").tags(tags).register(meterRegistry);
+    }
+
+    /**
+     * 记录一次实时消费微批次的确认和失败数
+     */
+    public void recordStreamFlush(int acked, int failed) {
+        streamAckedCounter.increment(acked);
+        streamFailedCounter.increment(failed);
+    }
+
+    /**
+     * 绑定流水线阶段的队列长度，阶段结束后解绑
+     */
+    public void bindStageQueue(String stage, IntSupplier queueSize) {
+        stageQueueSizes.put(stage, queueSize);
+    }
+
+    public void unbindStageQueues() {
+        stageQueueSizes.clear();
+    }
+
+    private static double queueSize(Map<String, IntSupplier> sizes, String stage) {
+        IntSupplier supplier = sizes.get(stage);
+        return supplier == null ? 0 : supplier.getAsInt();
+    }
+}
@@ -0,0 +1,242 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存调控器
+ * 基于 JMX 老年代内存池的使用阈值和 GC 通知判断堆压力，对读取端施加背压；
+ * 只根据 GC 后的存活占用做决策，自身从不触发 GC
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class MemoryGovernor {
+
+    /**
+     * 调控决策
+     */
+    public enum Decision {
+        /** 正常放行 */
+        PROCEED,
+        /** 减速放行 */
+        THROTTLE,
+        /** 暂停后放行 */
+        PAUSE
+    }
+
+    @Resource
+    private LikeNotifyProperties likeNotifyProperties;
+
+    private final Object gcSignal = new Object();
+    private final List<MemoryPoolMXBean> oldGenPools = new ArrayList<>();
+    private final List<Runnable> listenerCleanups = new ArrayList<>();
+
+    /**
+     * 最近一次 GC 之后的老年代占用比例，-1 表示尚未观察到 GC
+     */
+    private volatile double lastPostGcRatio = -1;
+    private volatile long lastPostGcTime = 0;
+    private volatile Decision lastDecision = Decision.PROCEED;
+    private volatile long lastDecisionTime = 0;
+
+    private final AtomicLong proceedCount = new AtomicLong(0);
+    private final AtomicLong throttleCount = new AtomicLong(0);
+    private final AtomicLong pauseCount = new AtomicLong(0);
+    private final AtomicLong pausedMillis = new AtomicLong(0);
+    private final AtomicLong gcNotificationCount = new AtomicLong(0);
+    private final AtomicLong thresholdExceededCount = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && isOldGenPool(pool.getName())) {
+                oldGenPools.add(pool);
+                if (pool.isCollectionUsageThresholdSupported()) {
+                    long max = maxOf(pool.getUsage());
+                    if (max > 0) {
+                        pool.setCollectionUsageThreshold((long) (max * likeNotifyProperties.getMemorySlowRatio()));
+                    }
+                }
+            }
+        }
+
+        NotificationListener thresholdListener = (notification, handback) -> {
+            if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                thresholdExceededCount.incrementAndGet();
+                log.warn("老年代GC后占用超过阈值，当前占用比例: {}", String.format("%.2f", currentRatio()));
+            }
+        };
+        register((NotificationEmitter) ManagementFactory.getMemoryMXBean(), thresholdListener);
+
+        NotificationListener gcListener = this::onGcNotification;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gcBean instanceof NotificationEmitter) {
+                register((NotificationEmitter) gcBean, gcListener);
+            }
+        }
+
+        log.info("内存调控器初始化完成，老年代内存池: {}, 减速阈值: {}, 暂停阈值: {}",
+                oldGenPools.size(), likeNotifyProperties.getMemorySlowRatio(), likeNotifyProperties.getMemoryPauseRatio());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        listenerCleanups.forEach(Runnable::run);
+        listenerCleanups.clear();
+    }
+
+    /**
+     * 在读取下一批数据前调用，根据老年代占用决定放行、减速或暂停
+     *
+     * @return 本次的调控决策
+     */
+    public Decision awaitHeadroom() throws InterruptedException {
+        double ratio = currentRatio();
+        Decision decision;
+
+        if (ratio >= likeNotifyProperties.getMemoryPauseRatio()) {
+            decision = Decision.PAUSE;
+            pauseCount.incrementAndGet();
+            long pauseStart = System.currentTimeMillis();
+            long deadline = pauseStart + likeNotifyProperties.getMemoryMaxPauseMs();
+            log.warn("老年代占用过高({})，暂停读取直到GC释放内存", String.format("%.2f", ratio));
+            synchronized (gcSignal) {
+                while (currentRatio() >= likeNotifyProperties.getMemorySlowRatio()) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        log.warn("内存暂停超过最大等待时间 {}ms，继续处理", likeNotifyProperties.getMemoryMaxPauseMs());
+                        break;
+                    }
+                    gcSignal.wait(Math.min(remaining, 1000));
+                }
+            }
+            pausedMillis.addAndGet(System.currentTimeMillis() - pauseStart);
+        } else if (ratio >= likeNotifyProperties.getMemorySlowRatio()) {
+            decision = Decision.THROTTLE;
+            throttleCount.incrementAndGet();
+            long delay = likeNotifyProperties.getMemoryThrottleDelayMs();
+            Thread.sleep(delay);
+            pausedMillis.addAndGet(delay);
+        } else {
+            decision = Decision.PROCEED;
+            proceedCount.incrementAndGet();
+        }
+
+        lastDecision = decision;
+        lastDecisionTime = System.currentTimeMillis();
+        return decision;
+    }
+
+    /**
+     * 当前老年代占用比例，优先使用最近一次 GC 之后的存活占用；
+     * 该采样早于一个最长暂停时间时改用当前占用，暂停的读取几乎不分配内存，下一次老年代 GC 可能很久才来，
+     * 一直沿用过期的高占用会让每个批次都暂停满最长等待时间
+     */
+    public double currentRatio() {
+        double postGc = lastPostGcRatio;
+        if (postGc >= 0 && System.currentTimeMillis() - lastPostGcTime <= likeNotifyProperties.getMemoryMaxPauseMs()) {
+            return postGc;
+        }
+        return usageRatio();
+    }
+
+    /**
+     * 获取调控状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("oldGenUsageRatio", usageRatio());
+        status.put("oldGenPostGcRatio", lastPostGcRatio);
+        status.put("oldGenPostGcTime", lastPostGcTime);
+        status.put("slowRatio", likeNotifyProperties.getMemorySlowRatio());
+        status.put("pauseRatio", likeNotifyProperties.getMemoryPauseRatio());
+        status.put("lastDecision", lastDecision.name());
+        status.put("lastDecisionTime", lastDecisionTime);
+        status.put("proceedCount", proceedCount.get());
+        status.put("throttleCount", throttleCount.get());
+        status.put("pauseCount", pauseCount.get());
+        status.put("pausedMillis", pausedMillis.get());
+        status.put("gcNotificationCount", gcNotificationCount.get());
+        status.put("thresholdExceededCount", thresholdExceededCount.get());
+        return status;
+    }
+
+    private void onGcNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        gcNotificationCount.incrementAndGet();
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        Map<String, MemoryUsage> afterGc = info.getGcInfo().getMemoryUsageAfterGc();
+
+        double maxRatio = -1;
+        for (MemoryPoolMXBean pool : oldGenPools) {
+            MemoryUsage usage = afterGc.get(pool.getName());
+            if (usage != null && maxOf(usage) > 0) {
+                maxRatio = Math.max(maxRatio, (double) usage.getUsed() / maxOf(usage));
+            }
+        }
+        if (maxRatio >= 0) {
+            lastPostGcTime = System.currentTimeMillis();
+            lastPostGcRatio = maxRatio;
+            synchronized (gcSignal) {
+                gcSignal.notifyAll();
+            }
+        }
+    }
+
+    private double usageRatio() {
+        double maxRatio = 0;
+        for (MemoryPoolMXBean pool : oldGenPools) {
+            MemoryUsage usage = pool.getUsage();
+            if (maxOf(usage) > 0) {
+                maxRatio = Math.max(maxRatio, (double) usage.getUsed() / maxOf(usage));
+            }
+        }
+        return maxRatio;
+    }
+
+    private long maxOf(MemoryUsage usage) {
+        return usage.getMax() > 0 ? usage.getMax() : Runtime.getRuntime().maxMemory();
+    }
+
+    private boolean isOldGenPool(String name) {
+        return name.contains("Old Gen") || name.contains("Tenured");
+    }
+
+    private void register(NotificationEmitter emitter, NotificationListener listener) {
+        emitter.addNotificationListener(listener, null, null);
+        listenerCleanups.add(() -> {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (ListenerNotFoundException e) {
+                log.debug("移除JMX监听器失败: {}", e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,114 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.infra.dal.content.entity.SocialRelation;
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已实时通知的关系记录
+ * 实时消费者写入成功后按点赞日期记录关系id，定时任务对账时跳过这些关系，避免重复通知
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class NotifiedRelationStore {
+
+    private static final String KEY_PREFIX = "community-job:notified:";
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd")
+            .withZone(ZoneId.systemDefault());
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private LikeNotifyProperties likeNotifyProperties;
+
+    /**
+     * 记录已通知的关系，没有关系id的忽略
+     */
+    public void markNotified(String jobName, Collection<SocialRelation> relations) {
+        Map<String, List<String>> idsByKey = new LinkedHashMap<>();
+        for (SocialRelation relation : relations) {
+            if (relation.getId() != null) {
+                long createTime = relation.getCreateTime() != null 
+                        ? relation.getCreateTime().getTime() : RelationColumns.NO_TIME;
+                idsByKey.computeIfAbsent(key(jobName, createTime), k -> new ArrayList<>())
+                        .add(String.valueOf(relation.getId()));
+            }
+        }
+        if (idsByKey.isEmpty()) {
+            return;
+        }
+
+        long ttlSeconds = TimeUnit.DAYS.toSeconds(likeNotifyProperties.getCheckpointTtlDays());
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            idsByKey.forEach((key, ids) -> {
+                stringConnection.sAdd(key, ids.toArray(new String[0]));
+                stringConnection.expire(key, ttlSeconds);
+            });
+            return null;
+        });
+    }
+
+    /**
+     * 查询已经实时通知过的关系id
+     */
+    public Set<Long> findNotified(String jobName, RelationColumns relations) {
+        int[] candidates = new int[relations.size()];
+        int candidateCount = 0;
+        for (int i = 0; i < relations.size(); i++) {
+            if (relations.getId(i) > 0) {
+                candidates[candidateCount++] = i;
+            }
+        }
+        if (candidateCount == 0) {
+            return new HashSet<>();
+        }
+
+        int count = candidateCount;
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (int i = 0; i < count; i++) {
+                int row = candidates[i];
+                stringConnection.sIsMember(key(jobName, relations.getCreateTime(row)), String.valueOf(relations.getId(row)));
+            }
+            return null;
+        });
+
+        Set<Long> notified = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            if (Boolean.TRUE.equals(results.get(i))) {
+                notified.add(relations.getId(candidates[i]));
+            }
+        }
+        return notified;
+    }
+
+    /**
+     * 按点赞日期分key，没有创建时间时按当天
+     */
+    private String key(String jobName, long createTime) {
+        Instant day = createTime != RelationColumns.NO_TIME ? Instant.ofEpochMilli(createTime) : Instant.now();
+        return KEY_PREFIX + jobName + ":" + DAY_FORMAT.format(day);
+    }
+}
@@ -0,0 +1,146 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.infra.entity.resp.BaseResponse;
+import com.hidreamai.community.infra.utils.GsonUtil;
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import com.hidreamai.community.notify.entity.request.MessageNotifyReq;
+import com.hidreamai.community.notify.service.MessageNotifyService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 批量通知写入器
+ * 按组提交通知请求，组内请求在写入执行器上流水线并发执行，返回逐条写入结果；
+ * 进行中的通知调用数由信号量限制，执行器为虚拟线程时并发不再受线程数约束；每次调用计入全局下游QPS预算
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class NotifyBatchWriter {
+
+    @Resource
+    private MessageNotifyService messageNotifyService;
+
+    @Resource
+    private LikeNotifyProperties likeNotifyProperties;
+
+    @Resource
+    @Qualifier("notifyWriteExecutor")
+    private Executor notifyWriteExecutor;
+
+    @Resource
+    private LikeNotifyMetrics likeNotifyMetrics;
+
+    @Resource
+    private ResourceBudget resourceBudget;
+
+    private Semaphore notifyPermits;
+
+    @PostConstruct
+    public void init() {
+        notifyPermits = new Semaphore(Math.max(1, likeNotifyProperties.getNotifyMaxInFlight()));
+    }
+
+    /**
+     * 批量写入通知
+     *
+     * @param requests 通知请求列表
+     * @return 逐条写入结果，线程被中断时剩余请求保持未写入状态
+     */
+    public NotifyWriteResult writeAll(List<MessageNotifyReq> requests) {
+        NotifyWriteResult result = new NotifyWriteResult(requests);
+        int groupSize = Math.max(1, likeNotifyProperties.getNotifyGroupSize());
+        long flushIntervalMs = likeNotifyProperties.getNotifyFlushIntervalMs();
+        long lastFlushTime = 0;
+
+        for (int start = 0; start < requests.size(); start += groupSize) {
+            if (Thread.currentThread().isInterrupted()) {
+                log.debug("写入线程被中断，停止提交剩余通知");
+                break;
+            }
+
+            long waitMs = lastFlushTime + flushIntervalMs - System.currentTimeMillis();
+            if (lastFlushTime > 0 && waitMs > 0) {
+                try {
+                    Thread.sleep(waitMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            int end = Math.min(start + groupSize, requests.size());
+            CompletableFuture<?>[] group = new CompletableFuture<?>[end - start];
+            for (int i = start; i < end; i++) {
+                final int index = i;
+                group[i - start] = CompletableFuture.runAsync(
+                        () -> writeOne(requests.get(index), index, result), notifyWriteExecutor);
+            }
+            CompletableFuture.allOf(group).join();
+            lastFlushTime = System.currentTimeMillis();
+        }
+        return result;
+    }
+
+    private void writeOne(MessageNotifyReq req, int index, NotifyWriteResult result) {
+        try {
+            resourceBudget.acquireDownstream(1);
+            notifyPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long callStart = System.nanoTime();
+        boolean success = false;
+        try {
+            BaseResponse<Boolean> response = messageNotifyService.notify(req);
+            if (response != null && response.respIsSuccess() && Boolean.TRUE.equals(response.getData())) {
+                result.markSuccess(index);
+                success = true;
+            } else {
+                result.markFailed(index);
+                if (log.isWarnEnabled()) {
+                    log.warn("通知发送失败，req: {}", GsonUtil.toJson(req));
+                }
+            }
+        } catch (Exception e) {
+            result.markFailed(index);
+            if (log.isErrorEnabled()) {
+                log.error("通知发送异常，req: {}", GsonUtil.toJson(req), e);
+            }
+        } finally {
+            notifyPermits.release();
+            likeNotifyMetrics.recordNotifyCall(System.nanoTime() - callStart, success);
+        }
+    }
+
+    /**
+     * 按当前配置同时进行中的通知调用数上限：同时写入的批次数 x 组大小，受进行中调用上限和平台线程池线程数约束
+     */
+    public int getMaxConcurrency() {
+        int limit = Math.max(1, likeNotifyProperties.getPipelineWriteThreads())
+                * Math.max(1, likeNotifyProperties.getNotifyGroupSize());
+        limit = Math.min(limit, Math.max(1, likeNotifyProperties.getNotifyMaxInFlight()));
+        if (notifyWriteExecutor instanceof ThreadPoolTaskExecutor) {
+            limit = Math.min(limit, ((ThreadPoolTaskExecutor) notifyWriteExecutor).getMaxPoolSize());
+        }
+        return limit;
+    }
+
+    /**
+     * 当前进行中的通知调用数
+     */
+    public int getInFlightCount() {
+        return Math.max(1, likeNotifyProperties.getNotifyMaxInFlight()) - notifyPermits.availablePermits();
+    }
+}
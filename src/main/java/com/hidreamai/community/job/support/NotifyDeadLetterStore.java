@@ -0,0 +1,227 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.dal.notify.dao.NotifyDeadLetterDao;
+import com.hidreamai.community.job.dal.notify.entity.NotifyDeadLetter;
+import com.hidreamai.community.notify.entity.request.MessageNotifyReq;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 通知死信存储
+ * 首次发送失败的通知先写入 job_notify_dead_letter 并标记为重试中，重试队列只持有其内存副本，进程异常退出也不会丢失；
+ * 多次重试仍失败或进程退出时遗留的通知转为待重放，由管理员重放；
+ * 重放先按id顺序认领一批死信再发送，多个节点同时重放也不会重复发送同一条
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class NotifyDeadLetterStore {
+
+    /**
+     * 重放中的死信超过该时间未更新视为上次重放中断，可重新认领
+     */
+    private static final long REPLAY_STALE_MS = 10 * 60 * 1000L;
+
+    private static final int MAX_ERROR_LENGTH = 512;
+
+    @Resource
+    private NotifyDeadLetterDao notifyDeadLetterDao;
+
+    @Resource
+    private NotifyBatchWriter notifyBatchWriter;
+
+    /**
+     * 把首次发送失败的通知写入为重试中，写入成功后才可交给内存重试队列
+     *
+     * @return 与 requests 一一对应的行id，写入失败时返回 null
+     */
+    public List<Long> saveRetrying(String jobName, List<MessageNotifyReq> requests) {
+        List<NotifyDeadLetter> rows = toDeadLetters(jobName, requests, 1, NotifyDeadLetter.STATUS_RETRYING, "首次发送失败");
+        try {
+            if (!rows.isEmpty()) {
+                notifyDeadLetterDao.batchInsert(rows);
+            }
+        } catch (Exception e) {
+            log.error("写入重试中通知失败，任务: {}, 条数: {}, 错误: {}", jobName, requests.size(), e.getMessage());
+            return null;
+        }
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (NotifyDeadLetter row : rows) {
+            ids.add(row.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * 重试中的通知再次重发失败，持久化尝试次数
+     */
+    public void markRetried(List<Long> ids) {
+        try {
+            notifyDeadLetterDao.markRetried(ids);
+        } catch (Exception e) {
+            log.warn("更新重试中通知失败，条数: {}, 错误: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 删除已重发成功的重试中通知；删除失败时这些行超时后会转为待重放，重放时可能重复发送
+     */
+    public void removeRetrying(List<Long> ids) {
+        try {
+            notifyDeadLetterDao.deleteRetrying(ids);
+        } catch (Exception e) {
+            log.warn("删除已重发成功的通知失败，条数: {}, 错误: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 重试中的通知转为待重放
+     *
+     * @return 是否更新成功，失败时这些行保持重试中，超时后由 {@link #recoverRetrying} 转为待重放
+     */
+    public boolean markPending(List<Long> ids, String lastError) {
+        try {
+            notifyDeadLetterDao.markPending(ids, truncate(lastError));
+            return true;
+        } catch (Exception e) {
+            log.error("通知转为死信失败，条数: {}, 错误: {}", ids.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 超过 staleMs 未更新的重试中通知属于已退出的进程，转为待重放
+     *
+     * @return 转换的条数
+     */
+    public int recoverRetrying(long staleMs) {
+        try {
+            return notifyDeadLetterDao.recoverRetrying(new Date(System.currentTimeMillis() - staleMs), 
+                    "进程退出时仍在重试队列中");
+        } catch (Exception e) {
+            log.warn("回收遗留的重试中通知失败，错误: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * 重放一批待重放的死信，成功的标记为已重放，失败的回到待重放状态
+     *
+     * @param limit 最大重放条数
+     */
+    public Map<String, Object> replay(String jobName, int limit) {
+        String claimToken = UUID.randomUUID().toString();
+        Date staleBefore = new Date(System.currentTimeMillis() - REPLAY_STALE_MS);
+        int claimed = notifyDeadLetterDao.claim(jobName, claimToken, staleBefore, limit);
+        List<NotifyDeadLetter> deadLetters = claimed > 0
+                ? notifyDeadLetterDao.listByClaimToken(claimToken) : new ArrayList<>();
+
+        List<MessageNotifyReq> requests = new ArrayList<>(deadLetters.size());
+        for (NotifyDeadLetter deadLetter : deadLetters) {
+            requests.add(toRequest(deadLetter));
+        }
+        NotifyWriteResult result = notifyBatchWriter.writeAll(requests);
+        List<Long> replayed = new ArrayList<>();
+        List<Long> failed = new ArrayList<>();
+        for (int i = 0; i < deadLetters.size(); i++) {
+            (result.isSuccess(i) ? replayed : failed).add(deadLetters.get(i).getId());
+        }
+        if (!replayed.isEmpty()) {
+            notifyDeadLetterDao.markReplayed(replayed);
+        }
+        if (!failed.isEmpty()) {
+            notifyDeadLetterDao.release(failed, "重放失败");
+        }
+        log.info("重放通知死信完成，任务: {}, 认领: {}, 成功: {}, 失败: {}", jobName, deadLetters.size(),
+                replayed.size(), failed.size());
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("claimed", deadLetters.size());
+        summary.put("replayed", replayed.size());
+        summary.put("failed", failed.size());
+        summary.put("pending", countPending(jobName));
+        return summary;
+    }
+
+    /**
+     * 按id倒序查询死信
+     *
+     * @param status 状态，为空时不限
+     */
+    public List<NotifyDeadLetter> listRecent(String jobName, String status, int limit) {
+        return notifyDeadLetterDao.listRecent(jobName, status, limit);
+    }
+
+    public long countPending(String jobName) {
+        return notifyDeadLetterDao.countByStatus(jobName, NotifyDeadLetter.STATUS_PENDING);
+    }
+
+    private List<NotifyDeadLetter> toDeadLetters(String jobName, List<MessageNotifyReq> requests, int attempts, 
+                                                 String status, String lastError) {
+        String error = truncate(lastError);
+        List<NotifyDeadLetter> deadLetters = new ArrayList<>(requests.size());
+        for (MessageNotifyReq request : requests) {
+            NotifyDeadLetter deadLetter = toDeadLetter(request);
+            deadLetter.setJobName(jobName);
+            deadLetter.setAttempts(attempts);
+            deadLetter.setStatus(status);
+            deadLetter.setLastError(error);
+            deadLetters.add(deadLetter);
+        }
+        return deadLetters;
+    }
+
+    private static String truncate(String lastError) {
+        return lastError != null && lastError.length() > MAX_ERROR_LENGTH
+                ? lastError.substring(0, MAX_ERROR_LENGTH) : lastError;
+    }
+
+    private NotifyDeadLetter toDeadLetter(MessageNotifyReq request) {
+        NotifyDeadLetter deadLetter = new NotifyDeadLetter();
+        deadLetter.setUserId(request.getUserId());
+        deadLetter.setRelateUserId(request.getRelateUserId());
+        deadLetter.setRelateType(request.getRelateType());
+        deadLetter.setContentId(request.getContentId());
+        deadLetter.setNotifyTime(request.getNotifyTime());
+        if (request instanceof AggregatedNotifyReq) {
+            AggregatedNotifyReq aggregated = (AggregatedNotifyReq) request;
+            deadLetter.setAggregateCount(aggregated.getAggregateCount());
+            if (aggregated.getRecentRelateUserIds() != null) {
+                deadLetter.setRecentRelateUserIds(String.join(",", aggregated.getRecentRelateUserIds()));
+            }
+            deadLetter.setFirstNotifyTime(aggregated.getFirstNotifyTime());
+        }
+        return deadLetter;
+    }
+
+    private MessageNotifyReq toRequest(NotifyDeadLetter deadLetter) {
+        MessageNotifyReq request;
+        if (deadLetter.getAggregateCount() != null) {
+            AggregatedNotifyReq aggregated = new AggregatedNotifyReq();
+            aggregated.setAggregateCount(deadLetter.getAggregateCount());
+            if (deadLetter.getRecentRelateUserIds() != null && !deadLetter.getRecentRelateUserIds().isEmpty()) {
+                aggregated.setRecentRelateUserIds(new ArrayList<>(Arrays.asList(deadLetter.getRecentRelateUserIds().split(","))));
+            }
+            aggregated.setFirstNotifyTime(deadLetter.getFirstNotifyTime());
+            request = aggregated;
+        } else {
+            request = new MessageNotifyReq();
+        }
+        request.setUserId(deadLetter.getUserId());
+        request.setRelateUserId(deadLetter.getRelateUserId());
+        request.setRelateType(deadLetter.getRelateType());
+        request.setContentId(deadLetter.getContentId());
+        request.setNotifyTime(deadLetter.getNotifyTime());
+        return request;
+    }
+}
@@ -0,0 +1,289 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import com.hidreamai.community.notify.entity.request.MessageNotifyReq;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 通知重试队列
+ * 写入批次只把发送失败的单条通知交给队列后立即返回，已成功的通知不会重发；
+ * 失败通知先在死信表中写入为重试中再入队，写入失败时批次按失败处理，进程异常退出后由其他节点的巡检转为待重放；
+ * 队列按指数退避加随机抖动安排每条通知的下次发送，到期的通知由单独的线程分组重发，重发成功后删除对应行，
+ * 超过最大尝试次数、队列已满或应用关闭时仍未成功的通知转为待重放
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class NotifyRetryQueue {
+
+    private static final long STOP_TIMEOUT_MS = 5000;
+
+    /**
+     * 巡检进程退出时遗留的重试中通知的间隔
+     */
+    private static final long RECOVER_INTERVAL_MS = 60 * 1000L;
+
+    /**
+     * 重试中的通知超过该时间未更新视为所在进程已退出，实际取值不小于最大退避时间的两倍
+     */
+    private static final long RETRYING_STALE_MS = 10 * 60 * 1000L;
+
+    @Resource
+    private NotifyBatchWriter notifyBatchWriter;
+
+    @Resource
+    private NotifyDeadLetterStore notifyDeadLetterStore;
+
+    @Resource
+    private LikeNotifyMetrics likeNotifyMetrics;
+
+    @Resource
+    private LikeNotifyProperties likeNotifyProperties;
+
+    private final DelayQueue<RetryItem> queue = new DelayQueue<>();
+    private volatile boolean running = false;
+    private Thread worker;
+    private long lastRecoverTime = 0;
+
+    private final AtomicLong submittedCount = new AtomicLong(0);
+    private final AtomicLong retriedCount = new AtomicLong(0);
+    private final AtomicLong recoveredCount = new AtomicLong(0);
+    private final AtomicLong deadLetterCount = new AtomicLong(0);
+
+    @PostConstruct
+    public void start() {
+        likeNotifyMetrics.registerRetryQueue(queue);
+        running = true;
+        worker = new Thread(this::retryLoop, "notify-retry");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 停止重发线程，队列中剩余的通知转为待重放
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(STOP_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<RetryItem> remaining = new ArrayList<>(queue);
+        queue.clear();
+        if (!remaining.isEmpty()) {
+            log.warn("应用关闭，重试队列中 {} 条通知转为待重放", remaining.size());
+            deadLetter(remaining, "应用关闭时仍在重试队列中");
+        }
+    }
+
+    /**
+     * 提交发送失败的通知，先持久化为重试中再入队，不等待重发
+     *
+     * @param jobName  任务名，写入死信时使用
+     * @param requests 已发送一次且失败的通知
+     * @return 是否已持久化；返回 false 时调用方应按失败处理，不能越过这些通知推进进度
+     */
+    public boolean submit(String jobName, List<MessageNotifyReq> requests) {
+        List<Long> ids = notifyDeadLetterStore.saveRetrying(jobName, requests);
+        if (ids == null) {
+            return false;
+        }
+        int capacity = Math.max(1, likeNotifyProperties.getNotifyRetryQueueCapacity());
+        List<RetryItem> overflow = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            RetryItem item = new RetryItem(ids.get(i), requests.get(i));
+            item.attempts = 1;
+            if (!running || queue.size() >= capacity) {
+                overflow.add(item);
+                continue;
+            }
+            schedule(item);
+        }
+        submittedCount.addAndGet(requests.size() - overflow.size());
+        if (!overflow.isEmpty()) {
+            log.warn("重试队列已满或已停止，{} 条失败通知直接转为待重放，任务: {}", overflow.size(), jobName);
+            deadLetter(overflow, "重试队列已满");
+        }
+        return true;
+    }
+
+    private void retryLoop() {
+        while (running) {
+            recoverIfDue();
+            List<RetryItem> due = new ArrayList<>();
+            try {
+                RetryItem head = queue.poll(RECOVER_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (head == null) {
+                    continue;
+                }
+                due.add(head);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            queue.drainTo(due, Math.max(1, likeNotifyProperties.getNotifyGroupSize()) - 1);
+            try {
+                resend(due);
+            } catch (Exception e) {
+                log.error("重发通知异常，{} 条通知重新排队，错误: {}", due.size(), e.getMessage());
+                due.forEach(this::schedule);
+            }
+        }
+    }
+
+    private void resend(List<RetryItem> due) {
+        List<MessageNotifyReq> requests = new ArrayList<>(due.size());
+        for (RetryItem item : due) {
+            requests.add(item.request);
+        }
+        NotifyWriteResult result = notifyBatchWriter.writeAll(requests);
+
+        int maxAttempts = Math.max(1, likeNotifyProperties.getNotifyRetryMaxAttempts());
+        int sent = 0;
+        List<Long> recovered = new ArrayList<>();
+        List<Long> retried = new ArrayList<>();
+        List<RetryItem> exhausted = new ArrayList<>();
+        for (int i = 0; i < due.size(); i++) {
+            RetryItem item = due.get(i);
+            if (result.isSuccess(i)) {
+                sent++;
+                recovered.add(item.id);
+                continue;
+            }
+            if (!result.isFailed(i)) {
+                // 线程被中断未发送，不计入尝试次数
+                schedule(item);
+                continue;
+            }
+            sent++;
+            item.attempts++;
+            retried.add(item.id);
+            if (item.attempts >= maxAttempts) {
+                exhausted.add(item);
+            } else {
+                schedule(item);
+            }
+        }
+        if (!recovered.isEmpty()) {
+            notifyDeadLetterStore.removeRetrying(recovered);
+        }
+        if (!retried.isEmpty()) {
+            notifyDeadLetterStore.markRetried(retried);
+        }
+        retriedCount.addAndGet(sent);
+        recoveredCount.addAndGet(recovered.size());
+        likeNotifyMetrics.recordNotifyRetry(sent);
+        if (!exhausted.isEmpty()) {
+            log.warn("{} 条通知重试{}次后仍失败，转为待重放", exhausted.size(), maxAttempts);
+            deadLetter(exhausted, "重试" + maxAttempts + "次后仍失败");
+        }
+        log.debug("重发通知完成，发送: {}, 成功: {}, 转为待重放: {}", sent, recovered.size(), exhausted.size());
+    }
+
+    /**
+     * 重试中的通知转为待重放；更新失败时这些行保持重试中，超时后由巡检转为待重放，不会丢失
+     */
+    private void deadLetter(List<RetryItem> items, String reason) {
+        List<Long> ids = new ArrayList<>(items.size());
+        for (RetryItem item : items) {
+            ids.add(item.id);
+        }
+        if (notifyDeadLetterStore.markPending(ids, reason)) {
+            deadLetterCount.addAndGet(items.size());
+            likeNotifyMetrics.recordDeadLetters(items.size());
+        }
+    }
+
+    /**
+     * 定期把进程退出时遗留的重试中通知转为待重放
+     */
+    private void recoverIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastRecoverTime < RECOVER_INTERVAL_MS) {
+            return;
+        }
+        lastRecoverTime = now;
+        int recovered = notifyDeadLetterStore.recoverRetrying(Math.max(RETRYING_STALE_MS, maxDelayMs() * 2));
+        if (recovered > 0) {
+            log.warn("{} 条进程退出时遗留的重试中通知转为待重放", recovered);
+            likeNotifyMetrics.recordDeadLetters(recovered);
+        }
+    }
+
+    private void schedule(RetryItem item) {
+        item.dueAt = System.currentTimeMillis() + backoffMs(item.attempts);
+        queue.add(item);
+    }
+
+    /**
+     * 第 attempts 次失败后的等待时间：基础延迟按失败次数翻倍，不超过最大延迟；
+     * 一半固定一半随机，同一时刻失败的大量通知错开重发，避免下游恢复时被集中冲击
+     */
+    private long backoffMs(int attempts) {
+        long base = Math.max(1, likeNotifyProperties.getNotifyRetryBaseDelayMs());
+        long backoff = Math.min(maxDelayMs(), base << Math.min(Math.max(0, attempts - 1), 20));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    private long maxDelayMs() {
+        return Math.max(Math.max(1, likeNotifyProperties.getNotifyRetryBaseDelayMs()),
+                likeNotifyProperties.getNotifyRetryMaxDelayMs());
+    }
+
+    /**
+     * 获取重试队列状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("queued", queue.size());
+        status.put("submitted", submittedCount.get());
+        status.put("retried", retriedCount.get());
+        status.put("recovered", recoveredCount.get());
+        status.put("deadLettered", deadLetterCount.get());
+        status.put("maxAttempts", likeNotifyProperties.getNotifyRetryMaxAttempts());
+        return status;
+    }
+
+    private static final class RetryItem implements Delayed {
+
+        private final long id;
+        private final MessageNotifyReq request;
+        private int attempts;
+        private long dueAt;
+
+        private RetryItem(long id, MessageNotifyReq request) {
+            this.id = id;
+            this.request = request;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAt, ((RetryItem) other).dueAt);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.notify.entity.request.MessageNotifyReq;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量通知写入结果，按请求下标记录每一条的写入状态
+ *
+ * @author hidream
+ */
+public class NotifyWriteResult {
+
+    private static final byte PENDING = 0;
+    private static final byte SUCCESS = 1;
+    private static final byte FAILED = 2;
+
+    private final List<MessageNotifyReq> requests;
+    private final byte[] states;
+
+    public NotifyWriteResult(List<MessageNotifyReq> requests) {
+        this.requests = requests;
+        this.states = new byte[requests.size()];
+    }
+
+    void markSuccess(int index) {
+        states[index] = SUCCESS;
+    }
+
+    void markFailed(int index) {
+        states[index] = FAILED;
+    }
+
+    public boolean isSuccess(int index) {
+        return states[index] == SUCCESS;
+    }
+
+    /**
+     * 是否已发送且失败，未写入的请求返回 false
+     */
+    public boolean isFailed(int index) {
+        return states[index] == FAILED;
+    }
+
+    public int size() {
+        return states.length;
+    }
+
+    public int getSuccessCount() {
+        return count(SUCCESS);
+    }
+
+    public int getFailedCount() {
+        return count(FAILED);
+    }
+
+    /**
+     * 未写入的数量（如任务关闭时中止）
+     */
+    public int getSkippedCount() {
+        return count(PENDING);
+    }
+
+    /**
+     * 是否全部写入成功
+     */
+    public boolean isAllSuccess() {
+        return getSuccessCount() == states.length;
+    }
+
+    /**
+     * 获取已发送且失败的请求
+     */
+    public List<MessageNotifyReq> getFailedRequests() {
+        List<MessageNotifyReq> failed = new ArrayList<>();
+        for (int i = 0; i < states.length; i++) {
+            if (states[i] == FAILED) {
+                failed.add(requests.get(i));
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * 获取写入失败或未写入的请求
+     */
+    public List<MessageNotifyReq> getUnsuccessfulRequests() {
+        List<MessageNotifyReq> unsuccessful = new ArrayList<>();
+        for (int i = 0; i < states.length; i++) {
+            if (states[i] != SUCCESS) {
+                unsuccessful.add(requests.get(i));
+            }
+        }
+        return unsuccessful;
+    }
+
+    private int count(byte state) {
+        int count = 0;
+        for (byte s : states) {
+            if (s == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,221 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.ReplicaDataSourceProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 读写路由数据源
+ * 在 {@link #readFromReplica} 内获取的连接来自只读副本，其余连接来自主库；
+ * 副本未启用、健康检查失败、复制延迟超过 max-lag-seconds 或获取连接失败时回退到主库。
+ * 路由在获取连接时决定，已绑定连接的事务内不切换
+ *
+ * @author hidream
+ */
+@Slf4j
+public class ReadRoutingDataSource extends AbstractDataSource implements InitializingBean, DisposableBean {
+
+    private static final ThreadLocal<Boolean> REPLICA_READ = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaDataSourceProperties properties;
+
+    private final ScheduledExecutorService healthCheckExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "replica-health-check");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean replicaHealthy = false;
+    private volatile Long replicaLagSeconds;
+    private volatile long lastCheckTime = 0;
+    private volatile String lastError;
+
+    private final AtomicLong replicaConnections = new AtomicLong(0);
+    private final AtomicLong primaryFallbacks = new AtomicLong(0);
+
+    public ReadRoutingDataSource(DataSource primary, DataSource replica, ReplicaDataSourceProperties properties) {
+        this.primary = primary;
+        this.replica = replica;
+        this.properties = properties;
+    }
+
+    /**
+     * 在只读副本上执行查询，查询内获取的连接路由到副本；可嵌套
+     */
+    public static <R> R readFromReplica(Supplier<R> query) {
+        Boolean previous = REPLICA_READ.get();
+        REPLICA_READ.set(Boolean.TRUE);
+        try {
+            return query.get();
+        } finally {
+            if (previous == null) {
+                REPLICA_READ.remove();
+            } else {
+                REPLICA_READ.set(previous);
+            }
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (replica == null) {
+            return;
+        }
+        checkReplica();
+        long interval = Math.max(1000, properties.getHealthCheckIntervalMs());
+        healthCheckExecutor.scheduleWithFixedDelay(this::checkReplica, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("只读副本路由已启用，副本状态: {}, 复制延迟: {}s", replicaHealthy ? "正常" : "不可用", replicaLagSeconds);
+    }
+
+    @Override
+    public void destroy() {
+        healthCheckExecutor.shutdownNow();
+        if (replica instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) replica).close();
+            } catch (Exception e) {
+                log.warn("关闭只读副本连接池失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!shouldReadFromReplica()) {
+            return primary.getConnection();
+        }
+        try {
+            Connection connection = replica.getConnection();
+            replicaConnections.incrementAndGet();
+            return connection;
+        } catch (SQLException e) {
+            markUnhealthy("获取副本连接失败: " + e.getMessage());
+            log.warn("获取只读副本连接失败，回退到主库: {}", e.getMessage());
+            primaryFallbacks.incrementAndGet();
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    private boolean shouldReadFromReplica() {
+        if (replica == null || !Boolean.TRUE.equals(REPLICA_READ.get())) {
+            return false;
+        }
+        if (!replicaHealthy) {
+            primaryFallbacks.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 检查副本是否可用及复制延迟；副本上没有复制状态（如直接指向主库）时视为无延迟
+     */
+    private void checkReplica() {
+        lastCheckTime = System.currentTimeMillis();
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            Long lag = queryReplicaLagSeconds(statement);
+            replicaLagSeconds = lag;
+            if (lag == null) {
+                markUnhealthy("复制线程未运行");
+            } else if (lag > properties.getMaxLagSeconds()) {
+                markUnhealthy("复制延迟 " + lag + "s 超过 " + properties.getMaxLagSeconds() + "s");
+            } else {
+                if (!replicaHealthy) {
+                    log.info("只读副本恢复可用，复制延迟: {}s", lag);
+                }
+                replicaHealthy = true;
+                lastError = null;
+            }
+        } catch (Exception e) {
+            markUnhealthy("健康检查失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查询复制延迟秒数，复制线程未运行时返回 null
+     */
+    static Long queryReplicaLagSeconds(Statement statement) throws SQLException {
+        ResultSet rows;
+        String lagColumn;
+        try {
+            rows = statement.executeQuery("SHOW REPLICA STATUS");
+            lagColumn = "Seconds_Behind_Source";
+        } catch (SQLException e) {
+            // MySQL 8.0.22 之前的版本
+            rows = statement.executeQuery("SHOW SLAVE STATUS");
+            lagColumn = "Seconds_Behind_Master";
+        }
+        try (ResultSet status = rows) {
+            if (!status.next()) {
+                return 0L;
+            }
+            long lag = status.getLong(lagColumn);
+            return status.wasNull() ? null : lag;
+        }
+    }
+
+    private void markUnhealthy(String reason) {
+        if (replicaHealthy) {
+            log.warn("只读副本不可用，读取回退到主库: {}", reason);
+        }
+        replicaHealthy = false;
+        lastError = reason;
+    }
+
+    public boolean isReplicaEnabled() {
+        return replica != null;
+    }
+
+    /**
+     * 当前是否把副本读取路由到副本
+     */
+    public boolean isReplicaAvailable() {
+        return replica != null && replicaHealthy;
+    }
+
+    /**
+     * 最近一次检查到的复制延迟秒数，未启用副本或复制线程未运行时为 null
+     */
+    public Long getReplicaLagSeconds() {
+        return replicaLagSeconds;
+    }
+
+    /**
+     * 获取路由状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("replicaEnabled", isReplicaEnabled());
+        status.put("replicaHealthy", isReplicaAvailable());
+        status.put("replicaLagSeconds", replicaLagSeconds);
+        status.put("maxLagSeconds", properties.getMaxLagSeconds());
+        status.put("lastCheckTime", lastCheckTime);
+        status.put("lastError", lastError);
+        status.put("replicaConnections", replicaConnections.get());
+        status.put("primaryFallbacks", primaryFallbacks.get());
+        return status;
+    }
+}
@@ -0,0 +1,165 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.infra.dal.content.entity.SocialRelation;
+import com.hidreamai.community.job.dal.relation.entity.LikeNotifyRelation;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 列式的关系批次
+ * 读取时把每行的 id、点赞用户、内容和创建时间拆到数组中，实体在映射后即可回收；
+ * 补全阶段在原数组上填充内容所有者并压缩掉被过滤的行，通知请求对象只在写入前构建
+ *
+ * @author hidream
+ */
+public class RelationColumns {
+
+    /**
+     * 没有创建时间
+     */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private long[] ids;
+    private String[] sourceIds;
+    private String[] targetIds;
+    private String[] ownerIds;
+    private long[] createTimes;
+    private int size;
+
+    public RelationColumns(int capacity) {
+        int initial = Math.max(1, capacity);
+        ids = new long[initial];
+        sourceIds = new String[initial];
+        targetIds = new String[initial];
+        ownerIds = new String[initial];
+        createTimes = new long[initial];
+    }
+
+    public static RelationColumns of(List<SocialRelation> relations) {
+        RelationColumns columns = new RelationColumns(relations.size());
+        for (SocialRelation relation : relations) {
+            columns.add(relation);
+        }
+        return columns;
+    }
+
+    /**
+     * 逐行追加查询结果的结果处理器，配合 {@code ResultHandler} 形式的查询使用
+     */
+    public ResultHandler<SocialRelation> appender() {
+        return context -> add(context.getResultObject());
+    }
+
+    /**
+     * 逐行追加已在库内关联出内容所有者的查询结果，所有者随行一起填充
+     */
+    public ResultHandler<LikeNotifyRelation> ownerAppender() {
+        return context -> {
+            LikeNotifyRelation relation = context.getResultObject();
+            add(relation.getId() == null ? 0L : relation.getId(), relation.getSourceId(), relation.getTargetId(),
+                    relation.getCreateTime() == null ? NO_TIME : relation.getCreateTime().getTime());
+            ownerIds[size - 1] = relation.getOwnerId();
+        };
+    }
+
+    /**
+     * 追加一行，没有id时记为0
+     */
+    public void add(SocialRelation relation) {
+        if (relation == null) {
+            add(0L, null, null, NO_TIME);
+            return;
+        }
+        add(relation.getId() == null ? 0L : relation.getId(), relation.getSourceId(), relation.getTargetId(),
+                relation.getCreateTime() == null ? NO_TIME : relation.getCreateTime().getTime());
+    }
+
+    public void add(long id, String sourceId, String targetId, long createTime) {
+        if (size == ids.length) {
+            grow();
+        }
+        ids[size] = id;
+        sourceIds[size] = sourceId;
+        targetIds[size] = targetId;
+        ownerIds[size] = null;
+        createTimes[size] = createTime;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        sourceIds = Arrays.copyOf(sourceIds, capacity);
+        targetIds = Arrays.copyOf(targetIds, capacity);
+        ownerIds = Arrays.copyOf(ownerIds, capacity);
+        createTimes = Arrays.copyOf(createTimes, capacity);
+    }
+
+    /**
+     * 保留 keep 为 true 的行，原地压缩并保持顺序
+     *
+     * @param keep 长度不小于 {@link #size()} 的保留标记
+     */
+    public void retain(boolean[] keep) {
+        int target = 0;
+        for (int i = 0; i < size; i++) {
+            if (!keep[i]) {
+                continue;
+            }
+            if (target != i) {
+                ids[target] = ids[i];
+                sourceIds[target] = sourceIds[i];
+                targetIds[target] = targetIds[i];
+                ownerIds[target] = ownerIds[i];
+                createTimes[target] = createTimes[i];
+            }
+            target++;
+        }
+        Arrays.fill(sourceIds, target, size, null);
+        Arrays.fill(targetIds, target, size, null);
+        Arrays.fill(ownerIds, target, size, null);
+        size = target;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public String getSourceId(int index) {
+        return sourceIds[index];
+    }
+
+    public String getTargetId(int index) {
+        return targetIds[index];
+    }
+
+    public String getOwnerId(int index) {
+        return ownerIds[index];
+    }
+
+    public void setOwnerId(int index, String ownerId) {
+        ownerIds[index] = ownerId;
+    }
+
+    public long getCreateTime(int index) {
+        return createTimes[index];
+    }
+
+    public long firstId() {
+        return ids[0];
+    }
+
+    public long lastId() {
+        return ids[size - 1];
+    }
+}
@@ -0,0 +1,205 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.BatchEngineProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全局资源预算
+ * 所有同时运行的批处理任务共享数据库连接数、下游QPS和堆内存三项预算，
+ * 新增任务只会分摊已有预算，不会成倍增加 MySQL 和下游服务的负载；
+ * 下游QPS按服务分别限流（通知写入、内容查询代理），速率可通过管理接口在运行中调整，只对本节点生效
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class ResourceBudget {
+
+    @Resource
+    private BatchEngineProperties batchEngineProperties;
+
+    @Resource
+    private MemoryGovernor memoryGovernor;
+
+    @Resource
+    private DbHealthGovernor dbHealthGovernor;
+
+    public static final String LIMIT_NOTIFY = "notify";
+    public static final String LIMIT_CONTENT_QUERY = "content-query";
+
+    private Semaphore dbPermits;
+    private Semaphore streamPermits;
+    private int maxStreams;
+    private TokenBucketLimiter downstreamLimiter;
+    private TokenBucketLimiter contentQueryLimiter;
+    private final Map<String, TokenBucketLimiter> rateLimiters = new LinkedHashMap<>();
+
+    private final AtomicLong dbWaitMillis = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        dbPermits = new Semaphore(Math.max(1, batchEngineProperties.getMaxDbConnections()), true);
+        maxStreams = Math.max(1, batchEngineProperties.getMaxDbConnections()) - 1;
+        streamPermits = new Semaphore(maxStreams, true);
+        if (maxStreams == 0) {
+            log.warn("数据库连接预算只有1个，流式查询将改为分页查询");
+        }
+        downstreamLimiter = new TokenBucketLimiter(batchEngineProperties.getDownstreamQps());
+        contentQueryLimiter = new TokenBucketLimiter(batchEngineProperties.getContentQueryQps());
+        rateLimiters.put(LIMIT_NOTIFY, downstreamLimiter);
+        rateLimiters.put(LIMIT_CONTENT_QUERY, contentQueryLimiter);
+        log.info("全局资源预算初始化完成，数据库连接: {}, 通知QPS: {}, 内容查询QPS: {}",
+                batchEngineProperties.getMaxDbConnections(), batchEngineProperties.getDownstreamQps(),
+                batchEngineProperties.getContentQueryQps());
+    }
+
+    /**
+     * 占用一个数据库连接执行查询，预算用尽时等待
+     */
+    public <R> R callWithDbConnection(Callable<R> query) throws Exception {
+        acquireDbConnection();
+        try {
+            return query.call();
+        } finally {
+            releaseDbConnection();
+        }
+    }
+
+    /**
+     * 占用一个数据库连接，用于流式查询等需要长时间持有连接的场景，用完后必须调用 {@link #releaseDbConnection()}
+     */
+    public void acquireDbConnection() throws InterruptedException {
+        long waitStart = System.currentTimeMillis();
+        dbPermits.acquire();
+        dbWaitMillis.addAndGet(System.currentTimeMillis() - waitStart);
+    }
+
+    public void releaseDbConnection() {
+        dbPermits.release();
+    }
+
+    /**
+     * 为流式查询占用一个数据库连接，用完后必须调用 {@link #releaseStreamConnection()}；
+     * 流式查询在整个窗口内持有连接，且会阻塞在下游队列上，同时进行的流式查询最多占用 max-db-connections - 1 个连接，
+     * 至少留一个给所有者查询等短查询，否则读取阶段占满预算后补全阶段拿不到连接，读取阶段又等待补全队列，形成死锁
+     *
+     * @return 是否占用成功，连接预算只有1个时不允许流式查询，返回 false
+     */
+    public boolean acquireStreamConnection() throws InterruptedException {
+        if (maxStreams == 0) {
+            return false;
+        }
+        streamPermits.acquire();
+        try {
+            acquireDbConnection();
+        } catch (InterruptedException e) {
+            streamPermits.release();
+            throw e;
+        }
+        return true;
+    }
+
+    public void releaseStreamConnection() {
+        releaseDbConnection();
+        streamPermits.release();
+    }
+
+    /**
+     * 获取下游通知调用配额，超过全局QPS时等待
+     */
+    public void acquireDownstream(int permits) throws InterruptedException {
+        downstreamLimiter.acquire(permits);
+    }
+
+    /**
+     * 获取内容查询代理调用配额，超过全局QPS时等待
+     */
+    public void acquireContentQuery(int permits) throws InterruptedException {
+        contentQueryLimiter.acquire(permits);
+    }
+
+    /**
+     * 调整下游限流速率，立即对所有任务生效
+     *
+     * @param name 限流器名称，见 {@link #LIMIT_NOTIFY}、{@link #LIMIT_CONTENT_QUERY}
+     * @param qps  每秒调用数，0 表示不限制
+     * @throws IllegalArgumentException 限流器不存在或速率为负数
+     */
+    public void updateRateLimit(String name, double qps) {
+        TokenBucketLimiter limiter = rateLimiters.get(name);
+        if (limiter == null) {
+            throw new IllegalArgumentException("限流器不存在: " + name + "，可选: " + rateLimiters.keySet());
+        }
+        if (qps < 0) {
+            throw new IllegalArgumentException("QPS不能为负数: " + qps);
+        }
+        double previous = limiter.getPermitsPerSecond();
+        limiter.setPermitsPerSecond(qps);
+        log.info("下游限流速率已调整，限流器: {}, QPS: {} -> {}", name, previous, qps);
+    }
+
+    /**
+     * 获取各下游限流器的速率和使用情况
+     */
+    public Map<String, Object> getRateLimits() {
+        Map<String, Object> limits = new LinkedHashMap<>();
+        rateLimiters.forEach((name, limiter) -> {
+            Map<String, Object> limit = new HashMap<>();
+            limit.put("qps", limiter.getPermitsPerSecond());
+            limit.put("acquiredPermits", limiter.getAcquiredPermits());
+            limit.put("waitMillis", limiter.getWaitMillis());
+            limits.put(name, limit);
+        });
+        return limits;
+    }
+
+    /**
+     * 当前的下游QPS上限，小于等于0表示不限制
+     */
+    public double getDownstreamQps() {
+        return downstreamLimiter.getPermitsPerSecond();
+    }
+
+    /**
+     * 读取下一批数据前检查堆内存余量，堆压力大时减速或暂停
+     */
+    public MemoryGovernor.Decision awaitHeapHeadroom() throws InterruptedException {
+        return memoryGovernor.awaitHeadroom();
+    }
+
+    /**
+     * 读取或写入下一批数据前检查数据库健康状况，数据库繁忙时减速或暂停
+     */
+    public DbHealthGovernor.Level awaitDbHealth() throws InterruptedException {
+        return dbHealthGovernor.awaitHealthy();
+    }
+
+    /**
+     * 获取预算使用情况
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        int maxDbConnections = Math.max(1, batchEngineProperties.getMaxDbConnections());
+        status.put("maxDbConnections", maxDbConnections);
+        status.put("dbConnectionsInUse", maxDbConnections - dbPermits.availablePermits());
+        status.put("dbWaitingThreads", dbPermits.getQueueLength());
+        status.put("dbStreamsInUse", maxStreams - streamPermits.availablePermits());
+        status.put("dbWaitMillis", dbWaitMillis.get());
+        status.put("downstreamQps", downstreamLimiter.getPermitsPerSecond());
+        status.put("downstreamPermits", downstreamLimiter.getAcquiredPermits());
+        status.put("rateLimits", getRateLimits());
+        status.put("heapRatio", memoryGovernor.currentRatio());
+        status.put("dbHealthLevel", dbHealthGovernor.getLevel().name());
+        return status;
+    }
+}
@@ -0,0 +1,64 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.infra.utils.GsonUtil;
+import com.hidreamai.community.job.dal.run.dao.RunHistoryDao;
+import com.hidreamai.community.job.dal.run.entity.RunHistory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 运行历史存储
+ * 运行结束时把参数、耗时、吞吐量、阶段耗时分位数和失败计数写入 job_run_history，写入失败不影响任务
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class RunHistoryStore {
+
+    private static final int MAX_MESSAGE_LENGTH = 512;
+
+    @Resource
+    private RunHistoryDao runHistoryDao;
+
+    public void save(RunRecord record) {
+        long durationMs = Math.max(1, record.getEndTime() - record.getStartTime());
+        RunHistory history = new RunHistory();
+        history.setJobName(record.getJobName());
+        history.setRunId(record.getRunId());
+        history.setMode(record.getMode());
+        history.setTriggerType(record.getTrigger());
+        history.setStatus(record.getStatus());
+        history.setStartId(record.getStartId());
+        history.setEndId(record.getEndId());
+        history.setBatchSize(record.getBatchSize());
+        history.setParams(GsonUtil.toJson(record.getParams()));
+        history.setStartTime(new Date(record.getStartTime()));
+        history.setEndTime(new Date(record.getEndTime()));
+        history.setDurationMs(durationMs);
+        history.setProcessedCount(record.getProcessedCount());
+        history.setSuccessBatches(record.getSuccessBatches());
+        history.setFailedBatches(record.getFailedBatches());
+        history.setRowsPerSecond(record.getProcessedCount() * 1000.0 / durationMs);
+        history.setStageLatencies(GsonUtil.toJson(record.getStageLatencies()));
+        String message = record.getMessage();
+        history.setMessage(message != null && message.length() > MAX_MESSAGE_LENGTH
+                ? message.substring(0, MAX_MESSAGE_LENGTH) : message);
+        try {
+            runHistoryDao.insert(history);
+        } catch (Exception e) {
+            log.warn("保存运行历史失败，runId: {}, 错误: {}", record.getRunId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 按结束时间倒序查询任务最近的运行
+     */
+    public List<RunHistory> listRecent(String jobName, int limit) {
+        return runHistoryDao.listRecent(jobName, limit);
+    }
+}
@@ -0,0 +1,206 @@
+package com.hidreamai.community.job.support;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单次任务运行记录
+ * 计数器使用分段累加器，多个写入线程并发更新时不会争用同一个变量；各阶段耗时按运行采样，结束后写入运行历史
+ *
+ * @author hidream
+ */
+public class RunRecord {
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_INTERRUPTED = "INTERRUPTED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    public static final String STAGE_SCAN = "scan";
+    public static final String STAGE_OWNER_LOOKUP = "ownerLookup";
+    public static final String STAGE_WRITE = "write";
+
+    private final String runId;
+    private final String jobName;
+    private final String trigger;
+    private final long startTime = System.currentTimeMillis();
+    private volatile String mode;
+    private volatile String status = STATUS_RUNNING;
+    private volatile String message;
+    private volatile long endTime;
+    private volatile long startId = -1;
+    private volatile long endId = -1;
+    private volatile int batchSize = -1;
+    private volatile Map<String, Object> params = new HashMap<>();
+
+    /**
+     * 运行主体自行判定的结束状态，优先于运行保护按是否抛出异常得出的状态
+     */
+    private volatile String outcome;
+
+    private final LongAdder processedCount = new LongAdder();
+    private final LongAdder successBatches = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAccumulator lastProcessedId = new LongAccumulator(Math::max, -1);
+    private final Map<String, LatencySampler> stageLatencies = new ConcurrentHashMap<>();
+
+    public RunRecord(String runId, String jobName, String mode, String trigger) {
+        this.runId = runId;
+        this.jobName = jobName;
+        this.mode = mode;
+        this.trigger = trigger;
+    }
+
+    /**
+     * 从检查点恢复时沿用之前的计数
+     */
+    public void restore(long processed, long success, long failed) {
+        processedCount.add(processed);
+        successBatches.add(success);
+        failedBatches.add(failed);
+    }
+
+    public void recordBatch(int relationCount, long lastId, boolean success) {
+        processedCount.add(relationCount);
+        if (success) {
+            successBatches.increment();
+            lastProcessedId.accumulate(lastId);
+        } else {
+            failedBatches.increment();
+        }
+    }
+
+    /**
+     * 记录运行实际处理的id范围、批量大小和并发等参数
+     */
+    public void describe(long startId, long endId, int batchSize, Map<String, Object> params) {
+        this.startId = startId;
+        this.endId = endId;
+        this.batchSize = batchSize;
+        this.params = params;
+    }
+
+    public void recordLatency(String stage, long latencyMs) {
+        stageLatencies.computeIfAbsent(stage, k -> new LatencySampler()).record(latencyMs);
+    }
+
+    /**
+     * 各阶段耗时分位数
+     */
+    public Map<String, Object> getStageLatencies() {
+        Map<String, Object> latencies = new LinkedHashMap<>();
+        stageLatencies.forEach((stage, sampler) -> latencies.put(stage, sampler.percentiles()));
+        return latencies;
+    }
+
+    /**
+     * 由运行主体标记结束状态，例如主流程异常被内部捕获或运行被关闭打断
+     */
+    public void markOutcome(String status, String message) {
+        this.outcome = status;
+        this.message = message;
+    }
+
+    void finish(String defaultStatus, String failureMessage) {
+        this.status = outcome != null ? outcome : defaultStatus;
+        if (message == null) {
+            this.message = failureMessage;
+        }
+        this.endTime = System.currentTimeMillis();
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public String getTrigger() {
+        return trigger;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public long getStartId() {
+        return startId;
+    }
+
+    public long getEndId() {
+        return endId;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public Map<String, Object> getParams() {
+        return params;
+    }
+
+    public long getProcessedCount() {
+        return processedCount.sum();
+    }
+
+    public int getSuccessBatches() {
+        return (int) successBatches.sum();
+    }
+
+    public int getFailedBatches() {
+        return (int) failedBatches.sum();
+    }
+
+    public long getLastProcessedId() {
+        return lastProcessedId.get();
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("runId", runId);
+        map.put("jobName", jobName);
+        map.put("mode", mode);
+        map.put("trigger", trigger);
+        map.put("status", status);
+        map.put("message", message);
+        map.put("startTime", startTime);
+        map.put("endTime", endTime);
+        map.put("durationMs", (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime);
+        map.put("processedCount", getProcessedCount());
+        map.put("successBatches", getSuccessBatches());
+        map.put("failedBatches", getFailedBatches());
+        map.put("lastProcessedId", getLastProcessedId());
+        map.put("startId", startId);
+        map.put("endId", endId);
+        map.put("batchSize", batchSize);
+        map.put("params", params);
+        map.put("stageLatencies", getStageLatencies());
+        return map;
+    }
+}
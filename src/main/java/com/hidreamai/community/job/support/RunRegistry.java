@@ -0,0 +1,93 @@
+package com.hidreamai.community.job.support;
+
+import org.springframework.stereotype.Component;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 任务运行登记表
+ * 每个任务同一时刻最多一个活跃运行，准入通过原子的 putIfAbsent 完成；保留最近的运行记录供按运行id查询（仅本节点）
+ *
+ * @author hidream
+ */
+@Component
+public class RunRegistry {
+
+    private static final int RECENT_RUN_LIMIT = 50;
+
+    private final Map<String, RunRecord> activeRuns = new ConcurrentHashMap<>();
+
+    private final Map<String, RunRecord> recentRuns = new LinkedHashMap<String, RunRecord>(64, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RunRecord> eldest) {
+            return size() > RECENT_RUN_LIMIT;
+        }
+    };
+
+    /**
+     * 尝试登记一个新运行
+     *
+     * @return 登记成功的运行记录，同一任务已有活跃运行时返回 null
+     */
+    public RunRecord tryAdmit(String jobName, String runId, String mode, String trigger) {
+        RunRecord record = new RunRecord(runId, jobName, mode, trigger);
+        if (activeRuns.putIfAbsent(jobName, record) != null) {
+            return null;
+        }
+        synchronized (recentRuns) {
+            recentRuns.remove(runId);
+            recentRuns.put(runId, record);
+        }
+        return record;
+    }
+
+    /**
+     * 结束运行并释放任务的准入
+     *
+     * @param defaultStatus  运行主体未自行标记结束状态时使用的状态
+     * @param failureMessage 失败信息，可为空
+     */
+    public void finish(RunRecord record, String defaultStatus, String failureMessage) {
+        record.finish(defaultStatus, failureMessage);
+        activeRuns.remove(record.getJobName(), record);
+    }
+
+    public RunRecord getActive(String jobName) {
+        return activeRuns.get(jobName);
+    }
+
+    public RunRecord find(String runId) {
+        synchronized (recentRuns) {
+            return recentRuns.get(runId);
+        }
+    }
+
+    /**
+     * 任务最近的运行，按开始时间倒序
+     */
+    public List<RunRecord> listRecent(String jobName) {
+        List<RunRecord> runs = new ArrayList<>();
+        synchronized (recentRuns) {
+            for (RunRecord record : recentRuns.values()) {
+                if (record.getJobName().equals(jobName)) {
+                    runs.add(record);
+                }
+            }
+        }
+        Collections.reverse(runs);
+        return runs;
+    }
+
+    public static String newRunId() {
+        return new SimpleDateFormat("yyyyMMddHHmmss").format(new Date())
+                + "-" + ThreadLocalRandom.current().nextInt(1000, 10000);
+    }
+}
@@ -0,0 +1,48 @@
+package com.hidreamai.community.job.support;
+
+import lombok.Getter;
+
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * 分片租约
+ * 持有期间由心跳续期，续期失败说明租约已过期并可能被其他节点接管
+ *
+ * @author hidream
+ */
+@Getter
+public class ShardLease {
+
+    private final String jobName;
+    private final String runId;
+    private final int shardIndex;
+    private final long startId;
+    private final long endId;
+    private final String nodeId;
+    private volatile boolean lost = false;
+    private volatile ScheduledFuture<?> heartbeat;
+
+    ShardLease(String jobName, String runId, int shardIndex, long startId, long endId, String nodeId) {
+        this.jobName = jobName;
+        this.runId = runId;
+        this.shardIndex = shardIndex;
+        this.startId = startId;
+        this.endId = endId;
+        this.nodeId = nodeId;
+    }
+
+    void markLost() {
+        this.lost = true;
+    }
+
+    void setHeartbeat(ScheduledFuture<?> heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+
+    void stopHeartbeat() {
+        ScheduledFuture<?> current = heartbeat;
+        if (current != null) {
+            current.cancel(false);
+        }
+    }
+}
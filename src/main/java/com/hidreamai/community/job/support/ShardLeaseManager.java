@@ -0,0 +1,312 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片租约管理
+ * 一次分片运行把id范围切成若干分片写入 Redis，各节点通过带TTL的租约抢占分片，
+ * 持有期间定时心跳续期，节点宕机后租约过期即可被其他节点接管
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class ShardLeaseManager {
+
+    private static final String KEY_PREFIX = "community-job:shard:";
+
+    /**
+     * 仅当租约仍由当前节点持有时续期
+     */
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end return 0",
+            Long.class);
+
+    /**
+     * 仅当租约仍由当前节点持有时释放
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private LikeNotifyProperties likeNotifyProperties;
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "shard-lease-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    public void destroy() {
+        heartbeatExecutor.shutdownNow();
+    }
+
+    /**
+     * 发布分片运行，并原子地声明为该任务当前活跃的分片运行；
+     * 已有活跃的分片运行时撤回本次发布的分片，由调用方加入已有运行，避免多个节点同时触发时重复处理整个范围
+     *
+     * @param shards 分片id范围列表，每项为 [startId, endId]
+     * @return 当前活跃的分片运行id，等于 runId 时表示本次发布生效
+     */
+    public String publish(String jobName, String runId, String mode, int batchSize, List<long[]> shards) {
+        Map<String, String> ranges = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            ranges.put(String.valueOf(i), shards.get(i)[0] + "-" + shards.get(i)[1]);
+        }
+        Map<String, String> meta = new HashMap<>();
+        meta.put("mode", mode);
+        meta.put("batchSize", String.valueOf(batchSize));
+        meta.put("shardCount", String.valueOf(shards.size()));
+        meta.put("createTime", String.valueOf(System.currentTimeMillis()));
+        meta.put("createNode", nodeId);
+
+        long ttlDays = likeNotifyProperties.getCheckpointTtlDays();
+        stringRedisTemplate.opsForHash().putAll(runKey(jobName, runId, "ranges"), ranges);
+        stringRedisTemplate.opsForHash().putAll(runKey(jobName, runId, "meta"), meta);
+        stringRedisTemplate.expire(runKey(jobName, runId, "ranges"), ttlDays, TimeUnit.DAYS);
+        stringRedisTemplate.expire(runKey(jobName, runId, "meta"), ttlDays, TimeUnit.DAYS);
+
+        // 分片和元信息先写入，其他节点看到活跃运行id时即可加入；活跃运行恰好结束时重新声明
+        String activeRunId;
+        do {
+            Boolean claimed = stringRedisTemplate.opsForValue().setIfAbsent(activeKey(jobName), runId, ttlDays, TimeUnit.DAYS);
+            if (Boolean.TRUE.equals(claimed)) {
+                log.info("发布分片运行，job: {}, runId: {}, 分片数: {}", jobName, runId, shards.size());
+                return runId;
+            }
+            activeRunId = getActiveRunId(jobName);
+        } while (activeRunId == null);
+
+        stringRedisTemplate.delete(Arrays.asList(runKey(jobName, runId, "ranges"), runKey(jobName, runId, "meta")));
+        log.info("已有活跃的分片运行，撤回本次发布，job: {}, runId: {}, 活跃运行: {}", jobName, runId, activeRunId);
+        return activeRunId;
+    }
+
+    /**
+     * 获取当前活跃的分片运行id
+     */
+    public String getActiveRunId(String jobName) {
+        return stringRedisTemplate.opsForValue().get(activeKey(jobName));
+    }
+
+    /**
+     * 获取分片运行的元信息
+     */
+    public Map<String, String> getRunMeta(String jobName, String runId) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(runKey(jobName, runId, "meta"));
+        Map<String, String> meta = new HashMap<>();
+        entries.forEach((k, v) -> meta.put((String) k, (String) v));
+        return meta;
+    }
+
+    /**
+     * 抢占一个未完成且未被持有（或租约已过期）的分片
+     *
+     * @param excludedShards 不抢占的分片序号，如本节点刚处理失败的分片
+     * @return 租约，没有可抢占的分片时返回 null
+     */
+    public ShardLease acquire(String jobName, String runId, Set<Integer> excludedShards) {
+        Map<Object, Object> ranges = stringRedisTemplate.opsForHash().entries(runKey(jobName, runId, "ranges"));
+        Set<String> done = stringRedisTemplate.opsForSet().members(runKey(jobName, runId, "done"));
+        long ttlMs = likeNotifyProperties.getShardLeaseTtlMs();
+
+        for (int i = 0; i < ranges.size(); i++) {
+            String index = String.valueOf(i);
+            if ((done != null && done.contains(index)) || excludedShards.contains(i)) {
+                continue;
+            }
+            Boolean acquired = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(leaseKey(jobName, runId, i), nodeId, ttlMs, TimeUnit.MILLISECONDS);
+            if (Boolean.TRUE.equals(acquired)) {
+                String[] range = ((String) ranges.get(index)).split("-");
+                ShardLease lease = new ShardLease(jobName, runId, i,
+                        Long.parseLong(range[0]), Long.parseLong(range[1]), nodeId);
+                long heartbeatMs = likeNotifyProperties.getShardLeaseHeartbeatMs();
+                lease.setHeartbeat(heartbeatExecutor.scheduleWithFixedDelay(
+                        () -> renew(lease), heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS));
+                log.info("获得分片租约，runId: {}, 分片: {}, id范围: {}-{}", runId, i, lease.getStartId(), lease.getEndId());
+                return lease;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 是否存在未完成且无人持有的分片
+     */
+    public boolean hasAvailableShard(String jobName, String runId) {
+        Long shardCount = stringRedisTemplate.opsForHash().size(runKey(jobName, runId, "ranges"));
+        Set<String> done = stringRedisTemplate.opsForSet().members(runKey(jobName, runId, "done"));
+        for (int i = 0; shardCount != null && i < shardCount; i++) {
+            if ((done == null || !done.contains(String.valueOf(i)))
+                    && !Boolean.TRUE.equals(stringRedisTemplate.hasKey(leaseKey(jobName, runId, i)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 标记分片完成并释放租约
+     */
+    public void complete(ShardLease lease) {
+        lease.stopHeartbeat();
+        stringRedisTemplate.opsForSet().add(runKey(lease.getJobName(), lease.getRunId(), "done"),
+                String.valueOf(lease.getShardIndex()));
+        stringRedisTemplate.expire(runKey(lease.getJobName(), lease.getRunId(), "done"),
+                likeNotifyProperties.getCheckpointTtlDays(), TimeUnit.DAYS);
+        releaseKey(lease);
+    }
+
+    /**
+     * 释放未完成分片的租约，其他节点可以立即接管
+     */
+    public void release(ShardLease lease) {
+        lease.stopHeartbeat();
+        releaseKey(lease);
+    }
+
+    /**
+     * 分片是否全部完成
+     */
+    public boolean isAllDone(String jobName, String runId) {
+        Long shardCount = stringRedisTemplate.opsForHash().size(runKey(jobName, runId, "ranges"));
+        Long doneCount = stringRedisTemplate.opsForSet().size(runKey(jobName, runId, "done"));
+        return shardCount != null && doneCount != null && shardCount > 0 && doneCount >= shardCount;
+    }
+
+    /**
+     * 从第一个分片开始连续完成的分片的结束id
+     *
+     * @return 连续完成位置，第一个分片未完成时返回 -1
+     */
+    public long getContiguousDoneEndId(String jobName, String runId) {
+        Map<Object, Object> ranges = stringRedisTemplate.opsForHash().entries(runKey(jobName, runId, "ranges"));
+        Set<String> done = stringRedisTemplate.opsForSet().members(runKey(jobName, runId, "done"));
+        long endId = -1;
+        for (int i = 0; i < ranges.size(); i++) {
+            if (done == null || !done.contains(String.valueOf(i))) {
+                break;
+            }
+            endId = Long.parseLong(((String) ranges.get(String.valueOf(i))).split("-")[1]);
+        }
+        return endId;
+    }
+
+    /**
+     * 结束分片运行，清除活跃标记
+     */
+    public void finish(String jobName, String runId) {
+        if (runId.equals(getActiveRunId(jobName))) {
+            stringRedisTemplate.delete(activeKey(jobName));
+            log.info("分片运行全部完成，job: {}, runId: {}", jobName, runId);
+        }
+    }
+
+    /**
+     * 累加当前节点的处理进度
+     */
+    public void recordProgress(String jobName, String runId, long relationCount, boolean success) {
+        String key = runKey(jobName, runId, "progress");
+        stringRedisTemplate.opsForHash().increment(key, "processedCount", relationCount);
+        stringRedisTemplate.opsForHash().increment(key, nodeId + ":processedCount", relationCount);
+        stringRedisTemplate.opsForHash().increment(key, success ? "successBatches" : "failedBatches", 1);
+        stringRedisTemplate.expire(key, likeNotifyProperties.getCheckpointTtlDays(), TimeUnit.DAYS);
+    }
+
+    /**
+     * 汇总当前活跃分片运行在各节点上的进度
+     */
+    public Map<String, Object> getActiveRunStatus(String jobName) {
+        String runId = getActiveRunId(jobName);
+        if (runId == null) {
+            return Collections.emptyMap();
+        }
+        Map<Object, Object> ranges = stringRedisTemplate.opsForHash().entries(runKey(jobName, runId, "ranges"));
+        Set<String> done = stringRedisTemplate.opsForSet().members(runKey(jobName, runId, "done"));
+
+        Map<String, Integer> leasesByNode = new HashMap<>();
+        List<Integer> leasedShards = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            String holder = stringRedisTemplate.opsForValue().get(leaseKey(jobName, runId, i));
+            if (holder != null) {
+                leasedShards.add(i);
+                leasesByNode.merge(holder, 1, Integer::sum);
+            }
+        }
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("runId", runId);
+        status.put("currentNode", nodeId);
+        status.put("shardCount", ranges.size());
+        status.put("doneShards", done == null ? 0 : done.size());
+        status.put("leasedShards", leasedShards);
+        status.put("leasesByNode", leasesByNode);
+        status.put("progress", stringRedisTemplate.opsForHash().entries(runKey(jobName, runId, "progress")));
+        return status;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private void renew(ShardLease lease) {
+        try {
+            Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT,
+                    Collections.singletonList(leaseKey(lease.getJobName(), lease.getRunId(), lease.getShardIndex())),
+                    nodeId, String.valueOf(likeNotifyProperties.getShardLeaseTtlMs()));
+            if (renewed == null || renewed == 0) {
+                lease.markLost();
+                lease.stopHeartbeat();
+                log.warn("分片租约续期失败，租约可能已被接管，runId: {}, 分片: {}", lease.getRunId(), lease.getShardIndex());
+            }
+        } catch (Exception e) {
+            log.warn("分片租约续期异常，runId: {}, 分片: {}, 错误: {}", lease.getRunId(), lease.getShardIndex(), e.getMessage());
+        }
+    }
+
+    private void releaseKey(ShardLease lease) {
+        stringRedisTemplate.execute(RELEASE_SCRIPT,
+                Collections.singletonList(leaseKey(lease.getJobName(), lease.getRunId(), lease.getShardIndex())),
+                nodeId);
+    }
+
+    private String activeKey(String jobName) {
+        return KEY_PREFIX + jobName + ":active";
+    }
+
+    private String runKey(String jobName, String runId, String suffix) {
+        return KEY_PREFIX + jobName + ":" + runId + ":" + suffix;
+    }
+
+    private String leaseKey(String jobName, String runId, int shardIndex) {
+        return KEY_PREFIX + jobName + ":" + runId + ":lease:" + shardIndex;
+    }
+}
@@ -0,0 +1,66 @@
+package com.hidreamai.community.job.support;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 同步运行检查点
+ *
+ * @author hidream
+ */
+@Data
+public class SyncCheckpoint {
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_INTERRUPTED = "INTERRUPTED";
+
+    /**
+     * 运行id
+     */
+    private String runId;
+
+    /**
+     * 同步模式
+     */
+    private String mode;
+
+    /**
+     * 本次运行处理的起始id（包含）
+     */
+    private long startId;
+
+    /**
+     * 本次运行处理的结束id（包含）
+     */
+    private long endId;
+
+    /**
+     * 批量大小
+     */
+    private int batchSize;
+
+    /**
+     * 连续处理过的游标位置（含写入失败的批次），恢复时先重放失败范围，再从其下一条继续
+     */
+    private long cursorId;
+
+    private long processedCount;
+
+    private int successBatches;
+
+    private int failedBatches;
+
+    /**
+     * 写入失败、尚未重放成功的id范围，每项为 [firstId, lastId]
+     */
+    private List<long[]> failedRanges = new ArrayList<>();
+
+    private String status;
+
+    private long startTime;
+
+    private long updateTime;
+}
@@ -0,0 +1,127 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同步检查点存储
+ * 每次运行一个 Redis hash，另外记录每个任务最近一次运行的id，便于重启后恢复
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class SyncCheckpointStore {
+
+    private static final String KEY_PREFIX = "community-job:checkpoint:";
+    private static final String LATEST_SUFFIX = ":latest";
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private LikeNotifyProperties likeNotifyProperties;
+
+    /**
+     * 保存检查点
+     */
+    public void save(String jobName, SyncCheckpoint checkpoint) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("runId", checkpoint.getRunId());
+        fields.put("mode", checkpoint.getMode());
+        fields.put("startId", String.valueOf(checkpoint.getStartId()));
+        fields.put("endId", String.valueOf(checkpoint.getEndId()));
+        fields.put("batchSize", String.valueOf(checkpoint.getBatchSize()));
+        fields.put("cursorId", String.valueOf(checkpoint.getCursorId()));
+        fields.put("processedCount", String.valueOf(checkpoint.getProcessedCount()));
+        fields.put("successBatches", String.valueOf(checkpoint.getSuccessBatches()));
+        fields.put("failedBatches", String.valueOf(checkpoint.getFailedBatches()));
+        fields.put("failedRanges", encodeRanges(checkpoint.getFailedRanges()));
+        fields.put("status", checkpoint.getStatus());
+        fields.put("startTime", String.valueOf(checkpoint.getStartTime()));
+        fields.put("updateTime", String.valueOf(checkpoint.getUpdateTime()));
+
+        String key = runKey(jobName, checkpoint.getRunId());
+        long ttlDays = likeNotifyProperties.getCheckpointTtlDays();
+        stringRedisTemplate.opsForHash().putAll(key, fields);
+        stringRedisTemplate.expire(key, ttlDays, TimeUnit.DAYS);
+        stringRedisTemplate.opsForValue().set(KEY_PREFIX + jobName + LATEST_SUFFIX, checkpoint.getRunId(), ttlDays, TimeUnit.DAYS);
+    }
+
+    /**
+     * 加载检查点
+     *
+     * @param runId 运行id，为空时加载最近一次运行
+     * @return 检查点，不存在时返回 null
+     */
+    public SyncCheckpoint load(String jobName, String runId) {
+        String actualRunId = runId;
+        if (actualRunId == null || actualRunId.isEmpty()) {
+            actualRunId = stringRedisTemplate.opsForValue().get(KEY_PREFIX + jobName + LATEST_SUFFIX);
+            if (actualRunId == null) {
+                return null;
+            }
+        }
+
+        Map<Object, Object> fields = stringRedisTemplate.opsForHash().entries(runKey(jobName, actualRunId));
+        if (fields == null || fields.isEmpty()) {
+            return null;
+        }
+
+        SyncCheckpoint checkpoint = new SyncCheckpoint();
+        checkpoint.setRunId(actualRunId);
+        checkpoint.setMode((String) fields.get("mode"));
+        checkpoint.setStartId(parseLong(fields.get("startId")));
+        checkpoint.setEndId(parseLong(fields.get("endId")));
+        checkpoint.setBatchSize((int) parseLong(fields.get("batchSize")));
+        checkpoint.setCursorId(parseLong(fields.get("cursorId")));
+        checkpoint.setProcessedCount(parseLong(fields.get("processedCount")));
+        checkpoint.setSuccessBatches((int) parseLong(fields.get("successBatches")));
+        checkpoint.setFailedBatches((int) parseLong(fields.get("failedBatches")));
+        checkpoint.setFailedRanges(decodeRanges((String) fields.get("failedRanges")));
+        checkpoint.setStatus((String) fields.get("status"));
+        checkpoint.setStartTime(parseLong(fields.get("startTime")));
+        checkpoint.setUpdateTime(parseLong(fields.get("updateTime")));
+        return checkpoint;
+    }
+
+    private String runKey(String jobName, String runId) {
+        return KEY_PREFIX + jobName + ":" + runId;
+    }
+
+    private long parseLong(Object value) {
+        return value == null ? 0L : Long.parseLong((String) value);
+    }
+
+    private String encodeRanges(List<long[]> ranges) {
+        StringBuilder builder = new StringBuilder();
+        for (long[] range : ranges) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(range[0]).append('-').append(range[1]);
+        }
+        return builder.toString();
+    }
+
+    private List<long[]> decodeRanges(String value) {
+        List<long[]> ranges = new ArrayList<>();
+        if (value == null || value.isEmpty()) {
+            return ranges;
+        }
+        for (String item : value.split(",")) {
+            int separator = item.indexOf('-', 1);
+            ranges.add(new long[]{Long.parseLong(item.substring(0, separator)), Long.parseLong(item.substring(separator + 1))});
+        }
+        return ranges;
+    }
+}
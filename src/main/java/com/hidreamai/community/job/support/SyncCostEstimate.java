@@ -0,0 +1,146 @@
+package com.hidreamai.community.job.support;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 试运行的抽样结果与推算
+ * 抽样批次走完整的读取、所有者解析和过滤流程但不发送通知，按抽样的id密度和各类过滤比例推算整个处理范围；
+ * 读取、补全、写入三个阶段流水线并行，预计耗时取最慢阶段
+ *
+ * @author hidream
+ */
+public class SyncCostEstimate {
+
+    private final String mode;
+    private final long startId;
+    private final long endId;
+    private final int batchSize;
+    private final long totalRelations;
+
+    private int sampledBatches;
+    private long sampledRows;
+    private long sampledIdSpan;
+    private long scanMillis;
+    private long ownerLookupMillis;
+    private long notifications;
+    private long selfLikes;
+    private long unresolvableContent;
+    private long incomplete;
+    private long alreadyNotified;
+
+    public SyncCostEstimate(String mode, long startId, long endId, int batchSize, long totalRelations) {
+        this.mode = mode;
+        this.startId = startId;
+        this.endId = endId;
+        this.batchSize = batchSize;
+        this.totalRelations = totalRelations;
+    }
+
+    /**
+     * 记录一个抽样批次的读取结果
+     *
+     * @param rows   读取的关系行数
+     * @param idSpan 本批次覆盖的id跨度
+     */
+    public void recordScan(int rows, long idSpan, long latencyMs) {
+        sampledBatches++;
+        sampledRows += rows;
+        sampledIdSpan += idSpan;
+        scanMillis += latencyMs;
+    }
+
+    public void recordOwnerLookup(long latencyMs) {
+        ownerLookupMillis += latencyMs;
+    }
+
+    /**
+     * 记录一个抽样批次的过滤结果
+     *
+     * @param notifyCount 聚合后将发送的通知数
+     */
+    public void recordFilter(int notifyCount, int selfLikeCount, int unresolvableCount, int incompleteCount,
+                             int alreadyNotifiedCount) {
+        notifications += notifyCount;
+        selfLikes += selfLikeCount;
+        unresolvableContent += unresolvableCount;
+        incomplete += incompleteCount;
+        alreadyNotified += alreadyNotifiedCount;
+    }
+
+    /**
+     * 按id密度推算处理范围内的关系数，不超过点赞关系总数
+     */
+    public long estimatedRows() {
+        if (sampledIdSpan <= 0 || endId < startId) {
+            return 0;
+        }
+        double density = Math.min(1D, (double) sampledRows / sampledIdSpan);
+        long rows = Math.round(density * (endId - startId + 1));
+        return totalRelations > 0 ? Math.min(rows, totalRelations) : rows;
+    }
+
+    /**
+     * 生成推算结果
+     *
+     * @param readerThreads     读取阶段并发数
+     * @param enrichThreads     补全阶段并发数
+     * @param notifyConcurrency 同时进行中的通知调用数
+     * @param notifyLatencyMs   单条通知调用耗时
+     * @param downstreamQps     下游QPS上限，小于等于0表示不限制
+     */
+    public Map<String, Object> project(int readerThreads, int enrichThreads, int notifyConcurrency,
+                                       double notifyLatencyMs, double downstreamQps) {
+        long rows = estimatedRows();
+        double rowScale = sampledRows > 0 ? (double) rows / sampledRows : 0D;
+        double batches = Math.ceil((double) rows / Math.max(1, batchSize));
+        double perBatchScanMs = sampledBatches > 0 ? (double) scanMillis / sampledBatches : 0D;
+        double perBatchLookupMs = sampledBatches > 0 ? (double) ownerLookupMillis / sampledBatches : 0D;
+
+        long projectedNotifications = Math.round(notifications * rowScale);
+        long scanStageMs = Math.round(batches * perBatchScanMs / Math.max(1, readerThreads));
+        long enrichStageMs = Math.round(batches * perBatchLookupMs / Math.max(1, enrichThreads));
+        long writeStageMs = Math.round(projectedNotifications * notifyLatencyMs / Math.max(1, notifyConcurrency));
+        if (downstreamQps > 0) {
+            writeStageMs = Math.max(writeStageMs, Math.round(projectedNotifications * 1000 / downstreamQps));
+        }
+        long durationMs = Math.max(scanStageMs, Math.max(enrichStageMs, writeStageMs));
+        String bottleneck = durationMs == writeStageMs ? "write" : durationMs == enrichStageMs ? "enrich" : "read";
+
+        Map<String, Object> sample = new LinkedHashMap<>();
+        sample.put("batches", sampledBatches);
+        sample.put("rows", sampledRows);
+        sample.put("notifications", notifications);
+        sample.put("selfLikes", selfLikes);
+        sample.put("unresolvableContent", unresolvableContent);
+        sample.put("incomplete", incomplete);
+        sample.put("alreadyNotified", alreadyNotified);
+        sample.put("avgScanMs", perBatchScanMs);
+        sample.put("avgOwnerLookupMs", perBatchLookupMs);
+
+        Map<String, Object> stages = new LinkedHashMap<>();
+        stages.put("readMs", scanStageMs);
+        stages.put("enrichMs", enrichStageMs);
+        stages.put("writeMs", writeStageMs);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", mode);
+        result.put("startId", startId);
+        result.put("endId", endId);
+        result.put("batchSize", batchSize);
+        result.put("estimatedRelations", rows);
+        result.put("estimatedNotifications", projectedNotifications);
+        result.put("estimatedSelfLikes", Math.round(selfLikes * rowScale));
+        result.put("estimatedUnresolvableContent", Math.round(unresolvableContent * rowScale));
+        result.put("estimatedIncomplete", Math.round(incomplete * rowScale));
+        result.put("estimatedAlreadyNotified", Math.round(alreadyNotified * rowScale));
+        result.put("estimatedDurationMs", durationMs);
+        result.put("bottleneck", bottleneck);
+        result.put("stageDurations", stages);
+        result.put("notifyLatencyMs", notifyLatencyMs);
+        result.put("notifyConcurrency", notifyConcurrency);
+        result.put("downstreamQps", downstreamQps);
+        result.put("sample", sample);
+        return result;
+    }
+}
@@ -0,0 +1,64 @@
+package com.hidreamai.community.job.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Collections;
+
+/**
+ * 同步水位线存储
+ * 记录增量同步已处理到的最大关系id，保存在 Redis 中，只允许单调递增
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class SyncWatermarkStore {
+
+    private static final String KEY_PREFIX = "community-job:watermark:";
+
+    /**
+     * 仅当新值大于当前值时写入，返回写入后的值
+     */
+    private static final DefaultRedisScript<Long> ADVANCE_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('GET', KEYS[1]) "
+                    + "if current == false or tonumber(current) < tonumber(ARGV[1]) then "
+                    + "redis.call('SET', KEYS[1], ARGV[1]) return tonumber(ARGV[1]) end "
+                    + "return tonumber(current)",
+            Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 获取水位线
+     *
+     * @param jobName 任务名
+     * @return 已处理的最大关系id，从未记录时返回 null
+     */
+    public Long getWatermark(String jobName) {
+        String value = stringRedisTemplate.opsForValue().get(KEY_PREFIX + jobName);
+        return value == null ? null : Long.valueOf(value);
+    }
+
+    /**
+     * 推进水位线，小于当前值时忽略
+     *
+     * @return 推进后的水位线
+     */
+    public Long advanceWatermark(String jobName, long watermark) {
+        return stringRedisTemplate.execute(ADVANCE_SCRIPT,
+                Collections.singletonList(KEY_PREFIX + jobName), String.valueOf(watermark));
+    }
+
+    /**
+     * 重置水位线
+     */
+    public void resetWatermark(String jobName) {
+        stringRedisTemplate.delete(KEY_PREFIX + jobName);
+        log.info("已重置同步水位线，job: {}", jobName);
+    }
+}
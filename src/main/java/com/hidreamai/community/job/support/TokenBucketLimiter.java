@@ -0,0 +1,106 @@
+package com.hidreamai.community.job.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 令牌桶限流器
+ * 按固定速率生成令牌，空闲时最多积攒一秒的令牌用于突发；令牌不足时调用方阻塞到可用为止。
+ * 速率可在运行中调整，已在等待的调用按原速率完成，之后的调用按新速率排队
+ *
+ * @author hidream
+ */
+public class TokenBucketLimiter {
+
+    private volatile double permitsPerSecond;
+    private double intervalNanos;
+    private double storedPermits;
+    private long nextFreeNanos;
+
+    private final LongAdder acquiredPermits = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    /**
+     * @param permitsPerSecond 每秒令牌数，不大于 0 时不限流
+     */
+    public TokenBucketLimiter(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.intervalNanos = intervalOf(permitsPerSecond);
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    private static double intervalOf(double permitsPerSecond) {
+        return permitsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / permitsPerSecond : 0;
+    }
+
+    /**
+     * 获取令牌，令牌不足时阻塞
+     */
+    public void acquire(int permits) throws InterruptedException {
+        long wait = reserve(permits);
+        acquiredPermits.add(Math.max(0, permits));
+        if (wait > 0) {
+            waitNanos.add(wait);
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * 调整速率：按原速率结算已积攒的令牌，尚未发放的预占令牌按新速率重新排期
+     *
+     * @param permitsPerSecond 每秒令牌数，不大于 0 时不限流
+     */
+    public synchronized void setPermitsPerSecond(double permitsPerSecond) {
+        long now = System.nanoTime();
+        double newInterval = intervalOf(permitsPerSecond);
+        if (this.permitsPerSecond <= 0 || permitsPerSecond <= 0) {
+            storedPermits = 0;
+            nextFreeNanos = now;
+        } else if (now > nextFreeNanos) {
+            storedPermits = Math.min(permitsPerSecond, storedPermits + (now - nextFreeNanos) / intervalNanos);
+            nextFreeNanos = now;
+        } else {
+            double owedPermits = (nextFreeNanos - now) / intervalNanos;
+            nextFreeNanos = now + (long) (owedPermits * newInterval);
+        }
+        this.intervalNanos = newInterval;
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    /**
+     * 预占令牌，返回需要等待的时间；预占后后续调用顺延，保证整体速率
+     */
+    private synchronized long reserve(int permits) {
+        if (permitsPerSecond <= 0 || permits <= 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        if (now > nextFreeNanos) {
+            storedPermits = Math.min(permitsPerSecond, storedPermits + (now - nextFreeNanos) / intervalNanos);
+            nextFreeNanos = now;
+        }
+        long wait = nextFreeNanos - now;
+        double fromStored = Math.min(permits, storedPermits);
+        storedPermits -= fromStored;
+        nextFreeNanos += (long) ((permits - fromStored) * intervalNanos);
+        return wait;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * 累计发放的令牌数
+     */
+    public long getAcquiredPermits() {
+        return acquiredPermits.sum();
+    }
+
+    /**
+     * 累计等待时间（毫秒）
+     */
+    public long getWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.sum());
+    }
+}
@@ -0,0 +1,100 @@
+package com.hidreamai.community.job.task;
+
+import com.hidreamai.community.infra.dal.content.entity.SocialRelation;
+import com.hidreamai.community.job.config.BatchEngineProperties;
+import com.hidreamai.community.job.dal.relation.dao.LikeRelationScanDao;
+import com.hidreamai.community.job.engine.BatchJob;
+import com.hidreamai.community.job.support.NotifyBatchWriter;
+import com.hidreamai.community.job.support.ReadRoutingDataSource;
+import com.hidreamai.community.notify.entity.request.MessageNotifyReq;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 关注通知同步任务
+ * 在批处理任务引擎上运行：按主键游标扫描关注关系，通知被关注的用户
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "job.engine", name = "follow-notify-enabled", havingValue = "true")
+public class FollowNotifyBatchJob implements BatchJob<SocialRelation, MessageNotifyReq> {
+
+    public static final String JOB_NAME = "follow-notify";
+
+    @Resource
+    private LikeRelationScanDao likeRelationScanDao;
+
+    @Resource
+    private NotifyBatchWriter notifyBatchWriter;
+
+    @Resource
+    private BatchEngineProperties batchEngineProperties;
+
+    @PostConstruct
+    public void init() {
+        if (batchEngineProperties.getFollowRelationType() == null) {
+            throw new IllegalStateException("启用关注通知同步任务时必须配置 job.engine.follow-relation-type");
+        }
+    }
+
+    @Override
+    public String getName() {
+        return JOB_NAME;
+    }
+
+    @Override
+    public String getDescription() {
+        return "关注通知同步任务";
+    }
+
+    @Override
+    public Long queryMaxId() {
+        return ReadRoutingDataSource.readFromReplica(
+                () -> likeRelationScanDao.queryMaxId(batchEngineProperties.getFollowRelationType()));
+    }
+
+    @Override
+    public List<SocialRelation> read(long afterId, long endId, int limit) {
+        return ReadRoutingDataSource.readFromReplica(() -> likeRelationScanDao.scanRelationsAfterId(
+                batchEngineProperties.getFollowRelationType(), afterId, endId, limit));
+    }
+
+    @Override
+    public long idOf(SocialRelation item) {
+        return item.getId();
+    }
+
+    @Override
+    public List<MessageNotifyReq> transform(List<SocialRelation> items) {
+        List<MessageNotifyReq> requests = new ArrayList<>(items.size());
+        for (SocialRelation relation : items) {
+            if (relation.getSourceId() == null || relation.getTargetId() == null
+                    || Objects.equals(relation.getSourceId(), relation.getTargetId())) {
+                continue;
+            }
+            MessageNotifyReq req = new MessageNotifyReq();
+            req.setUserId(relation.getTargetId());
+            req.setRelateUserId(relation.getSourceId());
+            req.setRelateType(batchEngineProperties.getFollowRelationType());
+            if (relation.getCreateTime() != null) {
+                req.setNotifyTime(relation.getCreateTime().getTime());
+            }
+            requests.add(req);
+        }
+        return requests;
+    }
+
+    @Override
+    public List<MessageNotifyReq> write(List<MessageNotifyReq> items) {
+        return notifyBatchWriter.writeAll(items).getUnsuccessfulRequests();
+    }
+}
@@ -0,0 +1,367 @@
+package com.hidreamai.community.job.task;
+
+import com.hidreamai.community.infra.dal.content.entity.SocialRelation;
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import com.hidreamai.community.job.support.ContentOwnerResolver;
+import com.hidreamai.community.job.support.LikeNotifyMetrics;
+import com.hidreamai.community.job.support.NotifiedRelationStore;
+import com.hidreamai.community.job.support.NotifyBatchWriter;
+import com.hidreamai.community.job.support.NotifyWriteResult;
+import com.hidreamai.community.job.support.ShardLeaseManager;
+import com.hidreamai.community.notify.entity.request.MessageNotifyReq;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 点赞事件实时消费者
+ * 以消费组方式读取 Redis Stream 中的点赞事件，按条数或最大延迟攒成微批次写入通知，
+ * 只确认写入成功（或被过滤）的事件；写入失败的事件留在待确认列表中稍后重试，
+ * 其他节点长时间未确认的事件会被认领接管
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class LikeEventStreamConsumer {
+
+    private static final String FIELD_RELATION_ID = "relationId";
+    private static final String FIELD_SOURCE_ID = "sourceId";
+    private static final String FIELD_TARGET_ID = "targetId";
+    private static final String FIELD_CREATE_TIME = "createTime";
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private LikeNotifySyncJob likeNotifySyncJob;
+
+    @Resource
+    private ContentOwnerResolver contentOwnerResolver;
+
+    @Resource
+    private NotifyBatchWriter notifyBatchWriter;
+
+    @Resource
+    private NotifiedRelationStore notifiedRelationStore;
+
+    @Resource
+    private ShardLeaseManager shardLeaseManager;
+
+    @Resource
+    private LikeNotifyMetrics likeNotifyMetrics;
+
+    @Resource
+    private LikeNotifyProperties likeNotifyProperties;
+
+    private volatile boolean running = false;
+    private Thread worker;
+
+    private final AtomicLong receivedCount = new AtomicLong(0);
+    private final AtomicLong ackedCount = new AtomicLong(0);
+    private final AtomicLong filteredCount = new AtomicLong(0);
+    private final AtomicLong failedCount = new AtomicLong(0);
+    private final AtomicLong claimedCount = new AtomicLong(0);
+    private volatile long lastFlushTime = 0;
+
+    @PostConstruct
+    public void start() {
+        if (!likeNotifyProperties.isStreamEnabled()) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::consumeLoop, "like-event-stream");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("点赞事件实时消费者启动，stream: {}, group: {}, consumer: {}",
+                likeNotifyProperties.getStreamKey(), likeNotifyProperties.getStreamGroup(), consumerName());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(likeNotifyProperties.getStreamMaxLatencyMs() + 5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void consumeLoop() {
+        ensureGroup();
+        // 启动时先重放本消费者未确认的事件
+        String pendingCursor = "0";
+        long pendingRetryAt = 0;
+        long lastClaimTime = System.currentTimeMillis();
+        List<MapRecord<String, Object, Object>> buffer = new ArrayList<>();
+        long firstBufferedAt = 0;
+
+        while (running) {
+            try {
+                int batchSize = Math.max(1, likeNotifyProperties.getStreamBatchSize());
+                long maxLatencyMs = Math.max(1, likeNotifyProperties.getStreamMaxLatencyMs());
+                long now = System.currentTimeMillis();
+
+                List<MapRecord<String, Object, Object>> records;
+                if (pendingCursor != null && now >= pendingRetryAt) {
+                    records = readPending(pendingCursor, batchSize - buffer.size());
+                    pendingCursor = records.isEmpty() ? null : records.get(records.size() - 1).getId().getValue();
+                } else {
+                    long waitMs = buffer.isEmpty() ? maxLatencyMs : Math.max(1, firstBufferedAt + maxLatencyMs - now);
+                    records = readNew(batchSize - buffer.size(), waitMs);
+                }
+
+                if (records != null && !records.isEmpty()) {
+                    if (buffer.isEmpty()) {
+                        firstBufferedAt = System.currentTimeMillis();
+                    }
+                    buffer.addAll(records);
+                    receivedCount.addAndGet(records.size());
+                }
+
+                if (!buffer.isEmpty() && (buffer.size() >= batchSize
+                        || System.currentTimeMillis() - firstBufferedAt >= maxLatencyMs)) {
+                    boolean allAcked = flush(buffer);
+                    buffer = new ArrayList<>();
+                    if (!allAcked && pendingCursor == null) {
+                        pendingCursor = "0";
+                        pendingRetryAt = System.currentTimeMillis() + likeNotifyProperties.getRetryDelayMs();
+                    }
+                }
+
+                // 缓冲区为空时才认领，避免重放待确认列表时读到缓冲区中尚未确认的事件
+                if (buffer.isEmpty() && System.currentTimeMillis() - lastClaimTime >= likeNotifyProperties.getStreamClaimIdleMs()) {
+                    lastClaimTime = System.currentTimeMillis();
+                    if (claimStalePending() > 0 && pendingCursor == null) {
+                        pendingCursor = "0";
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                log.error("消费点赞事件异常，稍后重试", e);
+                sleepQuietly(likeNotifyProperties.getRetryDelayMs());
+            }
+        }
+
+        if (!buffer.isEmpty()) {
+            log.info("实时消费者停止，{} 条未写入的事件保留在待确认列表中", buffer.size());
+        }
+    }
+
+    /**
+     * 写入一个微批次并确认成功的事件
+     *
+     * @return 是否全部确认
+     */
+    private boolean flush(List<MapRecord<String, Object, Object>> records) {
+        List<RecordId> ackIds = new ArrayList<>(records.size());
+        List<SocialRelation> relations = new ArrayList<>(records.size());
+        List<RecordId> relationRecordIds = new ArrayList<>(records.size());
+        for (MapRecord<String, Object, Object> record : records) {
+            // 已被删除或裁剪的事件在待确认列表中没有内容
+            SocialRelation relation = record.getValue() == null ? null : toRelation(record.getValue());
+            if (relation == null) {
+                log.warn("点赞事件格式不正确，直接确认: {}", record.getValue());
+                ackIds.add(record.getId());
+            } else {
+                relations.add(relation);
+                relationRecordIds.add(record.getId());
+            }
+        }
+
+        List<String> contentIds = new ArrayList<>(relations.size());
+        for (SocialRelation relation : relations) {
+            contentIds.add(relation.getTargetId());
+        }
+        Map<String, String> contentOwners = contentOwnerResolver.resolveOwners(contentIds);
+
+        List<MessageNotifyReq> requests = new ArrayList<>(relations.size());
+        List<Integer> requestRelationIndexes = new ArrayList<>(relations.size());
+        for (int i = 0; i < relations.size(); i++) {
+            MessageNotifyReq req = likeNotifySyncJob.buildLikeNotificationRequest(relations.get(i), contentOwners);
+            if (req == null) {
+                filteredCount.incrementAndGet();
+                ackIds.add(relationRecordIds.get(i));
+            } else {
+                requests.add(req);
+                requestRelationIndexes.add(i);
+            }
+        }
+
+        List<SocialRelation> notified = new ArrayList<>(requests.size());
+        int failed = 0;
+        if (!requests.isEmpty()) {
+            NotifyWriteResult result = notifyBatchWriter.writeAll(requests);
+            for (int j = 0; j < requests.size(); j++) {
+                int relationIndex = requestRelationIndexes.get(j);
+                if (result.isSuccess(j)) {
+                    ackIds.add(relationRecordIds.get(relationIndex));
+                    notified.add(relations.get(relationIndex));
+                } else {
+                    failed++;
+                }
+            }
+        }
+
+        if (!notified.isEmpty()) {
+            try {
+                notifiedRelationStore.markNotified(LikeNotifySyncJob.JOB_NAME, notified);
+            } catch (Exception e) {
+                log.warn("记录已实时通知的关系失败，定时对账时可能重复通知，数量: {}, 错误: {}", notified.size(), e.getMessage());
+            }
+        }
+        if (!ackIds.isEmpty()) {
+            stringRedisTemplate.opsForStream().acknowledge(likeNotifyProperties.getStreamKey(),
+                    likeNotifyProperties.getStreamGroup(), ackIds.toArray(new RecordId[0]));
+        }
+
+        ackedCount.addAndGet(ackIds.size());
+        failedCount.addAndGet(failed);
+        likeNotifyMetrics.recordStreamFlush(ackIds.size(), failed);
+        lastFlushTime = System.currentTimeMillis();
+        if (failed > 0) {
+            log.warn("实时通知写入部分失败，确认: {}, 失败待重试: {}", ackIds.size(), failed);
+        }
+        return failed == 0;
+    }
+
+    private SocialRelation toRelation(Map<Object, Object> fields) {
+        Object sourceId = fields.get(FIELD_SOURCE_ID);
+        Object targetId = fields.get(FIELD_TARGET_ID);
+        if (sourceId == null || targetId == null) {
+            return null;
+        }
+        try {
+            SocialRelation relation = new SocialRelation();
+            relation.setSourceId(sourceId.toString());
+            relation.setTargetId(targetId.toString());
+            Object relationId = fields.get(FIELD_RELATION_ID);
+            if (relationId != null) {
+                relation.setId(Long.parseLong(relationId.toString()));
+            }
+            Object createTime = fields.get(FIELD_CREATE_TIME);
+            relation.setCreateTime(createTime != null ? new Date(Long.parseLong(createTime.toString())) : new Date());
+            return relation;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private List<MapRecord<String, Object, Object>> readNew(int count, long blockMs) {
+        return stringRedisTemplate.opsForStream().read(
+                Consumer.from(likeNotifyProperties.getStreamGroup(), consumerName()),
+                StreamReadOptions.empty().count(count).block(Duration.ofMillis(blockMs)),
+                StreamOffset.create(likeNotifyProperties.getStreamKey(), ReadOffset.lastConsumed()));
+    }
+
+    /**
+     * 读取本消费者待确认列表中指定id之后的事件
+     */
+    private List<MapRecord<String, Object, Object>> readPending(String afterId, int count) {
+        List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().read(
+                Consumer.from(likeNotifyProperties.getStreamGroup(), consumerName()),
+                StreamReadOptions.empty().count(count),
+                StreamOffset.create(likeNotifyProperties.getStreamKey(), ReadOffset.from(afterId)));
+        return records == null ? new ArrayList<>() : records;
+    }
+
+    /**
+     * 认领其他消费者长时间未确认的事件
+     *
+     * @return 认领的事件数
+     */
+    private int claimStalePending() {
+        String streamKey = likeNotifyProperties.getStreamKey();
+        String group = likeNotifyProperties.getStreamGroup();
+        Duration minIdle = Duration.ofMillis(likeNotifyProperties.getStreamClaimIdleMs());
+        PendingMessages pending = stringRedisTemplate.opsForStream().pending(streamKey, group, Range.unbounded(),
+                Math.max(1, likeNotifyProperties.getStreamBatchSize()));
+        if (pending == null || pending.isEmpty()) {
+            return 0;
+        }
+
+        List<RecordId> stale = new ArrayList<>();
+        for (PendingMessage message : pending) {
+            if (!consumerName().equals(message.getConsumerName())
+                    && message.getElapsedTimeSinceLastDelivery().compareTo(minIdle) >= 0) {
+                stale.add(message.getId());
+            }
+        }
+        if (stale.isEmpty()) {
+            return 0;
+        }
+        List<?> claimed = stringRedisTemplate.opsForStream().claim(streamKey, group, consumerName(), minIdle,
+                stale.toArray(new RecordId[0]));
+        claimedCount.addAndGet(claimed.size());
+        log.info("认领其他消费者超时未确认的点赞事件: {}", claimed.size());
+        return claimed.size();
+    }
+
+    private void ensureGroup() {
+        byte[] rawKey = stringRedisTemplate.getStringSerializer().serialize(likeNotifyProperties.getStreamKey());
+        try {
+            // MKSTREAM：生产者尚未写入时同时创建 stream
+            stringRedisTemplate.execute((RedisCallback<String>) connection -> connection.xGroupCreate(
+                    rawKey, likeNotifyProperties.getStreamGroup(), ReadOffset.latest(), true));
+        } catch (Exception e) {
+            // 消费组已存在（BUSYGROUP）
+            log.debug("创建消费组跳过: {}", e.getMessage());
+        }
+    }
+
+    private String consumerName() {
+        return shardLeaseManager.getNodeId();
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 获取实时消费状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", likeNotifyProperties.isStreamEnabled());
+        status.put("running", running);
+        status.put("streamKey", likeNotifyProperties.getStreamKey());
+        status.put("group", likeNotifyProperties.getStreamGroup());
+        status.put("receivedCount", receivedCount.get());
+        status.put("ackedCount", ackedCount.get());
+        status.put("filteredCount", filteredCount.get());
+        status.put("failedCount", failedCount.get());
+        status.put("claimedCount", claimedCount.get());
+        status.put("lastFlushTime", lastFlushTime);
+        return status;
+    }
+}
@@ -3,13 +3,41 @@ package com.hidreamai.community.job.task;
 import com.hidreamai.community.infra.dal.content.dao.RelationDao;
 import com.hidreamai.community.infra.dal.content.entity.SocialRelation;
 import com.hidreamai.community.infra.enums.biz.RelationTypeEnum;
-import com.hidreamai.community.infra.entity.resp.BaseResponse;
 import com.hidreamai.community.infra.utils.GsonUtil;
+import com.hidreamai.community.job.dal.relation.dao.LikeRelationScanDao;
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import com.hidreamai.community.job.support.AdaptiveConcurrencyController;
+import com.hidreamai.community.job.support.ContentOwnerResolver;
+import com.hidreamai.community.job.support.DbHealthGovernor;
+import com.hidreamai.community.job.support.LikeNotifyAggregator;
+import com.hidreamai.community.job.support.LikeNotifyMetrics;
+import com.hidreamai.community.job.support.NotifiedRelationStore;
+import com.hidreamai.community.job.support.ResourceBudget;
+import com.hidreamai.community.job.support.RunHistoryStore;
+import com.hidreamai.community.job.support.RunRecord;
+import com.hidreamai.community.job.support.RunRegistry;
+import com.hidreamai.community.job.support.SyncCostEstimate;
+import com.hidreamai.community.job.support.MemoryGovernor;
+import com.hidreamai.community.job.support.NotifyBatchWriter;
+import com.hidreamai.community.job.support.NotifyRetryQueue;
+import com.hidreamai.community.job.support.ReadRoutingDataSource;
+import com.hidreamai.community.job.support.NotifyWriteResult;
+import com.hidreamai.community.job.support.RelationColumns;
+import com.hidreamai.community.job.support.ShardLease;
+import com.hidreamai.community.job.support.ShardLeaseManager;
+import com.hidreamai.community.job.support.SyncCheckpoint;
+import com.hidreamai.community.job.support.SyncCheckpointStore;
+import com.hidreamai.community.job.support.SyncWatermarkStore;
+import com.hidreamai.community.job.task.pipeline.LikeNotifyBatch;
+import com.hidreamai.community.job.task.pipeline.PipelineStage;
+import com.hidreamai.community.job.task.pipeline.RangeCommitTracker;
 import com.hidreamai.community.notify.entity.request.MessageNotifyReq;
-import com.hidreamai.community.notify.proxy.NotifyContentQueryProxy;
-import com.hidreamai.community.notify.service.MessageNotifyService;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.ApplicationContext;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -18,15 +46,20 @@ import org.springframework.stereotype.Component;
 import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
+import java.util.Set;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 
 /**
  * 点赞通知同步任务
@@ -41,38 +74,87 @@ public class LikeNotifySyncJob {
     private RelationDao relationDao;
     
     @Resource
-    private MessageNotifyService messageNotifyService;
+    private LikeRelationScanDao likeRelationScanDao;
     
     @Resource
-    private NotifyContentQueryProxy notifyContentQueryProxy;
+    private NotifyBatchWriter notifyBatchWriter;
+    
+    @Resource
+    private MemoryGovernor memoryGovernor;
+
+    @Resource
+    private DbHealthGovernor dbHealthGovernor;
+    
+    @Resource
+    private ContentOwnerResolver contentOwnerResolver;
+    
+    @Resource
+    private LikeNotifyProperties likeNotifyProperties;
+    
+    @Resource
+    private SyncWatermarkStore syncWatermarkStore;
+    
+    @Resource
+    private SyncCheckpointStore syncCheckpointStore;
+    
+    @Resource
+    private ShardLeaseManager shardLeaseManager;
+    
+    @Resource
+    private AdaptiveConcurrencyController adaptiveConcurrencyController;
+    
+    @Resource
+    private LikeNotifyAggregator likeNotifyAggregator;
+    
+    @Resource
+    private LikeNotifyMetrics likeNotifyMetrics;
+    
+    @Resource
+    private SqlSessionFactory sqlSessionFactory;
+    
+    @Resource
+    private NotifiedRelationStore notifiedRelationStore;
+    
+    @Resource
+    private ResourceBudget resourceBudget;
+    
+    @Resource
+    private RunRegistry runRegistry;
+
+    @Resource
+    private NotifyRetryQueue notifyRetryQueue;
+    
+    @Resource
+    private RunHistoryStore runHistoryStore;
+    
+    @Resource
+    @Qualifier("jobTaskExecutor")
+    private Executor jobTaskExecutor;
     
     @Autowired
     private ApplicationContext applicationContext;
     
+    public static final String JOB_NAME = "like-notify";
+    
+    public static final String TRIGGER_MANUAL = "manual";
+    public static final String TRIGGER_RESUME = "resume";
+    public static final String TRIGGER_SCHEDULED = "scheduled";
+    public static final String TRIGGER_SHARD_JOIN = "shard-join";
+    
     // 配置参数
     private static final int DEFAULT_BATCH_SIZE = 200;
     private static final int MAX_BATCH_SIZE = 500;
     private static final int MIN_BATCH_SIZE = 100;
-    private static final int CONCURRENT_THREADS = 1;
     private static final int LOG_INTERVAL = 10;
-    private static final int NOTIFY_BATCH_SIZE = 20;
     private static final int MAX_RETRY_TIMES = 3;
     private static final int RETRY_DELAY_MS = 3000;
-    private static final int MEMORY_CHECK_INTERVAL = 20;
-    private static final long MEMORY_THRESHOLD = 800 * 1024 * 1024;
     private static final long SHUTDOWN_TIMEOUT_MS = 30000;
     private static final int MAX_CONSECUTIVE_FAILURES = 5;
     private static final long FAILURE_COOLDOWN_MS = 10000;
     
-    // 任务状态跟踪
-    private volatile boolean isRunning = false;
-    private volatile long lastProcessedPage = -1;
-    private volatile long totalProcessedCount = 0;
-    private volatile long startTime = 0;
-    
     // 应用关闭标志
     private final AtomicBoolean isShuttingDown = new AtomicBoolean(false);
-    private volatile Executor currentExecutor = null;
+    private volatile List<PipelineStage<?>> currentStages = Collections.emptyList();
     
     // 健壮性相关状态
     private final AtomicInteger consecutiveFailures = new AtomicInteger(0);
@@ -84,7 +166,7 @@ public class LikeNotifySyncJob {
      */
     public void scheduledSyncLikeNotifications() {
         log.info("定时任务触发点赞通知同步");
-        syncLikeNotifications(0, -1, -1);
+        syncLikeNotifications(LikeNotifySyncMode.INCREMENTAL, 0L, -1L, -1, TRIGGER_SCHEDULED);
     }
 
     /**
@@ -95,10 +177,10 @@ public class LikeNotifySyncJob {
         log.info("应用正在关闭，设置关闭标志");
         isShuttingDown.set(true);
         
-        if (isRunning) {
+        if (isTaskRunning()) {
             log.info("等待当前任务完成，超时时间: {}ms", SHUTDOWN_TIMEOUT_MS);
             long waitStart = System.currentTimeMillis();
-            while (isRunning && (System.currentTimeMillis() - waitStart) < SHUTDOWN_TIMEOUT_MS) {
+            while (isTaskRunning() && (System.currentTimeMillis() - waitStart) < SHUTDOWN_TIMEOUT_MS) {
                 try {
                     Thread.sleep(1000);
                 } catch (InterruptedException e) {
@@ -107,25 +189,14 @@ public class LikeNotifySyncJob {
                 }
             }
             
-            if (isRunning) {
+            if (isTaskRunning()) {
                 log.warn("任务未在超时时间内完成，强制停止");
             } else {
                 log.info("任务已正常完成");
             }
         }
         
-        if (currentExecutor instanceof ForkJoinPool) {
-            ForkJoinPool pool = (ForkJoinPool) currentExecutor;
-            pool.shutdown();
-            try {
-                if (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
-                    pool.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                pool.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-        }
+        currentStages.forEach(PipelineStage::abort);
     }
 
     /**
@@ -178,212 +249,906 @@ public class LikeNotifySyncJob {
      */
     @Async("jobTaskExecutor")
     public void syncLikeNotifications(String actualCount) {
-        syncLikeNotifications(0, -1, -1);
+        syncLikeNotifications(LikeNotifySyncMode.FULL, 0L, -1L, -1, TRIGGER_MANUAL);
+    }
+
+    /**
+     * 按同步模式执行的点赞通知同步任务
+     *
+     * @param mode      同步模式
+     * @param startId   起始关系 id（包含），仅 RANGE 模式生效
+     * @param endId     结束关系 id（包含），小于等于0表示不限制，仅 RANGE 模式生效
+     * @param batchSize 批量大小，小于等于0表示自动计算
+     * @param trigger   触发方式，记录到运行登记和运行历史，如 {@link #TRIGGER_SCHEDULED}、{@link #TRIGGER_MANUAL}
+     */
+    @Async("jobTaskExecutor")
+    public void syncLikeNotifications(LikeNotifySyncMode mode, long startId, long endId, int batchSize, String trigger) {
+        RunRecord record = tryAdmit(RunRegistry.newRunId(), mode.name(), trigger);
+        if (record != null) {
+            runGuarded(record, () -> syncLikeNotificationsReal(record, mode, startId, endId, batchSize, null));
+        }
+    }
+
+    /**
+     * 登记并提交一次点赞通知同步，准入失败时直接抛出异常，调用方据此得知请求是否被接受
+     *
+     * @return 本次运行的运行id
+     * @throws IllegalStateException 已有运行在进行、应用正在关闭或处于失败冷却期
+     */
+    public String submitSync(LikeNotifySyncMode mode, long startId, long endId, int batchSize) {
+        RunRecord record = admit(RunRegistry.newRunId(), mode.name(), TRIGGER_MANUAL);
+        dispatch(record, () -> syncLikeNotificationsReal(record, mode, startId, endId, batchSize, null));
+        return record.getRunId();
     }
 
     /**
-     * 带批次范围控制的点赞通知同步任务
+     * 登记并提交一次检查点恢复，恢复的运行沿用检查点的运行id
+     *
+     * @param runId 要恢复的运行id，为空时恢复最近一次运行
+     * @return 恢复的运行id
+     * @throws IllegalArgumentException 检查点不存在或运行已完成
+     * @throws IllegalStateException    已有运行在进行、应用正在关闭或处于失败冷却期
+     */
+    public String submitResume(String runId) {
+        SyncCheckpoint checkpoint = loadResumableCheckpoint(runId);
+        if (checkpoint == null) {
+            throw new IllegalArgumentException("未找到可恢复的检查点，runId: " + runId);
+        }
+        RunRecord record = admit(checkpoint.getRunId(), checkpoint.getMode(), TRIGGER_RESUME);
+        dispatch(record, () -> resume(record, checkpoint));
+        return record.getRunId();
+    }
+
+    /**
+     * 从检查点恢复未完成的点赞通知同步
+     *
+     * @param runId 要恢复的运行id，为空时恢复最近一次运行
      */
     @Async("jobTaskExecutor")
-    public void syncLikeNotifications(int startBatch, int endBatch, int batchSize) {
-        if (isRunning) {
-            log.warn("点赞通知同步任务已在运行中，跳过本次请求");
+    public void resumeLikeNotifications(String runId) {
+        SyncCheckpoint checkpoint = loadResumableCheckpoint(runId);
+        if (checkpoint == null) {
+            log.warn("未找到可恢复的检查点，runId: {}", runId);
             return;
         }
-        
+        RunRecord record = tryAdmit(checkpoint.getRunId(), checkpoint.getMode(), TRIGGER_RESUME);
+        if (record != null) {
+            runGuarded(record, () -> resume(record, checkpoint));
+        }
+    }
+
+    /**
+     * 加载可恢复的检查点，运行已完成时返回 null
+     */
+    private SyncCheckpoint loadResumableCheckpoint(String runId) {
+        SyncCheckpoint checkpoint = syncCheckpointStore.load(JOB_NAME, runId);
+        if (checkpoint != null && SyncCheckpoint.STATUS_COMPLETED.equals(checkpoint.getStatus())) {
+            log.info("运行 {} 已完成，无需恢复", checkpoint.getRunId());
+            return null;
+        }
+        return checkpoint;
+    }
+
+    private void resume(RunRecord record, SyncCheckpoint checkpoint) throws InterruptedException {
+        log.info("从检查点恢复点赞通知同步，runId: {}, mode: {}, 游标id: {}, 结束id: {}, 已处理: {}, 待重放失败范围: {}", 
+                checkpoint.getRunId(), checkpoint.getMode(), checkpoint.getCursorId(), 
+                checkpoint.getEndId(), checkpoint.getProcessedCount(), checkpoint.getFailedRanges().size());
+        syncLikeNotificationsReal(record, LikeNotifySyncMode.valueOf(checkpoint.getMode()), checkpoint.getCursorId() + 1, 
+                checkpoint.getEndId(), checkpoint.getBatchSize(), checkpoint);
+    }
+
+    /**
+     * 加入其他节点发布的分片运行，抢占并处理尚未完成的分片
+     *
+     * @param runId 分片运行id
+     */
+    @Async("jobTaskExecutor")
+    public void joinShardedRun(String runId) {
+        RunRecord record = tryAdmit(runId, null, TRIGGER_SHARD_JOIN);
+        if (record != null) {
+            runGuarded(record, () -> processShardedRun(record, runId));
+        }
+    }
+
+    /**
+     * 原子地登记一次运行：应用关闭、失败冷却或已有活跃运行时拒绝
+     *
+     * @throws IllegalStateException 拒绝原因
+     */
+    private RunRecord admit(String runId, String mode, String trigger) {
         if (isApplicationShuttingDown()) {
-            log.warn("应用正在关闭，跳过点赞通知同步任务");
-            return;
+            throw new IllegalStateException("应用正在关闭，跳过点赞通知同步任务");
         }
-        
         if (shouldSkipExecution()) {
-            return;
+            throw new IllegalStateException("连续失败次数过多，处于冷却期");
         }
-        
-        isRunning = true;
-        startTime = System.currentTimeMillis();
-        
+        RunRecord record = runRegistry.tryAdmit(JOB_NAME, runId, mode, trigger);
+        if (record == null) {
+            RunRecord active = runRegistry.getActive(JOB_NAME);
+            throw new IllegalStateException("点赞通知同步任务已在运行中，runId: " + (active == null ? "" : active.getRunId()));
+        }
+        return record;
+    }
+
+    /**
+     * 定时和分片加入等内部入口使用：准入失败时只记录日志
+     */
+    private RunRecord tryAdmit(String runId, String mode, String trigger) {
+        try {
+            return admit(runId, mode, trigger);
+        } catch (IllegalStateException e) {
+            log.warn("{}，跳过本次请求", e.getMessage());
+            return null;
+        }
+    }
+
+    private void dispatch(RunRecord record, SyncBody body) {
+        try {
+            jobTaskExecutor.execute(() -> runGuarded(record, body));
+        } catch (RuntimeException e) {
+            runRegistry.finish(record, RunRecord.STATUS_FAILED, "提交运行失败: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * 在运行保护下执行已登记的同步主体，结束时释放准入并记录结果
+     */
+    private void runGuarded(RunRecord record, SyncBody body) {
+        String status = RunRecord.STATUS_FAILED;
+        String failureMessage = null;
         try {
-            syncLikeNotificationsReal(startBatch, endBatch, batchSize);
+            body.run();
             recordSuccess();
+            status = RunRecord.STATUS_COMPLETED;
         } catch (InterruptedException e) {
             log.warn("点赞通知同步任务被中断");
             Thread.currentThread().interrupt();
+            status = RunRecord.STATUS_INTERRUPTED;
         } catch (OutOfMemoryError e) {
             log.error("点赞通知同步任务内存不足", e);
             recordFailure();
-            System.gc();
+            failureMessage = "内存不足";
         } catch (Exception e) {
             log.error("点赞通知同步任务执行异常", e);
             recordFailure();
+            failureMessage = e.getMessage();
         } catch (Error e) {
             log.error("点赞通知同步任务发生严重错误", e);
             recordFailure();
+            failureMessage = e.toString();
         } finally {
-            isRunning = false;
-            log.info("点赞通知同步任务结束，总处理数据量: {}, 最后处理页数: {}, 连续失败次数: {}", 
-                    totalProcessedCount, lastProcessedPage, consecutiveFailures.get());
+            runRegistry.finish(record, status, failureMessage);
+            runHistoryStore.save(record);
+            log.info("点赞通知同步任务结束，runId: {}, 状态: {}, 总处理数据量: {}, 最后处理关系id: {}, 连续失败次数: {}", 
+                    record.getRunId(), record.getStatus(), record.getProcessedCount(), record.getLastProcessedId(), 
+                    consecutiveFailures.get());
         }
     }
 
-    private void syncLikeNotificationsReal(int startBatch, int endBatch, int batchSize) throws InterruptedException {
+    private void syncLikeNotificationsReal(RunRecord record, LikeNotifySyncMode mode, long startId, long endId, int batchSize,
+                                           SyncCheckpoint resumeFrom) throws InterruptedException {
         long startTime = System.currentTimeMillis();
-        log.info("开始同步点赞通知，startBatch: {}, endBatch: {}, batchSize: {}", 
-                startBatch, endBatch, batchSize);
+        log.info("开始同步点赞通知，mode: {}, startId: {}, endId: {}, batchSize: {}", 
+                mode, startId, endId, batchSize);
         
         try {
-            Long totalCount = relationDao.count(RelationTypeEnum.USER_LIKE_CONTENT.getCode(), null);
+            Long totalCount = ReadRoutingDataSource.readFromReplica(
+                    () -> relationDao.count(RelationTypeEnum.USER_LIKE_CONTENT.getCode(), null));
             
             if (totalCount == null || totalCount <= 0) {
                 log.warn("没有已插入的点赞关系数据需要同步通知，totalCount: {}", totalCount);
                 return;
             }
 
-            int calculatedBatchSize = batchSize > 0 ? batchSize : calculateOptimalBatchSize(totalCount);
-            int totalBatches = (int) Math.ceil((double) totalCount / calculatedBatchSize);
-            
-            int actualStartBatch = Math.max(0, startBatch);
-            int actualEndBatch = endBatch > 0 ? Math.min(endBatch, totalBatches - 1) : totalBatches - 1;
-            int actualTotalBatches = actualEndBatch - actualStartBatch + 1;
-            
-            if (actualStartBatch > actualEndBatch) {
-                log.warn("起始批次大于结束批次，跳过同步: startBatch={}, endBatch={}, totalBatches={}", 
-                        startBatch, endBatch, totalBatches);
+            long[] range = resumeFrom != null ? new long[]{startId, endId} : resolveIdRange(mode, startId, endId);
+            if (range == null) {
                 return;
             }
-            
-            log.info("通知同步配置 - 总数据量: {}, 批量大小: {}, 总批次数: {}, 处理批次范围: {}-{}, 实际处理批次数: {}, 并发线程数: {}", 
-                    totalCount, calculatedBatchSize, totalBatches, actualStartBatch, actualEndBatch, actualTotalBatches, CONCURRENT_THREADS);
+            long actualStartId = range[0];
+            long actualEndId = range[1];
 
-            currentExecutor = new ForkJoinPool(CONCURRENT_THREADS);
-            List<CompletableFuture<Void>> futures = new ArrayList<>();
-            AtomicInteger processedBatches = new AtomicInteger(0);
-            AtomicLong processedCount = new AtomicLong(0);
-            AtomicInteger successBatches = new AtomicInteger(0);
-            AtomicInteger failedBatches = new AtomicInteger(0);
+            int calculatedBatchSize = batchSize > 0 ? batchSize : calculateOptimalBatchSize(totalCount);
+            adaptiveConcurrencyController.begin(calculatedBatchSize, batchSize > 0);
+            record.describe(actualStartId, actualEndId, calculatedBatchSize, runParams());
+            log.info("通知同步配置 - 总数据量: {}, 批量大小: {}, 处理id范围: {}-{}, 读取/补全/写入并发: {}/{}/{}, 阶段队列容量: {}, IO执行器: {}", 
+                    totalCount, calculatedBatchSize, actualStartId, actualEndId, likeNotifyProperties.getPipelineReaderThreads(),
+                    likeNotifyProperties.getPipelineEnrichThreads(), likeNotifyProperties.getPipelineWriteThreads(),
+                    likeNotifyProperties.getPipelineQueueCapacity(), likeNotifyProperties.getExecutorMode());
 
-            try {
-                for (int pageNo = actualStartBatch; pageNo <= actualEndBatch; pageNo++) {
-                    if (isApplicationShuttingDown()) {
-                        log.warn("应用正在关闭，停止处理剩余批次");
-                        break;
-                    }
-                    
-                    final int currentPageNo = pageNo;
-                    CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                        try {
-                            if (isApplicationShuttingDown()) {
-                                log.debug("应用正在关闭，跳过批次 {}", currentPageNo);
-                                return;
-                            }
-                            
-                            List<SocialRelation> batchList = pageQueryLikeRelations(currentPageNo, calculatedBatchSize);
-                            
-                            if (!batchList.isEmpty()) {
-                                boolean success = processBatchNotifySync(batchList);
-                                if (success) {
-                                    successBatches.incrementAndGet();
-                                    lastProcessedPage = currentPageNo;
-                                    totalProcessedCount += batchList.size();
-                                } else {
-                                    failedBatches.incrementAndGet();
-                                    log.error("通知同步批次 {} 处理失败", currentPageNo);
-                                }
-                                processedCount.addAndGet(batchList.size());
-                            }
-                            
-                            batchList.clear();
-                            batchList = null;
-                            System.gc();
-                            
-                            int currentProcessed = processedBatches.incrementAndGet();
-                            if (currentProcessed % LOG_INTERVAL == 0 || currentProcessed == actualTotalBatches) {
-                                log.info("通知同步进度: {}/{} 批次完成, 已处理: {} 条数据, 成功: {} 批次, 失败: {} 批次", 
-                                        currentProcessed, actualTotalBatches, processedCount.get(), 
-                                        successBatches.get(), failedBatches.get());
-                            }
-                            
-                            if (currentProcessed % MEMORY_CHECK_INTERVAL == 0) {
-                                checkAndCleanMemory();
-                            }
-                        } catch (Exception e) {
-                            failedBatches.incrementAndGet();
-                            log.error("处理通知同步批次 {} 失败", currentPageNo, e);
-                        }
-                    }, currentExecutor);
-                    
-                    futures.add(future);
+            SyncRun run;
+            if (resumeFrom == null && likeNotifyProperties.isShardEnabled()) {
+                List<long[]> shards = splitIdRangeBySize(actualStartId, actualEndId, likeNotifyProperties.getShardSize());
+                String activeRunId = shardLeaseManager.publish(JOB_NAME, record.getRunId(), mode.name(), calculatedBatchSize, shards);
+                if (!record.getRunId().equals(activeRunId)) {
+                    log.info("其他节点已发布分片运行，本次运行加入该运行，runId: {}, 活跃运行: {}", record.getRunId(), activeRunId);
+                    processShardedRun(record, activeRunId);
+                    return;
                 }
-
+                run = SyncRun.sharded(record, activeRunId, mode, calculatedBatchSize);
+                processShards(run);
+            } else {
+                run = new SyncRun(record, mode, actualStartId, actualEndId, calculatedBatchSize, resumeFrom);
+                boolean completed = false;
                 try {
-                    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                        .get(30, TimeUnit.MINUTES);
-                } catch (java.util.concurrent.TimeoutException e) {
-                    log.error("通知同步任务超时，已处理: {} 条数据", processedCount.get());
-                } catch (InterruptedException e) {
-                    log.warn("通知同步任务被中断，已处理: {} 条数据", processedCount.get());
-                    futures.forEach(future -> future.cancel(true));
-                    throw e;
-                } catch (Exception e) {
-                    log.error("等待通知同步任务完成时发生异常", e);
+                    boolean replayed = replayFailedRanges(run);
+                    completed = runSegment(run, actualStartId, actualEndId, false) && replayed;
+                } finally {
+                    // 重放期间不推进水位线，段结束时按最终的提交位置补一次
+                    advanceWatermark(run);
+                    saveCheckpoint(run, completed ? SyncCheckpoint.STATUS_COMPLETED : SyncCheckpoint.STATUS_INTERRUPTED);
+                }
+                if (!completed) {
+                    record.markOutcome(RunRecord.STATUS_INTERRUPTED, run.allFailedRanges().isEmpty()
+                            ? "运行未扫描完成，可从检查点恢复" : "运行存在写入失败的批次，水位线停在第一个失败批次之前，可从检查点恢复");
                 }
-            } catch (OutOfMemoryError e) {
-                log.error("通知同步任务内存不足", e);
-                System.gc();
-            } catch (Exception e) {
-                log.error("通知同步任务执行异常", e);
-            } finally {
-                futures.clear();
-                System.gc();
             }
             
             long endTime = System.currentTimeMillis();
             long duration = endTime - startTime;
             
-            log.info("通知同步完成 - 总耗时: {}ms, 总处理: {} 条数据, 成功: {} 批次, 失败: {} 批次, 平均速度: {} 条/秒", 
-                    duration, processedCount.get(), successBatches.get(), failedBatches.get(),
-                    processedCount.get() > 0 ? (processedCount.get() * 1000 / duration) : 0);
+            List<long[]> failedRanges = run.allFailedRanges();
+            if (!failedRanges.isEmpty()) {
+                log.warn("通知同步存在失败批次，失败id范围数: {}", failedRanges.size());
+            }
+            log.info("通知同步完成 - 运行id: {}, 水位线: {}, 总耗时: {}ms, 总处理: {} 条数据, 成功: {} 批次, 失败: {} 批次, 平均速度: {} 条/秒", 
+                    run.runId, run.sharded ? run.savedWatermark : run.committedWatermark(), duration, record.getProcessedCount(), record.getSuccessBatches(), record.getFailedBatches(),
+                    record.getProcessedCount() > 0 ? (record.getProcessedCount() * 1000 / duration) : 0);
                     
+        } catch (InterruptedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("同步任务主流程异常", e);
+            record.markOutcome(RunRecord.STATUS_FAILED, "同步任务主流程异常: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按同步模式确定处理的id范围
+     *
+     * @return [起始id, 结束id]，没有可处理的数据时返回 null
+     */
+    private long[] resolveIdRange(LikeNotifySyncMode mode, long startId, long endId) {
+        Long maxId;
+        if (mode == LikeNotifySyncMode.RANGE) {
+            maxId = ReadRoutingDataSource.readFromReplica(
+                    () -> likeRelationScanDao.queryMaxId(RelationTypeEnum.USER_LIKE_CONTENT.getCode()));
+        } else {
+            Date settledBefore = new Date(System.currentTimeMillis() 
+                    - likeNotifyProperties.getIncrementalOverlapWindowSeconds() * 1000);
+            maxId = ReadRoutingDataSource.readFromReplica(() -> likeRelationScanDao.queryMaxIdCreatedBefore(
+                    RelationTypeEnum.USER_LIKE_CONTENT.getCode(), settledBefore));
+        }
+        if (maxId == null) {
+            log.warn("未查询到点赞关系的最大id，跳过同步");
+            return null;
+        }
+
+        long actualStartId;
+        long actualEndId;
+        if (mode == LikeNotifySyncMode.INCREMENTAL) {
+            Long watermark = syncWatermarkStore.getWatermark(JOB_NAME);
+            actualStartId = watermark == null ? 0L : watermark + 1;
+            actualEndId = maxId;
+            log.info("增量同步，当前水位线: {}", watermark);
+        } else if (mode == LikeNotifySyncMode.FULL) {
+            actualStartId = 0L;
+            actualEndId = maxId;
+        } else {
+            actualStartId = Math.max(0L, startId);
+            actualEndId = endId > 0 ? Math.min(endId, maxId) : maxId;
+        }
+        
+        if (actualStartId > actualEndId) {
+            log.warn("起始id大于结束id，跳过同步: mode={}, startId={}, endId={}, maxId={}", 
+                    mode, actualStartId, actualEndId, maxId);
+            return null;
+        }
+        return new long[]{actualStartId, actualEndId};
+    }
+
+    /**
+     * 试运行：在处理范围内均匀抽样若干批次，走完整的读取、对账过滤、所有者解析和过滤流程但不发送通知，
+     * 推算整个范围的通知数、自赞和无法解析所有者的数量，以及按当前并发配置的预计耗时
+     *
+     * @param sampleBatches 抽样批次数，小于等于0时使用配置值
+     * @return 推算结果，没有可处理的数据时返回 null
+     */
+    public Map<String, Object> estimateSync(LikeNotifySyncMode mode, long startId, long endId, int batchSize, 
+                                            int sampleBatches) {
+        Long totalCount = ReadRoutingDataSource.readFromReplica(
+                () -> relationDao.count(RelationTypeEnum.USER_LIKE_CONTENT.getCode(), null));
+        if (totalCount == null || totalCount <= 0) {
+            return null;
+        }
+        long[] range = resolveIdRange(mode, startId, endId);
+        if (range == null) {
+            return null;
+        }
+        int calculatedBatchSize = batchSize > 0 ? batchSize : calculateOptimalBatchSize(totalCount);
+        int samples = sampleBatches > 0 ? sampleBatches : Math.max(1, likeNotifyProperties.getDryRunSampleBatches());
+        SyncCostEstimate estimate = new SyncCostEstimate(mode.name(), range[0], range[1], calculatedBatchSize, totalCount);
+
+        long span = range[1] - range[0] + 1;
+        long previousAfterId = Long.MIN_VALUE;
+        for (int i = 0; i < samples; i++) {
+            long afterId = range[0] - 1 + span * i / samples;
+            if (afterId <= previousAfterId) {
+                continue;
+            }
+            previousAfterId = afterId;
+            long scanStart = System.currentTimeMillis();
+            RelationColumns batchList = scanLikeRelations(afterId, range[1], calculatedBatchSize);
+            if (batchList == null) {
+                throw new IllegalStateException("扫描点赞关系数据失败，afterId: " + afterId);
+            }
+            long scanLatency = System.currentTimeMillis() - scanStart;
+            long lastId = batchList.size() < calculatedBatchSize ? range[1] : batchList.lastId();
+            estimate.recordScan(batchList.size(), lastId - afterId, scanLatency);
+            if (!batchList.isEmpty()) {
+                sampleBatch(batchList, estimate);
+            }
+        }
+
+        log.info("点赞通知同步试运行完成，mode: {}, 处理id范围: {}-{}, 批量大小: {}, 抽样批次: {}", 
+                mode, range[0], range[1], calculatedBatchSize, samples);
+        double notifyLatencyMs = likeNotifyMetrics.getNotifyCallMeanMs();
+        return estimate.project(likeNotifyProperties.getPipelineReaderThreads(), likeNotifyProperties.getPipelineEnrichThreads(),
+                notifyBatchWriter.getMaxConcurrency(),
+                notifyLatencyMs > 0 ? notifyLatencyMs : likeNotifyProperties.getDryRunNotifyLatencyMs(),
+                resourceBudget.getDownstreamQps());
+    }
+
+    /**
+     * 对一个抽样批次执行补全阶段的过滤，只统计不发送
+     */
+    private void sampleBatch(RelationColumns batch, SyncCostEstimate estimate) {
+        int[] verdicts = enrichRelations(batch, estimate::recordOwnerLookup);
+        estimate.recordFilter(likeNotifyAggregator.countAggregated(toNotifyRequests(batch)), 
+                verdicts[RelationVerdict.SELF_LIKE.ordinal()], verdicts[RelationVerdict.OWNER_MISSING.ordinal()], 
+                verdicts[RelationVerdict.INCOMPLETE.ordinal()], verdicts[RelationVerdict.ALREADY_NOTIFIED.ordinal()]);
+    }
+
+    /**
+     * 影响吞吐量的运行参数，随运行历史保存，便于对比不同运行
+     */
+    private Map<String, Object> runParams() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("scanMode", likeNotifyProperties.getScanMode());
+        params.put("executorMode", likeNotifyProperties.getExecutorMode());
+        params.put("readerThreads", likeNotifyProperties.getPipelineReaderThreads());
+        params.put("enrichThreads", likeNotifyProperties.getPipelineEnrichThreads());
+        params.put("writeThreads", likeNotifyProperties.getPipelineWriteThreads());
+        params.put("notifyMaxInFlight", likeNotifyProperties.getNotifyMaxInFlight());
+        params.put("adaptiveEnabled", likeNotifyProperties.isAdaptiveEnabled());
+        params.put("shardEnabled", likeNotifyProperties.isShardEnabled());
+        params.put("aggregateEnabled", likeNotifyProperties.isNotifyAggregateEnabled());
+        return params;
+    }
+
+    /**
+     * 加入已发布的分片运行
+     *
+     * @param runId 分片运行id，本节点的运行记录可能使用自己的运行id
+     */
+    private void processShardedRun(RunRecord record, String runId) throws InterruptedException {
+        Map<String, String> meta = shardLeaseManager.getRunMeta(JOB_NAME, runId);
+        if (meta.isEmpty()) {
+            log.warn("分片运行不存在或已过期，runId: {}", runId);
+            return;
+        }
+        
+        long startTime = System.currentTimeMillis();
+        record.setMode(meta.get("mode"));
+        SyncRun run = SyncRun.sharded(record, runId, LikeNotifySyncMode.valueOf(meta.get("mode")), 
+                Integer.parseInt(meta.get("batchSize")));
+        record.describe(-1, -1, run.batchSize, runParams());
+        adaptiveConcurrencyController.begin(run.batchSize, false);
+        processShards(run);
+        log.info("分片运行处理结束 - 运行id: {}, 本节点处理分片: {}, 总耗时: {}ms, 处理: {} 条数据, 成功: {} 批次, 失败: {} 批次", 
+                runId, run.shardCount.get(), System.currentTimeMillis() - startTime, record.getProcessedCount(), 
+                record.getSuccessBatches(), record.getFailedBatches());
+    }
+
+    /**
+     * 循环抢占分片运行中的分片并处理，直到没有可抢占的分片；
+     * 分片中途失败或租约丢失时释放租约，交给其他节点重新处理，本节点在本轮中不再抢占这些分片，
+     * 只剩这些分片时退出，之后由分片轮询在下一个轮询周期重新加入
+     */
+    private void processShards(SyncRun run) throws InterruptedException {
+        Set<Integer> failedShards = new HashSet<>();
+        while (!isApplicationShuttingDown()) {
+            ShardLease lease = shardLeaseManager.acquire(JOB_NAME, run.runId, failedShards);
+            if (lease == null) {
+                break;
+            }
+            
+            run.currentLease = lease;
+            run.shardCount.incrementAndGet();
+            boolean completed = false;
+            try {
+                completed = runSegment(run, lease.getStartId(), lease.getEndId(), false);
+            } finally {
+                run.currentLease = null;
+                // 关闭时被中断的读取不能视为分片完成，否则水位线会越过未读取的数据
+                if (completed && !lease.isLost() && !isApplicationShuttingDown()) {
+                    shardLeaseManager.complete(lease);
+                } else {
+                    log.warn("分片未完成，释放租约，runId: {}, 分片: {}, 租约丢失: {}", 
+                            run.runId, lease.getShardIndex(), lease.isLost());
+                    shardLeaseManager.release(lease);
+                    failedShards.add(lease.getShardIndex());
+                }
+            }
+            advanceShardWatermark(run);
+        }
+        
+        if (shardLeaseManager.isAllDone(JOB_NAME, run.runId)) {
+            shardLeaseManager.finish(JOB_NAME, run.runId);
+        } else if (!failedShards.isEmpty()) {
+            log.warn("本节点处理失败的分片已交还，等待其他节点或下一个轮询周期重新处理，runId: {}, 分片: {}", 
+                    run.runId, failedShards);
+            run.record.markOutcome(RunRecord.STATUS_INTERRUPTED, "分片未全部完成，失败分片: " + failedShards);
+        }
+    }
+
+    /**
+     * 从检查点恢复时，先逐个重新处理检查点中记录的失败范围；全部提交的范围从待重放列表中移除，
+     * 仍未成功的范围整体保留，随检查点保存，下次恢复时再重放
+     *
+     * @return 失败范围是否全部重放成功
+     */
+    private boolean replayFailedRanges(SyncRun run) throws InterruptedException {
+        boolean allReplayed = true;
+        for (long[] range : run.pendingReplayRanges()) {
+            if (isApplicationShuttingDown()) {
+                return false;
+            }
+            log.info("重新处理检查点中的失败范围，runId: {}, id范围: {}-{}", run.runId, range[0], range[1]);
+            boolean completed = runSegment(run, range[0], range[1], true);
+            run.finishReplay(range, completed);
+            if (!completed) {
+                log.warn("失败范围重放未完成，保留到检查点，runId: {}, id范围: {}-{}", run.runId, range[0], range[1]);
+                allReplayed = false;
+            }
+        }
+        return allReplayed;
+    }
+
+    /**
+     * 在一个id范围上运行 读取 -> 补全 -> 写入 流水线
+     *
+     * @param replay 是否为重放检查点中的失败范围
+     * @return 范围内的数据是否全部提交
+     */
+    private boolean runSegment(SyncRun run, long segmentStartId, long segmentEndId, boolean replay) throws InterruptedException {
+        List<long[]> readRanges = splitIdRange(segmentStartId, segmentEndId, likeNotifyProperties.getPipelineReaderThreads());
+        RangeCommitTracker tracker = new RangeCommitTracker(readRanges);
+        run.nextSegment(tracker, replay);
+        
+        PipelineStage<LikeNotifyBatch> writeStage = new PipelineStage<>("like-notify-write",
+                adaptiveConcurrencyController.getMaxWriteThreads(), likeNotifyProperties.getPipelineQueueCapacity(),
+                batch -> writeBatch(batch, run));
+        PipelineStage<LikeNotifyBatch> enrichStage = new PipelineStage<>("like-notify-enrich",
+                likeNotifyProperties.getPipelineEnrichThreads(), likeNotifyProperties.getPipelineQueueCapacity(),
+                batch -> {
+                    enrichRelations(batch.getRelations(), latency -> recordOwnerLookupLatency(run, latency));
+                    writeStage.put(batch);
+                });
+        PipelineStage<Integer> readStage = new PipelineStage<>("like-notify-read",
+                readRanges.size(), readRanges.size(),
+                rangeIndex -> readRange(rangeIndex, readRanges.get(rangeIndex), run, enrichStage));
+        currentStages = Arrays.asList(readStage, enrichStage, writeStage);
+        for (PipelineStage<?> stage : currentStages) {
+            likeNotifyMetrics.bindStageQueue(stage.getName(), stage::getQueueSize);
+        }
+
+        try {
+            writeStage.start();
+            enrichStage.start();
+            readStage.start();
+            for (int i = 0; i < readRanges.size(); i++) {
+                readStage.put(i);
+            }
+            
+            readStage.finishInput();
+            readStage.awaitTermination();
+            enrichStage.finishInput();
+            enrichStage.awaitTermination();
+            writeStage.finishInput();
+            writeStage.awaitTermination();
+        } catch (InterruptedException e) {
+            log.warn("通知同步任务被中断，已处理: {} 条数据", run.record.getProcessedCount());
+            currentStages.forEach(PipelineStage::abort);
+            throw e;
+        } finally {
+            currentStages = Collections.emptyList();
+            likeNotifyMetrics.unbindStageQueues();
+        }
+        return tracker.getWatermark() >= segmentEndId;
+    }
+
+    /**
+     * 将id范围按固定跨度切分为分片
+     */
+    private List<long[]> splitIdRangeBySize(long startId, long endId, long shardSize) {
+        List<long[]> shards = new ArrayList<>();
+        long step = Math.max(1, shardSize);
+        for (long shardStart = startId; shardStart <= endId; shardStart += step) {
+            shards.add(new long[]{shardStart, Math.min(endId, shardStart + step - 1)});
+        }
+        return shards;
+    }
+
+    /**
+     * 将id范围按读取并发数切分为连续的子范围
+     */
+    private List<long[]> splitIdRange(long startId, long endId, int parts) {
+        List<long[]> ranges = new ArrayList<>();
+        long span = endId - startId + 1;
+        int actualParts = (int) Math.max(1, Math.min(parts, span));
+        long step = span / actualParts;
+        long rangeStart = startId;
+        for (int i = 0; i < actualParts; i++) {
+            long rangeEnd = i == actualParts - 1 ? endId : rangeStart + step - 1;
+            ranges.add(new long[]{rangeStart, rangeEnd});
+            rangeStart = rangeEnd + 1;
+        }
+        return ranges;
+    }
+
+    /**
+     * 读取阶段：扫描一个id子范围，批次交给补全阶段，补全队列满时阻塞；
+     * 只有正常扫描到范围末尾才标记该范围读取完毕
+     */
+    private void readRange(int rangeIndex, long[] range, SyncRun run,
+                           PipelineStage<LikeNotifyBatch> enrichStage) throws InterruptedException {
+        long rangeStartId = range[0];
+        long rangeEndId = range[1];
+        boolean completed;
+        if (LikeNotifyProperties.SCAN_MODE_STREAM.equalsIgnoreCase(likeNotifyProperties.getScanMode())) {
+            completed = true;
+            long windowSize = Math.max(1, likeNotifyProperties.getStreamWindowSize());
+            for (long cursor = rangeStartId - 1; completed && cursor < rangeEndId; cursor += windowSize) {
+                completed = streamRange(rangeIndex, cursor, Math.min(rangeEndId, cursor + windowSize), run, enrichStage);
+            }
+        } else {
+            completed = pageRange(rangeIndex, rangeStartId - 1, rangeEndId, run, enrichStage);
+        }
+        if (completed) {
+            run.tracker.finishRange(rangeIndex);
+        }
+    }
+
+    /**
+     * 按主键游标分页扫描 (afterId, endId]，每页使用自适应控制器当前的批量大小
+     *
+     * @return 是否扫描到范围末尾
+     */
+    private boolean pageRange(int rangeIndex, long afterId, long endId, SyncRun run,
+                              PipelineStage<LikeNotifyBatch> enrichStage) throws InterruptedException {
+        long cursor = afterId;
+        while (cursor < endId) {
+            if (shouldStopReading(run, cursor)) {
+                return false;
+            }
+            
+            memoryGovernor.awaitHeadroom();
+            dbHealthGovernor.awaitHealthy();
+            int batchSize = adaptiveConcurrencyController.getBatchSize();
+            long scanStart = System.currentTimeMillis();
+            ScanPage page = likeNotifyProperties.isOwnerJoinEnabled()
+                    ? scanLikeNotifyRows(cursor, endId, batchSize)
+                    : scanLikePage(cursor, endId, batchSize);
+            recordScanLatency(run, System.currentTimeMillis() - scanStart);
+            if (page == null) {
+                if (isApplicationShuttingDown()) {
+                    log.warn("应用正在关闭，停止读取剩余数据，当前游标id: {}", cursor);
+                } else {
+                    log.error("扫描点赞关系数据失败，终止读取id范围 {}-{}，当前游标id: {}", afterId + 1, endId, cursor);
+                }
+                return false;
+            }
+            
+            // 库内关联过滤后整页可能为空，游标仍推进到本页上界
+            if (!page.rows.isEmpty()) {
+                enrichStage.put(new LikeNotifyBatch(rangeIndex, run.tracker.register(rangeIndex), page.rows, 
+                        cursor + 1, page.endId));
+            }
+            cursor = page.endId;
+            if (page.last) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 在一次流式查询内读取 (afterId, endId]，逐行攒满一个批次即交给补全阶段，内存中只保留当前批次；
+     * 内存和数据库健康的节奏控制在打开窗口前进行，不在打开的结果集中途长时间等待，避免占住副本连接或触发 net_write_timeout；
+     * 流式读取失败时从最后交出的id起改为分页扫描窗口剩余部分
+     *
+     * @return 是否扫描到范围末尾
+     */
+    private boolean streamRange(int rangeIndex, long afterId, long endId, SyncRun run,
+                                PipelineStage<LikeNotifyBatch> enrichStage) throws InterruptedException {
+        long lastEmittedId = afterId;
+        if (shouldStopReading(run, afterId)) {
+            return false;
+        }
+        memoryGovernor.awaitHeadroom();
+        dbHealthGovernor.awaitHealthy();
+        // 流式查询在整个窗口内持有连接，占用一个全局数据库连接预算，且不能占满预算
+        if (!resourceBudget.acquireStreamConnection()) {
+            return pageRange(rangeIndex, afterId, endId, run, enrichStage);
+        }
+        try (SqlSession session = sqlSessionFactory.openSession();
+             Cursor<SocialRelation> rows = ReadRoutingDataSource.readFromReplica(() -> session.getMapper(LikeRelationScanDao.class)
+                     .streamRelationsAfterId(RelationTypeEnum.USER_LIKE_CONTENT.getCode(), afterId, endId))) {
+            int batchSize = adaptiveConcurrencyController.getBatchSize();
+            RelationColumns buffer = new RelationColumns(batchSize);
+            long fillStart = System.currentTimeMillis();
+            for (SocialRelation relation : rows) {
+                buffer.add(relation);
+                if (buffer.size() < batchSize) {
+                    continue;
+                }
+                
+                recordScanLatency(run, System.currentTimeMillis() - fillStart);
+                if (shouldStopReading(run, lastEmittedId)) {
+                    return false;
+                }
+                LikeNotifyBatch batch = new LikeNotifyBatch(rangeIndex, run.tracker.register(rangeIndex), buffer);
+                enrichStage.put(batch);
+                lastEmittedId = batch.getLastId();
+                
+                batchSize = adaptiveConcurrencyController.getBatchSize();
+                buffer = new RelationColumns(batchSize);
+                fillStart = System.currentTimeMillis();
+            }
+            
+            if (!buffer.isEmpty()) {
+                recordScanLatency(run, System.currentTimeMillis() - fillStart);
+                LikeNotifyBatch batch = new LikeNotifyBatch(rangeIndex, run.tracker.register(rangeIndex), buffer);
+                enrichStage.put(batch);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("流式读取点赞关系失败，从id {} 起改为分页扫描至 {}，错误: {}", lastEmittedId, endId, e.getMessage());
+        } finally {
+            resourceBudget.releaseStreamConnection();
+        }
+        likeNotifyMetrics.recordScanRetry();
+        return pageRange(rangeIndex, lastEmittedId, endId, run, enrichStage);
+    }
+
+    private boolean shouldStopReading(SyncRun run, long cursor) {
+        if (isApplicationShuttingDown()) {
+            log.warn("应用正在关闭，停止读取剩余数据，当前游标id: {}", cursor);
+            return true;
+        }
+        if (run.isLeaseLost()) {
+            log.warn("分片租约已丢失，停止读取剩余数据，当前游标id: {}", cursor);
+            return true;
+        }
+        return false;
+    }
+
+    private void recordScanLatency(SyncRun run, long latencyMs) {
+        run.record.recordLatency(RunRecord.STAGE_SCAN, latencyMs);
+        adaptiveConcurrencyController.recordScan(latencyMs);
+        likeNotifyMetrics.recordPageQuery(latencyMs);
+    }
+
+    private void recordOwnerLookupLatency(SyncRun run, long latencyMs) {
+        run.record.recordLatency(RunRecord.STAGE_OWNER_LOOKUP, latencyMs);
+        adaptiveConcurrencyController.recordOwnerLookup(latencyMs);
+        likeNotifyMetrics.recordOwnerLookup(latencyMs);
+    }
+
+    /**
+     * 写入阶段：发送批次通知并更新进度
+     */
+    private void writeBatch(LikeNotifyBatch batch, SyncRun run) throws InterruptedException {
+        if (isApplicationShuttingDown()) {
+            log.debug("应用正在关闭，跳过id范围 {}-{}", batch.getFirstId(), batch.getLastId());
+            return;
+        }
+        
+        List<MessageNotifyReq> requests = likeNotifyAggregator.aggregate(toNotifyRequests(batch.getRelations()));
+        dbHealthGovernor.awaitHealthy();
+        boolean success;
+        adaptiveConcurrencyController.acquireWritePermit();
+        long writeStart = System.currentTimeMillis();
+        try {
+            success = processBatchNotifySync(requests);
+        } finally {
+            adaptiveConcurrencyController.releaseWritePermit();
+        }
+        long writeLatency = System.currentTimeMillis() - writeStart;
+        likeNotifyMetrics.recordBatch(writeLatency, batch.getRelationCount(), requests.size(), success);
+        run.record.recordLatency(RunRecord.STAGE_WRITE, writeLatency);
+        run.record.recordBatch(batch.getRelationCount(), batch.getLastId(), success);
+        if (!success) {
+            log.error("通知同步批次处理失败，id范围: {}-{}", batch.getFirstId(), batch.getLastId());
+        }
+        run.tracker.complete(batch.getRangeIndex(), batch.getSequence(), batch.getFirstId(), batch.getLastId(), success);
+        
+        int currentProcessed = run.processedBatches.incrementAndGet();
+        if (run.sharded) {
+            recordShardProgress(run, batch, success);
+        } else {
+            advanceWatermark(run);
+            if (currentProcessed % Math.max(1, likeNotifyProperties.getCheckpointIntervalBatches()) == 0) {
+                saveCheckpoint(run, SyncCheckpoint.STATUS_RUNNING);
+            }
+        }
+        if (currentProcessed % LOG_INTERVAL == 0) {
+            log.info("通知同步进度: {} 批次完成, 当前id: {}, 已处理: {} 条数据, 成功: {} 批次, 失败: {} 批次", 
+                    currentProcessed, batch.getLastId(), run.record.getProcessedCount(), 
+                    run.record.getSuccessBatches(), run.record.getFailedBatches());
         }
     }
 
     /**
-     * 分页查询点赞关系数据
+     * 将连续提交的位置持久化为水位线，不越过尚未重放成功的失败范围；RANGE 模式不影响水位线
      */
-    private List<SocialRelation> pageQueryLikeRelations(Integer pageNo, Integer pageSize) {
+    private void advanceWatermark(SyncRun run) {
+        persistWatermark(run, run.committedWatermark());
+    }
+
+    /**
+     * 分片运行按分片粒度推进水位线：只推进到从第一个分片开始连续完成的位置
+     */
+    private void advanceShardWatermark(SyncRun run) {
+        try {
+            persistWatermark(run, shardLeaseManager.getContiguousDoneEndId(JOB_NAME, run.runId));
+        } catch (Exception e) {
+            log.warn("查询分片完成进度失败，runId: {}, 错误: {}", run.runId, e.getMessage());
+        }
+    }
+
+    private void persistWatermark(SyncRun run, long watermark) {
+        if (run.mode == LikeNotifySyncMode.RANGE) {
+            return;
+        }
+        synchronized (run) {
+            if (watermark <= run.savedWatermark) {
+                return;
+            }
+            try {
+                syncWatermarkStore.advanceWatermark(JOB_NAME, watermark);
+                run.savedWatermark = watermark;
+            } catch (Exception e) {
+                log.warn("保存同步水位线失败，watermark: {}, 错误: {}", watermark, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 上报分片运行的处理进度，上报失败不影响同步
+     */
+    private void recordShardProgress(SyncRun run, LikeNotifyBatch batch, boolean success) {
+        try {
+            shardLeaseManager.recordProgress(JOB_NAME, run.runId, batch.getRelationCount(), success);
+        } catch (Exception e) {
+            log.debug("上报分片进度失败，runId: {}, 错误: {}", run.runId, e.getMessage());
+        }
+    }
+
+    /**
+     * 保存运行检查点，保存失败不影响同步
+     */
+    private void saveCheckpoint(SyncRun run, String status) {
+        SyncCheckpoint checkpoint = new SyncCheckpoint();
+        checkpoint.setRunId(run.runId);
+        checkpoint.setMode(run.mode.name());
+        checkpoint.setStartId(run.startId);
+        checkpoint.setEndId(run.endId);
+        checkpoint.setBatchSize(run.batchSize);
+        checkpoint.setCursorId(run.checkpointCursor());
+        checkpoint.setProcessedCount(run.record.getProcessedCount());
+        checkpoint.setSuccessBatches(run.record.getSuccessBatches());
+        checkpoint.setFailedBatches(run.record.getFailedBatches());
+        checkpoint.setFailedRanges(run.allFailedRanges());
+        checkpoint.setStatus(status);
+        checkpoint.setStartTime(run.startTime);
+        checkpoint.setUpdateTime(System.currentTimeMillis());
+        try {
+            syncCheckpointStore.save(JOB_NAME, checkpoint);
+        } catch (Exception e) {
+            log.warn("保存同步检查点失败，runId: {}, 错误: {}", run.runId, e.getMessage());
+        }
+    }
+
+    /**
+     * 基于主键游标扫描点赞关系数据
+     *
+     * @return 查询结果，重试耗尽或应用正在关闭时返回 null
+     */
+    private RelationColumns scanLikeRelations(long lastId, long endId, int limit) {
+        return scanWithRetry(lastId, limit, () -> {
+            RelationColumns batch = new RelationColumns(limit);
+            likeRelationScanDao.scanRelationColumnsAfterId(
+                    RelationTypeEnum.USER_LIKE_CONTENT.getCode(), 
+                    lastId, 
+                    endId,
+                    limit,
+                    batch.appender()
+            );
+            return batch;
+        });
+    }
+
+    /**
+     * 分页读取一页原始关系，本页上界为最后一条的id，不足一页即到达范围末尾
+     *
+     * @return 查询结果，重试耗尽或应用正在关闭时返回 null
+     */
+    private ScanPage scanLikePage(long lastId, long endId, int limit) {
+        RelationColumns rows = scanLikeRelations(lastId, endId, limit);
+        if (rows == null) {
+            return null;
+        }
+        return new ScanPage(rows, rows.isEmpty() ? endId : rows.lastId(), rows.size() < limit);
+    }
+
+    /**
+     * 分页读取一页并在库内关联内容所有者：先只走索引定位第 limit 条的id作为本页上界，
+     * 再关联查询 (lastId, 上界]；被过滤的行不会让页变短，避免误判为扫描结束
+     *
+     * @return 查询结果，重试耗尽或应用正在关闭时返回 null
+     */
+    private ScanPage scanLikeNotifyRows(long lastId, long endId, int limit) {
+        return scanWithRetry(lastId, limit, () -> {
+            Integer type = RelationTypeEnum.USER_LIKE_CONTENT.getCode();
+            Long pageEndId = likeRelationScanDao.queryPageEndId(type, lastId, endId, Math.max(0, limit - 1));
+            RelationColumns rows = new RelationColumns(limit);
+            likeRelationScanDao.scanLikeNotifyRows(type, lastId, pageEndId == null ? endId : pageEndId, 
+                    rows.ownerAppender());
+            return pageEndId == null ? new ScanPage(rows, endId, true) : new ScanPage(rows, pageEndId, false);
+        });
+    }
+
+    /**
+     * 在数据库连接预算内从只读副本执行扫描查询，失败时按递增间隔重试
+     *
+     * @return 查询结果，重试耗尽、被中断或应用正在关闭时返回 null，调用方据此保持范围未完成
+     */
+    private <R> R scanWithRetry(long lastId, int limit, Supplier<R> scan) {
         for (int retryCount = 0; retryCount <= MAX_RETRY_TIMES; retryCount++) {
             try {
                 if (isApplicationShuttingDown()) {
                     log.debug("应用正在关闭，跳过数据库查询");
-                    return new ArrayList<>();
+                    return null;
                 }
                 
-                return relationDao.pageQueryLikeRelations(
-                        RelationTypeEnum.USER_LIKE_CONTENT.getCode(), 
-                        pageNo, 
-                        pageSize
-                );
+                return resourceBudget.callWithDbConnection(() -> ReadRoutingDataSource.readFromReplica(scan));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
             } catch (Exception e) {
                 if (retryCount == MAX_RETRY_TIMES) {
-                    log.error("分页查询点赞关系数据失败，已重试{}次，pageNo: {}, pageSize: {}", 
-                            MAX_RETRY_TIMES, pageNo, pageSize, e);
-                    return new ArrayList<>();
+                    log.error("扫描点赞关系数据失败，已重试{}次，lastId: {}, limit: {}", 
+                            MAX_RETRY_TIMES, lastId, limit, e);
+                    return null;
                 }
                 
-                log.warn("分页查询点赞关系数据失败，第{}次重试，pageNo: {}, pageSize: {}", 
-                        retryCount + 1, pageNo, pageSize, e);
+                log.warn("扫描点赞关系数据失败，第{}次重试，lastId: {}, limit: {}", 
+                        retryCount + 1, lastId, limit, e);
+                likeNotifyMetrics.recordScanRetry();
                 
                 try {
                     Thread.sleep(RETRY_DELAY_MS * (retryCount + 1));
                 } catch (InterruptedException ie) {
                     Thread.currentThread().interrupt();
-                    return new ArrayList<>();
+                    return null;
                 }
             }
         }
-        return new ArrayList<>();
+        return null;
     }
 
     /**
@@ -400,242 +1165,372 @@ public class LikeNotifySyncJob {
     }
 
     /**
-     * 批量处理点赞通知同步
+     * 批量发送点赞通知，只发送一次：发送失败的通知持久化后交给重试队列逐条退避重发，已成功的不会重复发送
+     *
+     * @return 是否每条通知都已发送或已持久化到重试队列；线程中断导致有通知未发送，或失败通知持久化失败时返回 false，
+     *         批次按失败处理：水位线停在该批次之前并记录到失败范围，由检查点恢复重新处理
      */
-    private boolean processBatchNotifySync(List<SocialRelation> batchList) {
-        for (int retryCount = 0; retryCount <= MAX_RETRY_TIMES; retryCount++) {
-            try {
-                return processBatchNotifySyncInternal(batchList);
-            } catch (Exception e) {
-                if (retryCount == MAX_RETRY_TIMES) {
-                    log.error("批量通知同步处理失败，已重试{}次，批次大小: {}, 错误: {}", 
-                            MAX_RETRY_TIMES, batchList.size(), e.getMessage());
-                    return false;
-                }
-                
-                log.warn("批量通知同步处理失败，第{}次重试，批次大小: {}, 错误: {}", 
-                        retryCount + 1, batchList.size(), e.getMessage());
-                
-                try {
-                    Thread.sleep(RETRY_DELAY_MS * (retryCount + 1));
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    return false;
-                }
-            }
+    private boolean processBatchNotifySync(List<MessageNotifyReq> notifyReqs) {
+        if (notifyReqs.isEmpty()) {
+            return true;
         }
-        return false;
+        
+        int totalCount = notifyReqs.size();
+        log.debug("开始批量处理通知，总数: {}", totalCount);
+        
+        NotifyWriteResult result = notifyBatchWriter.writeAll(notifyReqs);
+        int successCount = result.getSuccessCount();
+        int failCount = result.getFailedCount();
+        adaptiveConcurrencyController.recordWrite(totalCount, failCount);
+        if (failCount > 0 && !notifyRetryQueue.submit(JOB_NAME, result.getFailedRequests())) {
+            log.error("失败通知持久化失败，批次按失败处理，总数: {}, 失败: {}", totalCount, failCount);
+            return false;
+        }
+        if (result.getSkippedCount() > 0) {
+            log.warn("通知写入中止，未写入: {}", result.getSkippedCount());
+        }
+        
+        log.info("批量通知处理完成，总数: {}, 成功: {}, 转入重试队列: {}", totalCount, successCount, failCount);
+        return result.getSkippedCount() == 0;
     }
 
     /**
-     * 批量处理点赞通知同步（内部实现）
+     * 补全阶段：跳过已实时通知的关系，批量解析内容所有者，过滤不完整的关系、无法解析所有者的内容和自己给自己的点赞；
+     * 在批次上原地填充所有者并压缩掉被过滤的行
+     *
+     * @param ownerLookupLatency 所有者解析耗时的记录方式
+     * @return 按 {@link RelationVerdict} 序号统计的行数
      */
-    private boolean processBatchNotifySyncInternal(List<SocialRelation> batchList) {
-        List<MessageNotifyReq> notifyReqs = null;
-        try {
-            log.debug("开始处理点赞通知同步，批次大小: {}", batchList.size());
-            
-            int maxBatchSize = Math.min(batchList.size(), 500);
-            notifyReqs = new ArrayList<>(maxBatchSize);
-            
-            for (int i = 0; i < batchList.size(); i++) {
-                if (isApplicationShuttingDown()) {
-                    log.debug("应用正在关闭，停止处理通知请求");
-                    break;
-                }
-                
-                SocialRelation relation = batchList.get(i);
-                try {
-                    MessageNotifyReq notifyReq = buildLikeNotificationRequest(relation);
-                    if (notifyReq != null) {
-                        notifyReqs.add(notifyReq);
-                    }
-                    
-                    if ((i + 1) % 100 == 0) {
-                        checkAndCleanMemory();
-                    }
-                } catch (Exception e) {
-                    log.warn("构建通知请求失败，sourceId: {}, targetId: {}, error: {}", 
-                            relation.getSourceId(), relation.getTargetId(), e.getMessage());
-                }
+    private int[] enrichRelations(RelationColumns batch, LongConsumer ownerLookupLatency) {
+        log.debug("开始补全点赞关系，批次大小: {}", batch.size());
+        int[] verdicts = new int[RelationVerdict.values().length];
+        int received = batch.size();
+        excludeStreamNotified(batch);
+        verdicts[RelationVerdict.ALREADY_NOTIFIED.ordinal()] = received - batch.size();
+        
+        // 读取时已在库内关联出所有者的行不再解析
+        List<String> contentIds = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.getTargetId(i) != null && batch.getOwnerId(i) == null) {
+                contentIds.add(batch.getTargetId(i));
             }
-            
-            if (!notifyReqs.isEmpty()) {
-                processBatchNotify(notifyReqs);
-                return true;
-            } else {
-                log.debug("没有需要同步的通知消息");
-                return true;
+        }
+        Map<String, String> contentOwners = Collections.emptyMap();
+        if (!contentIds.isEmpty()) {
+            long lookupStart = System.currentTimeMillis();
+            contentOwners = contentOwnerResolver.resolveOwners(contentIds);
+            ownerLookupLatency.accept(System.currentTimeMillis() - lookupStart);
+        }
+        
+        boolean[] keep = new boolean[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            if (isApplicationShuttingDown()) {
+                log.debug("应用正在关闭，停止处理通知请求");
+                break;
             }
             
-        } catch (OutOfMemoryError e) {
-            log.error("通知同步内存不足，批次大小: {}, 错误: {}", batchList.size(), e.getMessage());
-            System.gc();
-            return false;
-        } catch (Exception e) {
-            log.error("批量通知同步处理失败，批次大小: {}, 错误: {}", batchList.size(), e.getMessage());
-            return false;
-        } finally {
-            if (notifyReqs != null) {
-                notifyReqs.clear();
-                notifyReqs = null;
+            String targetId = batch.getTargetId(i);
+            String ownerId = batch.getOwnerId(i);
+            if (ownerId == null && targetId != null) {
+                ownerId = contentOwners.get(targetId);
+            }
+            RelationVerdict verdict = classify(batch.getSourceId(i), targetId, ownerId);
+            verdicts[verdict.ordinal()]++;
+            if (verdict == RelationVerdict.ACCEPTED) {
+                batch.setOwnerId(i, ownerId);
+                keep[i] = true;
+            } else if (verdict == RelationVerdict.INCOMPLETE) {
+                log.warn("关系数据不完整，跳过，id: {}, sourceId: {}, targetId: {}", batch.getId(i), batch.getSourceId(i), targetId);
+            } else if (verdict == RelationVerdict.OWNER_MISSING) {
+                log.debug("无法查询到内容所有者，contentId: {}", targetId);
             }
-            System.gc();
         }
+        batch.retain(keep);
+        return verdicts;
     }
 
     /**
-     * 构建点赞通知请求
+     * 启用实时消费时定时任务作为对账：跳过实时消费者已经通知过的关系，查询失败时不过滤
      */
-    private MessageNotifyReq buildLikeNotificationRequest(SocialRelation relation) {
+    private void excludeStreamNotified(RelationColumns batch) {
+        if (!likeNotifyProperties.isStreamEnabled()) {
+            return;
+        }
         try {
-            if (relation == null || relation.getSourceId() == null || relation.getTargetId() == null) {
-                log.warn("关系数据不完整，跳过: {}", GsonUtil.toJson(relation));
-                return null;
-            }
-            
-            if (isApplicationShuttingDown()) {
-                log.debug("应用正在关闭，跳过构建通知请求");
-                return null;
-            }
-            
-            String contentOwnerId = notifyContentQueryProxy.queryUserIdByContentId(relation.getTargetId());
-            if (contentOwnerId == null) {
-                log.debug("无法查询到内容所有者，contentId: {}", relation.getTargetId());
-                return null;
-            }
-            
-            if (Objects.equals(relation.getSourceId(), contentOwnerId)) {
-                return null;
+            Set<Long> notified = notifiedRelationStore.findNotified(JOB_NAME, batch);
+            if (notified.isEmpty()) {
+                return;
             }
-            
-            MessageNotifyReq req = new MessageNotifyReq();
-            req.setUserId(contentOwnerId);
-            req.setRelateUserId(relation.getSourceId());
-            req.setRelateType(RelationTypeEnum.USER_LIKE_CONTENT.getCode());
-            req.setContentId(relation.getTargetId());
-            if (relation.getCreateTime() != null) {
-                req.setNotifyTime(relation.getCreateTime().getTime());
+            boolean[] keep = new boolean[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                keep[i] = !notified.contains(batch.getId(i));
             }
-            
-            return req;
+            batch.retain(keep);
+            log.debug("对账跳过已实时通知的关系: {}", notified.size());
         } catch (Exception e) {
-            log.error("构建点赞通知请求失败，relation: {}", GsonUtil.toJson(relation), e);
-            return null;
+            log.warn("查询已实时通知的关系失败，本批次不做过滤，错误: {}", e.getMessage());
         }
     }
 
     /**
-     * 批量处理通知
+     * 写入阶段：由补全后的批次构建通知请求，聚合由调用方决定
      */
-    private void processBatchNotify(List<MessageNotifyReq> notifyReqs) {
-        if (notifyReqs.isEmpty()) {
-            return;
+    private List<MessageNotifyReq> toNotifyRequests(RelationColumns batch) {
+        List<MessageNotifyReq> notifyReqs = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            notifyReqs.add(newLikeNotifyRequest(batch.getOwnerId(i), batch.getSourceId(i), batch.getTargetId(i), 
+                    batch.getCreateTime(i)));
         }
-        
-        int totalCount = notifyReqs.size();
-        int successCount = 0;
-        int failCount = 0;
-        
-        log.debug("开始批量处理通知，总数: {}", totalCount);
-        
-        try {
-            for (int i = 0; i < totalCount; i += NOTIFY_BATCH_SIZE) {
-                if (isApplicationShuttingDown()) {
-                    log.debug("应用正在关闭，停止处理通知");
-                    break;
-                }
-                
-                int endIndex = Math.min(i + NOTIFY_BATCH_SIZE, totalCount);
-                List<MessageNotifyReq> batch = notifyReqs.subList(i, endIndex);
-                
-                for (MessageNotifyReq req : batch) {
-                    try {
-                        BaseResponse<Boolean> response = messageNotifyService.notify(req);
-                        if (response != null && response.respIsSuccess() && Boolean.TRUE.equals(response.getData())) {
-                            successCount++;
-                        } else {
-                            failCount++;
-                            log.warn("通知发送失败，req: {}", GsonUtil.toJson(req));
-                        }
-                    } catch (Exception e) {
-                        failCount++;
-                        log.error("通知发送异常，req: {}", GsonUtil.toJson(req), e);
-                    }
-                }
-                
-                if ((i + NOTIFY_BATCH_SIZE) % (NOTIFY_BATCH_SIZE * 5) == 0 || endIndex == totalCount) {
-                    log.debug("通知处理进度: {}/{} 完成", endIndex, totalCount);
-                }
-                
-                if (endIndex < totalCount) {
-                    try {
-                        Thread.sleep(100);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                }
-                
-                if ((i / NOTIFY_BATCH_SIZE + 1) % 5 == 0) {
-                    checkAndCleanMemory();
-                }
+        return notifyReqs;
+    }
+
+    /**
+     * 构建点赞通知请求，过滤不完整的关系、无法解析所有者的内容和自己给自己的点赞；
+     * 实时消费者复用同一过滤逻辑
+     *
+     * @param contentOwners 本批次已解析的内容所有者映射
+     */
+    MessageNotifyReq buildLikeNotificationRequest(SocialRelation relation, Map<String, String> contentOwners) {
+        if (relation == null) {
+            log.warn("关系数据为空，跳过");
+            return null;
+        }
+        String targetId = relation.getTargetId();
+        String ownerId = targetId == null ? null : contentOwners.get(targetId);
+        RelationVerdict verdict = classify(relation.getSourceId(), targetId, ownerId);
+        if (verdict == RelationVerdict.INCOMPLETE) {
+            if (log.isWarnEnabled()) {
+                log.warn("关系数据不完整，跳过: {}", GsonUtil.toJson(relation));
             }
-        } catch (OutOfMemoryError e) {
-            log.error("批量处理通知内存不足，总数: {}, 错误: {}", totalCount, e.getMessage());
-            System.gc();
-        } catch (Exception e) {
-            log.error("批量处理通知异常，总数: {}, 错误: {}", totalCount, e.getMessage());
-        } finally {
-            System.gc();
+            return null;
         }
-        
-        log.info("批量通知处理完成，总数: {}, 成功: {}, 失败: {}", totalCount, successCount, failCount);
+        if (verdict == RelationVerdict.OWNER_MISSING) {
+            log.debug("无法查询到内容所有者，contentId: {}", targetId);
+            return null;
+        }
+        if (verdict == RelationVerdict.SELF_LIKE) {
+            return null;
+        }
+        return newLikeNotifyRequest(ownerId, relation.getSourceId(), targetId, 
+                relation.getCreateTime() != null ? relation.getCreateTime().getTime() : RelationColumns.NO_TIME);
     }
-    
+
+    private MessageNotifyReq newLikeNotifyRequest(String ownerId, String sourceId, String contentId, long createTime) {
+        MessageNotifyReq req = new MessageNotifyReq();
+        req.setUserId(ownerId);
+        req.setRelateUserId(sourceId);
+        req.setRelateType(RelationTypeEnum.USER_LIKE_CONTENT.getCode());
+        req.setContentId(contentId);
+        if (createTime != RelationColumns.NO_TIME) {
+            req.setNotifyTime(createTime);
+        }
+        return req;
+    }
+
+    private RelationVerdict classify(String sourceId, String targetId, String ownerId) {
+        if (sourceId == null || targetId == null) {
+            return RelationVerdict.INCOMPLETE;
+        }
+        if (ownerId == null) {
+            return RelationVerdict.OWNER_MISSING;
+        }
+        return Objects.equals(sourceId, ownerId) ? RelationVerdict.SELF_LIKE : RelationVerdict.ACCEPTED;
+    }
+
     /**
      * 获取任务状态
      */
     public String getTaskStatus() {
-        if (!isRunning) {
+        RunRecord active = runRegistry.getActive(JOB_NAME);
+        if (active == null) {
             return String.format("空闲 (连续失败次数: %d)", consecutiveFailures.get());
         }
         
         long currentTime = System.currentTimeMillis();
-        long runningTime = currentTime - startTime;
+        long runningTime = currentTime - active.getStartTime();
         
-        return String.format("运行中 (已运行: %d分钟, 已处理: %d条数据, 最后处理页数: %d, 连续失败次数: %d)", 
-                runningTime / 60000, totalProcessedCount, lastProcessedPage, consecutiveFailures.get());
+        return String.format("运行中 (运行id: %s, 已运行: %d分钟, 已处理: %d条数据, 最后处理关系id: %d, 连续失败次数: %d)", 
+                active.getRunId(), runningTime / 60000, active.getProcessedCount(), active.getLastProcessedId(), 
+                consecutiveFailures.get());
+    }
+    
+    /**
+     * 获取流水线各阶段状态
+     */
+    public List<Map<String, Object>> getPipelineStatus() {
+        List<Map<String, Object>> stages = new ArrayList<>();
+        for (PipelineStage<?> stage : currentStages) {
+            Map<String, Object> stageStatus = new HashMap<>();
+            stageStatus.put("name", stage.getName());
+            stageStatus.put("parallelism", stage.getParallelism());
+            stageStatus.put("activeWorkers", stage.getActiveWorkers());
+            stageStatus.put("queueSize", stage.getQueueSize());
+            stageStatus.put("handledCount", stage.getHandledCount());
+            stageStatus.put("failedCount", stage.getFailedCount());
+            stages.add(stageStatus);
+        }
+        return stages;
     }
     
     /**
      * 检查任务是否正在运行
      */
     public boolean isTaskRunning() {
-        return isRunning;
+        return runRegistry.getActive(JOB_NAME) != null;
     }
 
     /**
-     * 检查并清理内存
+     * 单条关系的过滤结果
      */
-    private void checkAndCleanMemory() {
-        try {
-            Runtime runtime = Runtime.getRuntime();
-            long usedMemory = runtime.totalMemory() - runtime.freeMemory();
-            long maxMemory = runtime.maxMemory();
-            
-            log.debug("内存使用情况 - 已使用: {}MB, 最大可用: {}MB, 使用率: {}%", 
-                    usedMemory / 1024 / 1024, 
-                    maxMemory / 1024 / 1024,
-                    (usedMemory * 100) / maxMemory);
-            
-            if (usedMemory > MEMORY_THRESHOLD) {
-                log.warn("内存使用超过阈值，执行垃圾回收");
-                System.gc();
-                Thread.sleep(1000);
+    private enum RelationVerdict {
+        ACCEPTED,
+        ALREADY_NOTIFIED,
+        INCOMPLETE,
+        OWNER_MISSING,
+        SELF_LIKE
+    }
+
+    /**
+     * 分页读取的一页：保留的行、本页覆盖到的id上界，以及是否已到达范围末尾
+     */
+    private static class ScanPage {
+        private final RelationColumns rows;
+        private final long endId;
+        private final boolean last;
+
+        private ScanPage(RelationColumns rows, long endId, boolean last) {
+            this.rows = rows;
+            this.endId = endId;
+            this.last = last;
+        }
+    }
+
+    @FunctionalInterface
+    private interface SyncBody {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * 单次同步运行的上下文，从检查点恢复时沿用原运行id和计数，检查点中的失败范围作为待重放范围；
+     * 分片运行中每个分片是一个独立的段，各自使用新的提交跟踪器
+     */
+    private static class SyncRun {
+        private final RunRecord record;
+        private final String runId;
+        private final LikeNotifySyncMode mode;
+        private final long startId;
+        private final long endId;
+        private final int batchSize;
+        private final long startTime;
+        private final boolean sharded;
+        private final List<long[]> failedRanges = new ArrayList<>();
+        private final List<long[]> replayRanges = new ArrayList<>();
+        private final long cursorId;
+        private volatile RangeCommitTracker tracker;
+        private volatile boolean replaying;
+        private volatile ShardLease currentLease;
+        private long savedWatermark = -1;
+        private final AtomicInteger shardCount = new AtomicInteger(0);
+        private final AtomicInteger processedBatches = new AtomicInteger(0);
+
+        private SyncRun(RunRecord record, LikeNotifySyncMode mode, long startId, long endId, int batchSize, 
+                        SyncCheckpoint resumeFrom) {
+            this.record = record;
+            this.runId = record.getRunId();
+            this.mode = mode;
+            this.endId = endId;
+            this.batchSize = batchSize;
+            this.sharded = false;
+            if (resumeFrom == null) {
+                this.startId = startId;
+                this.cursorId = startId - 1;
+                this.startTime = System.currentTimeMillis();
+            } else {
+                this.startId = resumeFrom.getStartId();
+                this.cursorId = resumeFrom.getCursorId();
+                this.startTime = resumeFrom.getStartTime();
+                this.replayRanges.addAll(resumeFrom.getFailedRanges());
+                record.restore(resumeFrom.getProcessedCount(), resumeFrom.getSuccessBatches(), resumeFrom.getFailedBatches());
             }
-        } catch (Exception e) {
-            log.warn("检查内存使用情况失败", e);
+        }
+
+        private SyncRun(RunRecord record, String runId, LikeNotifySyncMode mode, int batchSize) {
+            this.record = record;
+            this.runId = runId;
+            this.mode = mode;
+            this.startId = -1;
+            this.endId = -1;
+            this.cursorId = -1;
+            this.batchSize = batchSize;
+            this.startTime = System.currentTimeMillis();
+            this.sharded = true;
+        }
+
+        private static SyncRun sharded(RunRecord record, String runId, LikeNotifySyncMode mode, int batchSize) {
+            return new SyncRun(record, runId, mode, batchSize);
+        }
+
+        /**
+         * 开始新的段，上一段的失败范围并入运行的失败范围；
+         * 重放段未完成时整个范围仍在待重放列表中，段内的失败范围不再重复计入
+         */
+        private synchronized void nextSegment(RangeCommitTracker next, boolean replay) {
+            if (tracker != null && !replaying) {
+                failedRanges.addAll(tracker.getFailedRanges());
+            }
+            tracker = next;
+            replaying = replay;
+        }
+
+        private synchronized List<long[]> pendingReplayRanges() {
+            return new ArrayList<>(replayRanges);
+        }
+
+        /**
+         * 重放段结束，全部提交时从待重放列表中移除
+         */
+        private synchronized void finishReplay(long[] range, boolean completed) {
+            if (completed) {
+                replayRanges.remove(range);
+            }
+        }
+
+        private synchronized List<long[]> allFailedRanges() {
+            List<long[]> ranges = new ArrayList<>(replayRanges);
+            ranges.addAll(failedRanges);
+            if (tracker != null && !replaying) {
+                ranges.addAll(tracker.getFailedRanges());
+            }
+            return ranges;
+        }
+
+        /**
+         * 可持久化的水位线：当前段连续提交的位置，且不越过任何尚未成功的失败范围；重放期间不推进
+         */
+        private synchronized long committedWatermark() {
+            if (tracker == null || replaying) {
+                return -1;
+            }
+            long watermark = tracker.getWatermark();
+            for (long[] range : replayRanges) {
+                watermark = Math.min(watermark, range[0] - 1);
+            }
+            for (long[] range : failedRanges) {
+                watermark = Math.min(watermark, range[0] - 1);
+            }
+            return watermark;
+        }
+
+        /**
+         * 检查点游标：当前段连续处理过的位置，其下的失败批次随失败范围一起保存；重放期间沿用恢复时的游标
+         */
+        private synchronized long checkpointCursor() {
+            return tracker == null || replaying ? cursorId : tracker.getCursor();
+        }
+
+        private boolean isLeaseLost() {
+            ShardLease lease = currentLease;
+            return lease != null && lease.isLost();
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+package com.hidreamai.community.job.task;
+
+/**
+ * 点赞通知同步模式
+ *
+ * @author hidream
+ */
+public enum LikeNotifySyncMode {
+
+    /**
+     * 增量同步：从持久化水位线之后扫描到稳定窗口之前，并推进水位线
+     */
+    INCREMENTAL,
+
+    /**
+     * 全量重扫：从头扫描到稳定窗口之前，并推进水位线
+     */
+    FULL,
+
+    /**
+     * 指定id范围重跑：只处理给定范围，不影响水位线
+     */
+    RANGE;
+
+    /**
+     * 解析模式参数，为空时按是否指定了id范围推断
+     */
+    public static LikeNotifySyncMode resolve(String mode, long startId, long endId) {
+        if (mode == null || mode.trim().isEmpty()) {
+            return startId > 0 || endId > 0 ? RANGE : INCREMENTAL;
+        }
+        return valueOf(mode.trim().toUpperCase());
+    }
+}
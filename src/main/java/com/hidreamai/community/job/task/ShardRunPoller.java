@@ -0,0 +1,46 @@
+package com.hidreamai.community.job.task;
+
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import com.hidreamai.community.job.support.ShardLeaseManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 分片运行轮询
+ * 空闲节点定时检查是否有活跃的分片运行，存在无人持有的分片时加入处理
+ *
+ * @author hidream
+ */
+@Component
+@Slf4j
+public class ShardRunPoller {
+
+    @Resource
+    private LikeNotifySyncJob likeNotifySyncJob;
+
+    @Resource
+    private ShardLeaseManager shardLeaseManager;
+
+    @Resource
+    private LikeNotifyProperties likeNotifyProperties;
+
+    @Scheduled(fixedDelayString = "${job.like-notify.shard-poll-interval-ms:5000}")
+    public void pollActiveShardedRun() {
+        if (!likeNotifyProperties.isShardEnabled() || likeNotifySyncJob.isTaskRunning()) {
+            return;
+        }
+
+        try {
+            String runId = shardLeaseManager.getActiveRunId(LikeNotifySyncJob.JOB_NAME);
+            if (runId != null && shardLeaseManager.hasAvailableShard(LikeNotifySyncJob.JOB_NAME, runId)) {
+                log.info("发现可处理的分片运行，加入处理，runId: {}", runId);
+                likeNotifySyncJob.joinShardedRun(runId);
+            }
+        } catch (Exception e) {
+            log.warn("检查活跃分片运行失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.hidreamai.community.job.task.pipeline;
+
+import com.hidreamai.community.job.support.RelationColumns;
+import lombok.Getter;
+
+/**
+ * 点赞通知流水线中流转的批次
+ * 读取阶段填充列式关系数据，补全阶段原地填充内容所有者并压缩掉被过滤的行，写入阶段才构建通知请求
+ *
+ * @author hidream
+ */
+@Getter
+public class LikeNotifyBatch {
+
+    private final int rangeIndex;
+    private final long sequence;
+    private final long firstId;
+    private final long lastId;
+    private final int relationCount;
+    private final RelationColumns relations;
+
+    public LikeNotifyBatch(int rangeIndex, long sequence, RelationColumns relations) {
+        this(rangeIndex, sequence, relations, relations.firstId(), relations.lastId());
+    }
+
+    /**
+     * 读取时已在库内过滤掉部分行，批次覆盖的id范围由调用方给出
+     */
+    public LikeNotifyBatch(int rangeIndex, long sequence, RelationColumns relations, long firstId, long lastId) {
+        this.rangeIndex = rangeIndex;
+        this.sequence = sequence;
+        this.relations = relations;
+        this.relationCount = relations.size();
+        this.firstId = firstId;
+        this.lastId = lastId;
+    }
+}
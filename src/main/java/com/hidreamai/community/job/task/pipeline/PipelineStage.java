@@ -0,0 +1,155 @@
+package com.hidreamai.community.job.task.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流水线阶段
+ * 一个有界输入队列加一组工作线程，队列满时 put 阻塞，从而向上游传递背压
+ *
+ * @param <T> 阶段处理的数据类型
+ * @author hidream
+ */
+@Slf4j
+public class PipelineStage<T> {
+
+    /**
+     * 阶段处理逻辑
+     */
+    @FunctionalInterface
+    public interface Handler<T> {
+        void handle(T item) throws Exception;
+    }
+
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private final String name;
+    private final int parallelism;
+    private final BlockingQueue<T> queue;
+    private final Handler<T> handler;
+    private final ExecutorService workers;
+
+    private volatile boolean inputFinished = false;
+    private volatile boolean aborted = false;
+    private final AtomicInteger activeWorkers = new AtomicInteger(0);
+    private final AtomicLong handledCount = new AtomicLong(0);
+    private final AtomicLong failedCount = new AtomicLong(0);
+
+    public PipelineStage(String name, int parallelism, int queueCapacity, Handler<T> handler) {
+        this.name = name;
+        this.parallelism = Math.max(1, parallelism);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.handler = handler;
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        this.workers = Executors.newFixedThreadPool(this.parallelism, r -> {
+            Thread thread = new Thread(r, name + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 启动工作线程
+     */
+    public void start() {
+        for (int i = 0; i < parallelism; i++) {
+            activeWorkers.incrementAndGet();
+            workers.execute(this::runWorker);
+        }
+    }
+
+    /**
+     * 提交数据，队列满时阻塞
+     */
+    public void put(T item) throws InterruptedException {
+        while (!aborted) {
+            if (queue.offer(item, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 标记上游输入结束，工作线程处理完队列剩余数据后退出
+     */
+    public void finishInput() {
+        inputFinished = true;
+    }
+
+    /**
+     * 等待所有工作线程退出
+     */
+    public void awaitTermination() throws InterruptedException {
+        workers.shutdown();
+        while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+            log.debug("等待流水线阶段 {} 完成，队列剩余: {}", name, queue.size());
+        }
+    }
+
+    /**
+     * 中止阶段，丢弃队列中未处理的数据
+     */
+    public void abort() {
+        aborted = true;
+        queue.clear();
+        workers.shutdownNow();
+    }
+
+    private void runWorker() {
+        try {
+            while (!aborted) {
+                T item = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (item == null) {
+                    if (inputFinished && queue.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+                try {
+                    handler.handle(item);
+                    handledCount.incrementAndGet();
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    failedCount.incrementAndGet();
+                    log.error("流水线阶段 {} 处理失败", name, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            activeWorkers.decrementAndGet();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public int getActiveWorkers() {
+        return activeWorkers.get();
+    }
+
+    public long getHandledCount() {
+        return handledCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+}
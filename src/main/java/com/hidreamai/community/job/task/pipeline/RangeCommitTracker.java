@@ -0,0 +1,132 @@
+package com.hidreamai.community.job.task.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * 批次提交跟踪器
+ * 各读取子范围内的批次按顺序编号，写入阶段可以乱序完成；
+ * 水位线只推进到从起点开始连续成功的最后一个批次，失败的批次阻止其后的推进，保证水位线以下的数据都已处理；
+ * 恢复游标推进到连续处理过（成功或失败）的最后一个批次，与失败范围一起用于检查点恢复
+ *
+ * @author hidream
+ */
+public class RangeCommitTracker {
+
+    private final List<RangeState> ranges = new ArrayList<>();
+    private final List<long[]> failedRanges = new ArrayList<>();
+
+    public RangeCommitTracker(List<long[]> idRanges) {
+        for (long[] range : idRanges) {
+            ranges.add(new RangeState(range[0], range[1]));
+        }
+    }
+
+    /**
+     * 为子范围内读出的新批次分配顺序号
+     */
+    public synchronized long register(int rangeIndex) {
+        return ranges.get(rangeIndex).nextSequence++;
+    }
+
+    /**
+     * 标记批次完成
+     *
+     * @param success 批次是否写入成功，失败的批次不提交并记录到失败范围，该子范围的水位线停在它之前
+     */
+    public synchronized void complete(int rangeIndex, long sequence, long firstId, long lastId, boolean success) {
+        RangeState state = ranges.get(rangeIndex);
+        state.processed.complete(sequence, lastId);
+        if (!success) {
+            failedRanges.add(new long[]{firstId, lastId});
+            if (sequence < state.failedSequence) {
+                state.failedSequence = sequence;
+                // 失败批次之后的批次不会再提交，不必继续保留
+                state.committed.pending.tailMap(sequence).clear();
+            }
+        } else if (sequence < state.failedSequence) {
+            state.committed.complete(sequence, lastId);
+        }
+    }
+
+    /**
+     * 标记子范围已读取完毕，批次全部完成后该范围的水位线视为到达范围终点
+     */
+    public synchronized void finishRange(int rangeIndex) {
+        ranges.get(rangeIndex).readFinished = true;
+    }
+
+    /**
+     * 获取整体水位线：按范围顺序累加，遇到第一个未完成的范围时停在其连续成功位置
+     */
+    public synchronized long getWatermark() {
+        return position(true);
+    }
+
+    /**
+     * 获取恢复游标：按范围顺序累加，遇到第一个未处理完的范围时停在其连续处理过的位置；
+     * 游标以下的失败批次只记录在失败范围中，恢复时需要先重放失败范围
+     */
+    public synchronized long getCursor() {
+        return position(false);
+    }
+
+    /**
+     * 获取写入失败的id范围
+     */
+    public synchronized List<long[]> getFailedRanges() {
+        return new ArrayList<>(failedRanges);
+    }
+
+    private long position(boolean committed) {
+        long position = ranges.isEmpty() ? -1 : ranges.get(0).startId - 1;
+        for (RangeState state : ranges) {
+            Progress progress = committed ? state.committed : state.processed;
+            if (state.readFinished && progress.sequence == state.nextSequence - 1) {
+                position = state.endId;
+            } else {
+                return Math.max(position, progress.lastId);
+            }
+        }
+        return position;
+    }
+
+    private static class RangeState {
+        private final long startId;
+        private final long endId;
+        private final Progress committed;
+        private final Progress processed;
+        private long nextSequence = 0;
+        private long failedSequence = Long.MAX_VALUE;
+        private boolean readFinished = false;
+
+        private RangeState(long startId, long endId) {
+            this.startId = startId;
+            this.endId = endId;
+            this.committed = new Progress(startId - 1);
+            this.processed = new Progress(startId - 1);
+        }
+    }
+
+    /**
+     * 按顺序号连续推进的位置，乱序完成的批次暂存到前面的批次完成为止
+     */
+    private static class Progress {
+        private final TreeMap<Long, Long> pending = new TreeMap<>();
+        private long sequence = -1;
+        private long lastId;
+
+        private Progress(long initialId) {
+            this.lastId = initialId;
+        }
+
+        private void complete(long completedSequence, long completedLastId) {
+            pending.put(completedSequence, completedLastId);
+            while (!pending.isEmpty() && pending.firstKey() == sequence + 1) {
+                sequence++;
+                lastId = pending.remove(pending.firstKey());
+            }
+        }
+    }
+}
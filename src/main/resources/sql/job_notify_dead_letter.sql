@@ -0,0 +1,24 @@
+-- 通知死信：首次发送失败的通知先写入为 RETRYING 再交给重试队列，重发成功后删除；
+-- 多次重试仍失败或进程退出时遗留的通知转为 PENDING，可由管理员接口重放
+CREATE TABLE IF NOT EXISTS job_notify_dead_letter (
+    id                     BIGINT       NOT NULL AUTO_INCREMENT,
+    job_name               VARCHAR(64)  NOT NULL COMMENT '任务名',
+    user_id                VARCHAR(64)           DEFAULT NULL COMMENT '通知接收人',
+    relate_user_id         VARCHAR(64)           DEFAULT NULL COMMENT '触发通知的用户',
+    relate_type            INT                   DEFAULT NULL COMMENT '关系类型',
+    content_id             VARCHAR(64)           DEFAULT NULL COMMENT '内容id',
+    notify_time            BIGINT                DEFAULT NULL COMMENT '通知时间（毫秒时间戳）',
+    aggregate_count        INT                   DEFAULT NULL COMMENT '聚合通知合并的点赞数，非聚合通知为空',
+    recent_relate_user_ids VARCHAR(1024)         DEFAULT NULL COMMENT '聚合通知最近的点赞用户，逗号分隔',
+    first_notify_time      BIGINT                DEFAULT NULL COMMENT '聚合通知窗口内最早的点赞时间',
+    attempts               INT          NOT NULL DEFAULT 0 COMMENT '已尝试发送次数',
+    status                 VARCHAR(16)  NOT NULL COMMENT 'RETRYING 重试队列中 | PENDING 待重放 | REPLAYING 重放中 | REPLAYED 已重放成功',
+    claim_token            VARCHAR(64)           DEFAULT NULL COMMENT '重放认领标识',
+    last_error             VARCHAR(512)          DEFAULT NULL COMMENT '最近一次失败原因',
+    create_time            DATETIME(3)  NOT NULL COMMENT '写入时间',
+    update_time            DATETIME(3)  NOT NULL COMMENT '更新时间',
+    PRIMARY KEY (id),
+    KEY idx_job_status (job_name, status, id),
+    KEY idx_status_update_time (status, update_time),
+    KEY idx_claim_token (claim_token)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '通知死信';
@@ -0,0 +1,24 @@
+-- 任务运行历史，每次运行结束写入一行
+CREATE TABLE IF NOT EXISTS job_run_history (
+    id               BIGINT       NOT NULL AUTO_INCREMENT,
+    job_name         VARCHAR(64)  NOT NULL COMMENT '任务名',
+    run_id           VARCHAR(64)  NOT NULL COMMENT '运行id，从检查点恢复的运行沿用原运行id',
+    mode             VARCHAR(32)           DEFAULT NULL COMMENT '同步模式',
+    trigger_type     VARCHAR(32)           DEFAULT NULL COMMENT '触发方式',
+    status           VARCHAR(32)  NOT NULL COMMENT '结束状态',
+    start_id         BIGINT                DEFAULT NULL COMMENT '处理的起始id',
+    end_id           BIGINT                DEFAULT NULL COMMENT '处理的结束id',
+    batch_size       INT                   DEFAULT NULL COMMENT '批量大小',
+    params           VARCHAR(1024)         DEFAULT NULL COMMENT '运行参数JSON',
+    start_time       DATETIME(3)  NOT NULL COMMENT '开始时间',
+    end_time         DATETIME(3)  NOT NULL COMMENT '结束时间',
+    duration_ms      BIGINT       NOT NULL COMMENT '耗时（毫秒）',
+    processed_count  BIGINT       NOT NULL DEFAULT 0 COMMENT '处理行数',
+    success_batches  INT          NOT NULL DEFAULT 0 COMMENT '成功批次数',
+    failed_batches   INT          NOT NULL DEFAULT 0 COMMENT '失败批次数',
+    rows_per_second  DOUBLE       NOT NULL DEFAULT 0 COMMENT '吞吐量（行/秒）',
+    stage_latencies  VARCHAR(1024)         DEFAULT NULL COMMENT '各阶段耗时分位数JSON',
+    message          VARCHAR(512)          DEFAULT NULL COMMENT '失败或中断原因',
+    PRIMARY KEY (id),
+    KEY idx_job_end_time (job_name, end_time)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '任务运行历史';
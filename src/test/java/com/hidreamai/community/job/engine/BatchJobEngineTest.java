@@ -0,0 +1,147 @@
+package com.hidreamai.community.job.engine;
+
+import com.hidreamai.community.job.config.BatchEngineProperties;
+import com.hidreamai.community.job.support.DbHealthGovernor;
+import com.hidreamai.community.job.support.MemoryGovernor;
+import com.hidreamai.community.job.support.ResourceBudget;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 批处理任务引擎测试
+ *
+ * @author hidream
+ */
+class BatchJobEngineTest {
+
+    private FakeJob job;
+    private BatchJobEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        BatchEngineProperties properties = new BatchEngineProperties();
+        properties.setDownstreamQps(0);
+        properties.setRetryDelayMs(0);
+
+        ResourceBudget budget = new ResourceBudget();
+        ReflectionTestUtils.setField(budget, "batchEngineProperties", properties);
+        ReflectionTestUtils.setField(budget, "memoryGovernor", mock(MemoryGovernor.class));
+        ReflectionTestUtils.setField(budget, "dbHealthGovernor", mock(DbHealthGovernor.class));
+        budget.init();
+
+        job = new FakeJob(25);
+        engine = new BatchJobEngine();
+        ReflectionTestUtils.setField(engine, "batchJobs", Collections.<BatchJob<?, ?>>singletonList(job));
+        ReflectionTestUtils.setField(engine, "resourceBudget", budget);
+        ReflectionTestUtils.setField(engine, "batchEngineProperties", properties);
+        ReflectionTestUtils.setField(engine, "jobTaskExecutor", (Executor) Runnable::run);
+        engine.init();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void readsTransformsAndWritesUntilMaxId() {
+        engine.trigger("fake", 0, -1, 10);
+
+        Map<String, Object> lastRun = (Map<String, Object>) engine.getStatus("fake").get("lastRun");
+        assertEquals("COMPLETED", lastRun.get("status"));
+        assertEquals(25L, lastRun.get("processedCount"));
+        // 偶数id被转换阶段过滤
+        assertEquals(13L, lastRun.get("writtenCount"));
+        assertEquals(13, job.written.size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void retriesOnlyFailedItems() {
+        job.failOnce = 5L;
+        engine.trigger("fake", 0, 10, 10);
+
+        Map<String, Object> lastRun = (Map<String, Object>) engine.getStatus("fake").get("lastRun");
+        assertEquals(5L, lastRun.get("writtenCount"));
+        assertEquals(0L, lastRun.get("failedCount"));
+        // 5 只重写一次，其他数据不重复写入
+        assertEquals(6, job.written.size());
+    }
+
+    @Test
+    void rejectsUnknownJob() {
+        assertThrows(IllegalArgumentException.class, () -> engine.trigger("missing", 0, -1, 10));
+    }
+
+    /**
+     * id 为 1..maxId 的内存数据源，只保留奇数id
+     */
+    private static class FakeJob implements BatchJob<Long, Long> {
+
+        private final long maxId;
+        private final List<Long> written = new ArrayList<>();
+        private Long failOnce;
+
+        FakeJob(long maxId) {
+            this.maxId = maxId;
+        }
+
+        @Override
+        public String getName() {
+            return "fake";
+        }
+
+        @Override
+        public String getDescription() {
+            return "测试任务";
+        }
+
+        @Override
+        public Long queryMaxId() {
+            return maxId;
+        }
+
+        @Override
+        public List<Long> read(long afterId, long endId, int limit) {
+            List<Long> items = new ArrayList<>();
+            for (long id = afterId + 1; id <= Math.min(endId, maxId) && items.size() < limit; id++) {
+                items.add(id);
+            }
+            return items;
+        }
+
+        @Override
+        public long idOf(Long item) {
+            return item;
+        }
+
+        @Override
+        public List<Long> transform(List<Long> items) {
+            List<Long> outputs = new ArrayList<>();
+            for (Long item : items) {
+                if (item % 2 == 1) {
+                    outputs.add(item);
+                }
+            }
+            return outputs;
+        }
+
+        @Override
+        public List<Long> write(List<Long> items) {
+            written.addAll(items);
+            if (failOnce != null && items.contains(failOnce)) {
+                Long failed = failOnce;
+                failOnce = null;
+                return Collections.singletonList(failed);
+            }
+            return Collections.emptyList();
+        }
+    }
+}
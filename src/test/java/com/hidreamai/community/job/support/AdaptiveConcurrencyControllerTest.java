@@ -0,0 +1,77 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 自适应并发与批量大小控制器测试
+ *
+ * @author hidream
+ */
+class AdaptiveConcurrencyControllerTest {
+
+    private AdaptiveConcurrencyController controller;
+
+    @BeforeEach
+    void setUp() {
+        LikeNotifyProperties properties = new LikeNotifyProperties();
+        properties.setPipelineWriteThreads(2);
+        properties.setAdaptiveMinBatchSize(100);
+        properties.setAdaptiveMaxBatchSize(400);
+        properties.setAdaptiveBatchStep(100);
+        properties.setAdaptiveMaxWriteConcurrency(4);
+        properties.setAdaptiveWindowBatches(2);
+        properties.setAdaptiveScanLatencyTargetMs(500);
+
+        controller = new AdaptiveConcurrencyController();
+        ReflectionTestUtils.setField(controller, "likeNotifyProperties", properties);
+        controller.begin(200, false);
+    }
+
+    @Test
+    void increasesAdditivelyWhileHealthyWithinBounds() {
+        for (int i = 0; i < 10; i++) {
+            controller.recordScan(10);
+            controller.recordWrite(100, 0);
+        }
+
+        assertEquals(400, controller.getBatchSize());
+        assertEquals(4, controller.getWriteConcurrency());
+    }
+
+    @Test
+    void decreasesMultiplicativelyOnErrors() {
+        controller.recordWrite(100, 50);
+        controller.recordWrite(100, 50);
+
+        assertEquals(100, controller.getBatchSize());
+        assertEquals(1, controller.getWriteConcurrency());
+        assertEquals(1, ((List<?>) controller.getStatus().get("history")).size());
+    }
+
+    @Test
+    void slowScansOnlyShrinkBatchSize() {
+        controller.recordScan(2000);
+        controller.recordWrite(100, 0);
+        controller.recordWrite(100, 0);
+
+        assertEquals(100, controller.getBatchSize());
+        assertEquals(2, controller.getWriteConcurrency());
+    }
+
+    @Test
+    void fixedBatchSizeIsNeverAdjusted() {
+        controller.begin(250, true);
+        controller.recordWrite(100, 0);
+        controller.recordWrite(100, 0);
+
+        assertEquals(250, controller.getBatchSize());
+        assertEquals(3, controller.getWriteConcurrency());
+    }
+}
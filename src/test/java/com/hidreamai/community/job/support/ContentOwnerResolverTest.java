@@ -0,0 +1,118 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.BatchEngineProperties;
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import com.hidreamai.community.job.dal.content.dao.ContentOwnerDao;
+import com.hidreamai.community.job.dal.content.entity.ContentOwner;
+import com.hidreamai.community.notify.proxy.NotifyContentQueryProxy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 内容所有者批量解析器测试
+ *
+ * @author hidream
+ */
+class ContentOwnerResolverTest {
+
+    private ContentOwnerDao contentOwnerDao;
+    private NotifyContentQueryProxy notifyContentQueryProxy;
+    private ContentOwnerResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        contentOwnerDao = mock(ContentOwnerDao.class);
+        notifyContentQueryProxy = mock(NotifyContentQueryProxy.class);
+        LikeNotifyProperties properties = new LikeNotifyProperties();
+        properties.setOwnerCacheSize(2);
+
+        resolver = new ContentOwnerResolver();
+        ReflectionTestUtils.setField(resolver, "contentOwnerDao", contentOwnerDao);
+        ReflectionTestUtils.setField(resolver, "notifyContentQueryProxy", notifyContentQueryProxy);
+        ReflectionTestUtils.setField(resolver, "likeNotifyProperties", properties);
+        ReflectionTestUtils.setField(resolver, "ownerLookupExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(resolver, "resourceBudget", resourceBudget());
+        resolver.init();
+    }
+
+    private static ResourceBudget resourceBudget() {
+        ResourceBudget budget = new ResourceBudget();
+        ReflectionTestUtils.setField(budget, "batchEngineProperties", new BatchEngineProperties());
+        budget.init();
+        return budget;
+    }
+
+    @Test
+    void resolveOwnersQueriesDistinctIdsOnceAndCachesNegativeResults() {
+        when(contentOwnerDao.batchQueryContentOwners(anyCollection()))
+                .thenReturn(Collections.singletonList(owner("c1", "u1")));
+
+        Map<String, String> first = resolver.resolveOwners(Arrays.asList("c1", "c1", "c2"));
+        Map<String, String> second = resolver.resolveOwners(Arrays.asList("c1", "c2"));
+
+        assertEquals("u1", first.get("c1"));
+        assertFalse(first.containsKey("c2"));
+        assertEquals(first, second);
+        verify(contentOwnerDao, times(1)).batchQueryContentOwners(anyCollection());
+        assertEquals(1L, resolver.getStats().get("hitCount"));
+        assertEquals(1L, resolver.getStats().get("negativeHitCount"));
+    }
+
+    @Test
+    void resolveOwnersFallsBackToProxyWhenBulkQueryFails() {
+        when(contentOwnerDao.batchQueryContentOwners(anyCollection())).thenThrow(new RuntimeException("db down"));
+        when(notifyContentQueryProxy.queryUserIdByContentId("c1")).thenReturn("u1");
+
+        Map<String, String> owners = resolver.resolveOwners(Collections.singletonList("c1"));
+
+        assertEquals("u1", owners.get("c1"));
+        assertEquals(1L, resolver.getStats().get("fallbackQueryCount"));
+    }
+
+    @Test
+    void proxyFailureLeavesOnlyThatContentUnresolvedAndUncached() {
+        when(contentOwnerDao.batchQueryContentOwners(anyCollection())).thenThrow(new RuntimeException("db down"));
+        when(notifyContentQueryProxy.queryUserIdByContentId("c1")).thenReturn("u1");
+        when(notifyContentQueryProxy.queryUserIdByContentId("c2")).thenThrow(new RuntimeException("timeout"));
+
+        Map<String, String> owners = resolver.resolveOwners(Arrays.asList("c1", "c2"));
+
+        assertEquals("u1", owners.get("c1"));
+        assertFalse(owners.containsKey("c2"));
+        // c1 已缓存，c2 未缓存为不存在，再次解析时重新查询
+        when(notifyContentQueryProxy.queryUserIdByContentId("c2")).thenReturn("u2");
+        assertEquals("u2", resolver.resolveOwners(Collections.singletonList("c2")).get("c2"));
+        verify(notifyContentQueryProxy, times(2)).queryUserIdByContentId("c2");
+    }
+
+    @Test
+    void cacheEvictsLeastRecentlyUsedEntriesBeyondMaxSize() {
+        when(contentOwnerDao.batchQueryContentOwners(anyCollection())).thenReturn(Collections.emptyList());
+
+        resolver.resolveOwners(Arrays.asList("c1", "c2", "c3"));
+
+        assertEquals(2, resolver.getStats().get("size"));
+        assertEquals(1L, resolver.getStats().get("evictionCount"));
+    }
+
+    private ContentOwner owner(String contentId, String userId) {
+        ContentOwner owner = new ContentOwner();
+        owner.setContentId(contentId);
+        owner.setUserId(userId);
+        return owner;
+    }
+}
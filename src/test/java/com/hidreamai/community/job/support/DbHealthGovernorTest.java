@@ -0,0 +1,82 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.BatchEngineProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 数据库健康调控器测试
+ *
+ * @author hidream
+ */
+class DbHealthGovernorTest {
+
+    private ReadRoutingDataSource dataSource;
+    private ResultSet threadsRunning;
+    private DbHealthGovernor governor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = mock(ReadRoutingDataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        threadsRunning = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(dataSource.isReplicaEnabled()).thenReturn(true);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("SELECT 1")).thenReturn(mock(ResultSet.class));
+        when(statement.executeQuery("SHOW GLOBAL STATUS LIKE 'Threads_running'")).thenReturn(threadsRunning);
+        when(threadsRunning.next()).thenReturn(true);
+
+        governor = new DbHealthGovernor();
+        ReflectionTestUtils.setField(governor, "batchEngineProperties", new BatchEngineProperties());
+        ReflectionTestUtils.setField(governor, "readRoutingDataSource", dataSource);
+    }
+
+    @Test
+    void levelFollowsWorstSignalAndRecordsChanges() throws Exception {
+        when(threadsRunning.getLong(2)).thenReturn(80L);
+        governor.sample();
+        assertEquals(DbHealthGovernor.Level.PAUSE, governor.getLevel());
+
+        when(threadsRunning.getLong(2)).thenReturn(4L);
+        when(dataSource.getReplicaLagSeconds()).thenReturn(45L);
+        governor.sample();
+        assertEquals(DbHealthGovernor.Level.THROTTLE, governor.getLevel());
+
+        when(dataSource.getReplicaLagSeconds()).thenReturn(0L);
+        governor.sample();
+        assertEquals(DbHealthGovernor.Level.PROCEED, governor.getLevel());
+        assertEquals(DbHealthGovernor.Level.PROCEED, governor.awaitHealthy());
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> history = (List<Map<String, Object>>) governor.getStatus().get("history");
+        assertEquals(3, history.size());
+        assertEquals("PROCEED", history.get(0).get("to"));
+        assertEquals("复制延迟 45s", history.get(1).get("reason"));
+    }
+
+    @Test
+    void pauseEndsWhenMaxPauseExpires() throws Exception {
+        BatchEngineProperties properties = new BatchEngineProperties();
+        properties.setDbMaxPauseMs(50);
+        ReflectionTestUtils.setField(governor, "batchEngineProperties", properties);
+        when(threadsRunning.getLong(2)).thenReturn(80L);
+        governor.sample();
+
+        assertEquals(DbHealthGovernor.Level.PAUSE, governor.awaitHealthy());
+        assertEquals(1L, governor.getStatus().get("pauseCount"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import com.hidreamai.community.notify.entity.request.MessageNotifyReq;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 点赞通知聚合器测试
+ *
+ * @author hidream
+ */
+class LikeNotifyAggregatorTest {
+
+    private LikeNotifyProperties properties;
+    private LikeNotifyAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LikeNotifyProperties();
+        properties.setNotifyAggregateEnabled(true);
+        properties.setNotifyAggregateWindowSeconds(3600);
+        properties.setNotifyAggregateRecentUsers(2);
+
+        aggregator = new LikeNotifyAggregator();
+        ReflectionTestUtils.setField(aggregator, "likeNotifyProperties", properties);
+    }
+
+    @Test
+    void mergesLikesOnSameContentIntoOneNotification() {
+        MessageNotifyReq single = req("owner2", "c2", "u9", 1000L);
+        List<MessageNotifyReq> result = aggregator.aggregate(Arrays.asList(
+                req("owner1", "c1", "u1", 1000L),
+                single,
+                req("owner1", "c1", "u2", 2000L),
+                req("owner1", "c1", "u3", 3000L)));
+
+        assertEquals(2, result.size());
+        assertTrue(result.get(0) instanceof AggregatedNotifyReq);
+        AggregatedNotifyReq merged = (AggregatedNotifyReq) result.get(0);
+        assertEquals(3, merged.getAggregateCount());
+        assertEquals("u3", merged.getRelateUserId());
+        assertEquals(Arrays.asList("u3", "u2"), merged.getRecentRelateUserIds());
+        assertEquals(Long.valueOf(1000L), merged.getFirstNotifyTime());
+        assertSame(single, result.get(1));
+    }
+
+    @Test
+    void keepsDifferentTimeWindowsSeparate() {
+        List<MessageNotifyReq> result = aggregator.aggregate(Arrays.asList(
+                req("owner1", "c1", "u1", 1000L),
+                req("owner1", "c1", "u2", 3600_000L + 1000L)));
+
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    void returnsRequestsUnchangedWhenDisabled() {
+        properties.setNotifyAggregateEnabled(false);
+        List<MessageNotifyReq> requests = Arrays.asList(
+                req("owner1", "c1", "u1", 1000L),
+                req("owner1", "c1", "u2", 2000L));
+
+        assertSame(requests, aggregator.aggregate(requests));
+    }
+
+    private MessageNotifyReq req(String userId, String contentId, String relateUserId, Long notifyTime) {
+        MessageNotifyReq req = new MessageNotifyReq();
+        req.setUserId(userId);
+        req.setContentId(contentId);
+        req.setRelateUserId(relateUserId);
+        req.setNotifyTime(notifyTime);
+        return req;
+    }
+}
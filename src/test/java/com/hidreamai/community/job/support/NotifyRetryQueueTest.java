@@ -0,0 +1,149 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import com.hidreamai.community.notify.entity.request.MessageNotifyReq;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 通知重试队列测试
+ *
+ * @author hidream
+ */
+class NotifyRetryQueueTest {
+
+    private static final Map<String, Long> ROW_IDS = new HashMap<>();
+
+    static {
+        ROW_IDS.put("first", 1L);
+        ROW_IDS.put("second", 2L);
+        ROW_IDS.put("good", 3L);
+        ROW_IDS.put("bad", 4L);
+    }
+
+    private NotifyBatchWriter notifyBatchWriter;
+    private NotifyDeadLetterStore notifyDeadLetterStore;
+    private LikeNotifyProperties properties;
+    private NotifyRetryQueue retryQueue;
+    private final Map<String, AtomicInteger> sendCounts = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        notifyBatchWriter = mock(NotifyBatchWriter.class);
+        notifyDeadLetterStore = mock(NotifyDeadLetterStore.class);
+        // 重试中的行id与内容id对应：first=1, second=2, good=3, bad=4
+        when(notifyDeadLetterStore.saveRetrying(anyString(), anyList())).thenAnswer(invocation -> {
+            List<MessageNotifyReq> requests = invocation.getArgument(1);
+            List<Long> ids = new ArrayList<>();
+            for (MessageNotifyReq request : requests) {
+                ids.add(ROW_IDS.get(request.getContentId()));
+            }
+            return ids;
+        });
+        when(notifyDeadLetterStore.markPending(anyList(), anyString())).thenReturn(true);
+        // 内容id为 bad 的通知总是失败
+        when(notifyBatchWriter.writeAll(anyList())).thenAnswer(invocation -> {
+            List<MessageNotifyReq> requests = invocation.getArgument(0);
+            NotifyWriteResult result = new NotifyWriteResult(requests);
+            for (int i = 0; i < requests.size(); i++) {
+                String contentId = requests.get(i).getContentId();
+                sendCounts.computeIfAbsent(contentId, key -> new AtomicInteger()).incrementAndGet();
+                if ("bad".equals(contentId)) {
+                    result.markFailed(i);
+                } else {
+                    result.markSuccess(i);
+                }
+            }
+            return result;
+        });
+
+        properties = new LikeNotifyProperties();
+        properties.setNotifyRetryMaxAttempts(3);
+        properties.setNotifyRetryBaseDelayMs(1);
+        properties.setNotifyRetryMaxDelayMs(5);
+
+        retryQueue = new NotifyRetryQueue();
+        ReflectionTestUtils.setField(retryQueue, "notifyBatchWriter", notifyBatchWriter);
+        ReflectionTestUtils.setField(retryQueue, "notifyDeadLetterStore", notifyDeadLetterStore);
+        ReflectionTestUtils.setField(retryQueue, "likeNotifyMetrics", mock(LikeNotifyMetrics.class));
+        ReflectionTestUtils.setField(retryQueue, "likeNotifyProperties", properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        retryQueue.stop();
+    }
+
+    @Test
+    void retriesOnlyFailedItemsAndDeadLettersAfterMaxAttempts() {
+        retryQueue.start();
+        MessageNotifyReq good = request("good");
+        MessageNotifyReq bad = request("bad");
+
+        assertTrue(retryQueue.submit("like-notify", Arrays.asList(good, bad)));
+
+        verify(notifyDeadLetterStore, timeout(2000)).markPending(eq(Collections.singletonList(4L)), anyString());
+        verify(notifyDeadLetterStore).removeRetrying(Collections.singletonList(3L));
+        assertEquals(1, sendCounts.get("good").get());
+        // 首次发送在队列之外，队列内重发 maxAttempts - 1 次
+        assertEquals(2, sendCounts.get("bad").get());
+        assertEquals(1L, retryQueue.getStatus().get("recovered"));
+        assertEquals(1L, retryQueue.getStatus().get("deadLettered"));
+    }
+
+    @Test
+    void overflowAndShutdownGoToDeadLetters() {
+        properties.setNotifyRetryQueueCapacity(1);
+        properties.setNotifyRetryBaseDelayMs(60000);
+        properties.setNotifyRetryMaxDelayMs(60000);
+        retryQueue.start();
+        MessageNotifyReq first = request("first");
+        MessageNotifyReq second = request("second");
+
+        retryQueue.submit("like-notify", Arrays.asList(first, second));
+        verify(notifyDeadLetterStore).markPending(eq(Collections.singletonList(2L)), anyString());
+
+        retryQueue.stop();
+        verify(notifyDeadLetterStore).markPending(eq(Collections.singletonList(1L)), anyString());
+        assertEquals(0, retryQueue.getStatus().get("queued"));
+    }
+
+    @Test
+    void rejectsWhenFailuresCannotBePersisted() {
+        when(notifyDeadLetterStore.saveRetrying(anyString(), anyList())).thenReturn(null);
+        retryQueue.start();
+
+        assertFalse(retryQueue.submit("like-notify", Collections.singletonList(request("bad"))));
+        assertEquals(0, retryQueue.getStatus().get("queued"));
+    }
+
+    private static MessageNotifyReq request(String contentId) {
+        MessageNotifyReq req = new MessageNotifyReq();
+        req.setUserId("owner");
+        req.setRelateUserId("liker");
+        req.setContentId(contentId);
+        return req;
+    }
+}
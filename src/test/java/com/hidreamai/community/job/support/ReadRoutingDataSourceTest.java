@@ -0,0 +1,103 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.config.ReplicaDataSourceProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 读写路由数据源测试
+ *
+ * @author hidream
+ */
+class ReadRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private ReadRoutingDataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        if (dataSource != null) {
+            dataSource.destroy();
+        }
+    }
+
+    @Test
+    void routesOnlyReplicaReadsToHealthyReplica() throws Exception {
+        givenReplicaLag(5L);
+        dataSource = start();
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        assertSame(replicaConnection, readFromReplica());
+        assertTrue(dataSource.isReplicaAvailable());
+        assertEquals(5L, dataSource.getReplicaLagSeconds());
+    }
+
+    @Test
+    void fallsBackToPrimaryWhenReplicaLagsTooFarBehind() throws Exception {
+        givenReplicaLag(600L);
+        dataSource = start();
+
+        assertSame(primaryConnection, readFromReplica());
+        assertFalse(dataSource.isReplicaAvailable());
+        assertEquals(1L, dataSource.getStatus().get("primaryFallbacks"));
+    }
+
+    @Test
+    void fallsBackToPrimaryWhenReplicaConnectionFails() throws Exception {
+        givenReplicaLag(0L);
+        dataSource = start();
+        when(replica.getConnection()).thenThrow(new SQLException("replica down"));
+
+        assertSame(primaryConnection, readFromReplica());
+        assertFalse(dataSource.isReplicaAvailable());
+    }
+
+    private Connection readFromReplica() {
+        return ReadRoutingDataSource.readFromReplica(() -> {
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private ReadRoutingDataSource start() {
+        ReplicaDataSourceProperties properties = new ReplicaDataSourceProperties();
+        properties.setEnabled(true);
+        properties.setMaxLagSeconds(60);
+        properties.setHealthCheckIntervalMs(60000);
+        ReadRoutingDataSource routing = new ReadRoutingDataSource(primary, replica, properties);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    private void givenReplicaLag(Long lagSeconds) throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        Statement statement = mock(Statement.class);
+        ResultSet status = mock(ResultSet.class);
+        when(replicaConnection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(status);
+        when(status.next()).thenReturn(true);
+        when(status.getLong("Seconds_Behind_Source")).thenReturn(lagSeconds);
+        when(status.wasNull()).thenReturn(false);
+    }
+}
@@ -0,0 +1,89 @@
+package com.hidreamai.community.job.support;
+
+import com.hidreamai.community.job.dal.relation.entity.LikeNotifyRelation;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 列式关系批次测试
+ *
+ * @author hidream
+ */
+class RelationColumnsTest {
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        RelationColumns columns = new RelationColumns(1);
+        for (int i = 1; i <= 5; i++) {
+            columns.add(i, "user-" + i, "content-" + i, i * 1000L);
+        }
+
+        assertEquals(5, columns.size());
+        assertEquals(1L, columns.firstId());
+        assertEquals(5L, columns.lastId());
+        assertEquals("content-3", columns.getTargetId(2));
+        assertEquals(3000L, columns.getCreateTime(2));
+    }
+
+    @Test
+    void retainCompactsRowsInOrderWithOwners() {
+        RelationColumns columns = new RelationColumns(4);
+        for (int i = 1; i <= 4; i++) {
+            columns.add(i, "user-" + i, "content-" + i, RelationColumns.NO_TIME);
+            columns.setOwnerId(i - 1, "owner-" + i);
+        }
+
+        columns.retain(new boolean[]{false, true, false, true});
+
+        assertEquals(2, columns.size());
+        assertEquals(2L, columns.getId(0));
+        assertEquals("owner-2", columns.getOwnerId(0));
+        assertEquals(4L, columns.getId(1));
+        assertEquals("user-4", columns.getSourceId(1));
+        assertEquals("owner-4", columns.getOwnerId(1));
+    }
+
+    @Test
+    void addResetsOwnerOfReusedSlot() {
+        RelationColumns columns = new RelationColumns(2);
+        columns.add(1, "user-1", "content-1", RelationColumns.NO_TIME);
+        columns.add(2, "user-2", "content-2", RelationColumns.NO_TIME);
+        columns.setOwnerId(1, "owner-2");
+        columns.retain(new boolean[]{true, false});
+
+        columns.add(3, "user-3", "content-3", RelationColumns.NO_TIME);
+
+        assertEquals(3L, columns.getId(1));
+        assertNull(columns.getOwnerId(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ownerAppenderFillsOwnerWithRow() {
+        LikeNotifyRelation relation = new LikeNotifyRelation();
+        relation.setId(7L);
+        relation.setSourceId("user-1");
+        relation.setTargetId("content-1");
+        relation.setOwnerId("owner-1");
+        relation.setCreateTime(new Date(5000L));
+        ResultContext<LikeNotifyRelation> context = mock(ResultContext.class);
+        when(context.getResultObject()).thenReturn(relation);
+        RelationColumns columns = new RelationColumns(1);
+
+        ResultHandler<LikeNotifyRelation> appender = columns.ownerAppender();
+        appender.handleResult(context);
+
+        assertEquals(1, columns.size());
+        assertEquals(7L, columns.getId(0));
+        assertEquals("owner-1", columns.getOwnerId(0));
+        assertEquals(5000L, columns.getCreateTime(0));
+    }
+}
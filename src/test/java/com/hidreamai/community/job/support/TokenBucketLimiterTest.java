@@ -0,0 +1,90 @@
+package com.hidreamai.community.job.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 令牌桶限流器测试
+ * 通过调整下次可用时间模拟空闲和积压，不依赖真实等待
+ *
+ * @author hidream
+ */
+class TokenBucketLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void rateChangeSettlesStoredPermitsAtOldRate() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(10);
+        // 空闲 500ms，按原速率积攒 5 个令牌
+        ReflectionTestUtils.setField(limiter, "nextFreeNanos", System.nanoTime() - 500 * MILLIS);
+
+        limiter.setPermitsPerSecond(100);
+
+        assertEquals(5.0, storedPermits(limiter), 0.1);
+        assertEquals(100.0, limiter.getPermitsPerSecond());
+    }
+
+    @Test
+    void storedPermitsAreCappedAtOneSecondOfNewRate() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(10);
+        ReflectionTestUtils.setField(limiter, "nextFreeNanos", System.nanoTime() - 5000 * MILLIS);
+
+        limiter.setPermitsPerSecond(20);
+
+        assertEquals(20.0, storedPermits(limiter), 0.001);
+    }
+
+    @Test
+    void rateChangeRespacesOwedPermitsAtNewRate() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(10);
+        // 已预占 10 个令牌，按原速率 1s 后才空闲，按新速率只需 100ms
+        ReflectionTestUtils.setField(limiter, "nextFreeNanos", System.nanoTime() + 1000 * MILLIS);
+
+        limiter.setPermitsPerSecond(100);
+
+        long remaining = (long) ReflectionTestUtils.getField(limiter, "nextFreeNanos") - System.nanoTime();
+        assertTrue(remaining > 90 * MILLIS && remaining <= 100 * MILLIS, "remaining: " + remaining);
+    }
+
+    @Test
+    void switchingBetweenLimitedAndUnlimitedDropsBacklog() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(10);
+        ReflectionTestUtils.setField(limiter, "nextFreeNanos", System.nanoTime() + 10000 * MILLIS);
+
+        limiter.setPermitsPerSecond(0);
+        assertEquals(0L, reserve(limiter, 1000));
+
+        limiter.setPermitsPerSecond(10);
+        assertEquals(0.0, storedPermits(limiter));
+        // 恢复限流后从当前时刻重新排期，不继承限流前的积压，也没有不限流期间积攒的令牌
+        assertTrue(reserve(limiter, 1) <= MILLIS);
+        long wait = reserve(limiter, 1);
+        assertTrue(wait > 90 * MILLIS && wait <= 100 * MILLIS, "wait: " + wait);
+    }
+
+    @Test
+    void unlimitedFromStartNeverWaits() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(0);
+
+        assertEquals(0L, reserve(limiter, 1_000_000));
+
+        limiter.setPermitsPerSecond(1);
+        assertTrue(reserve(limiter, 1) <= MILLIS);
+        assertTrue(reserve(limiter, 1) > 900 * MILLIS);
+    }
+
+    private static double storedPermits(TokenBucketLimiter limiter) {
+        return (double) ReflectionTestUtils.getField(limiter, "storedPermits");
+    }
+
+    private static long reserve(TokenBucketLimiter limiter, int permits) {
+        Long wait = ReflectionTestUtils.invokeMethod(limiter, "reserve", permits);
+        return wait == null ? 0 : wait;
+    }
+}
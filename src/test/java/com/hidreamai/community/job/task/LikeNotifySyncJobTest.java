@@ -0,0 +1,263 @@
+package com.hidreamai.community.job.task;
+
+import com.hidreamai.community.infra.dal.content.dao.RelationDao;
+import com.hidreamai.community.infra.dal.content.entity.SocialRelation;
+import com.hidreamai.community.infra.entity.resp.BaseResponse;
+import com.hidreamai.community.infra.enums.biz.RelationTypeEnum;
+import com.hidreamai.community.job.config.LikeNotifyProperties;
+import com.hidreamai.community.job.dal.relation.dao.LikeRelationScanDao;
+import com.hidreamai.community.job.support.AdaptiveConcurrencyController;
+import com.hidreamai.community.job.support.ContentOwnerResolver;
+import com.hidreamai.community.job.support.DbHealthGovernor;
+import com.hidreamai.community.job.support.LikeNotifyAggregator;
+import com.hidreamai.community.job.support.LikeNotifyMetrics;
+import com.hidreamai.community.job.support.MemoryGovernor;
+import com.hidreamai.community.job.support.NotifyBatchWriter;
+import com.hidreamai.community.job.support.NotifyRetryQueue;
+import com.hidreamai.community.job.support.ResourceBudget;
+import com.hidreamai.community.job.support.RunHistoryStore;
+import com.hidreamai.community.job.support.RunRecord;
+import com.hidreamai.community.job.support.RunRegistry;
+import com.hidreamai.community.job.support.ShardLeaseManager;
+import com.hidreamai.community.job.support.SyncCheckpoint;
+import com.hidreamai.community.job.support.SyncCheckpointStore;
+import com.hidreamai.community.job.support.SyncWatermarkStore;
+import com.hidreamai.community.notify.entity.request.MessageNotifyReq;
+import com.hidreamai.community.notify.service.MessageNotifyService;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 点赞通知同步任务测试
+ * 关系id 1-30 对应内容 c1-c30，按每批 10 条读取；写入使用真实的批量写入器，通知服务可在指定内容处中断写入线程
+ *
+ * @author hidream
+ */
+class LikeNotifySyncJobTest {
+
+    private static final long MAX_ID = 30;
+    private static final int BATCH_SIZE = 10;
+
+    private final Map<String, AtomicInteger> sendCounts = new ConcurrentHashMap<>();
+    private volatile String interruptAt;
+
+    private LikeNotifySyncJob job;
+    private SyncCheckpointStore syncCheckpointStore;
+    private SyncWatermarkStore syncWatermarkStore;
+    private RunRegistry runRegistry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        LikeNotifyProperties properties = new LikeNotifyProperties();
+        properties.setPipelineEnrichThreads(1);
+        properties.setNotifyGroupSize(1);
+
+        LikeNotifyMetrics metrics = mock(LikeNotifyMetrics.class);
+        ResourceBudget budget = mock(ResourceBudget.class);
+        when(budget.callWithDbConnection(any())).thenAnswer(invocation -> ((Callable<?>) invocation.getArgument(0)).call());
+
+        MessageNotifyService messageNotifyService = mock(MessageNotifyService.class);
+        when(messageNotifyService.notify(any())).thenAnswer(invocation -> {
+            String contentId = invocation.<MessageNotifyReq>getArgument(0).getContentId();
+            sendCounts.computeIfAbsent(contentId, key -> new AtomicInteger()).incrementAndGet();
+            if (contentId.equals(interruptAt)) {
+                interruptAt = null;
+                Thread.currentThread().interrupt();
+            }
+            return BaseResponse.success(Boolean.TRUE);
+        });
+        NotifyBatchWriter writer = new NotifyBatchWriter();
+        ReflectionTestUtils.setField(writer, "messageNotifyService", messageNotifyService);
+        ReflectionTestUtils.setField(writer, "likeNotifyProperties", properties);
+        ReflectionTestUtils.setField(writer, "notifyWriteExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(writer, "likeNotifyMetrics", metrics);
+        ReflectionTestUtils.setField(writer, "resourceBudget", budget);
+        writer.init();
+
+        LikeNotifyAggregator aggregator = new LikeNotifyAggregator();
+        ReflectionTestUtils.setField(aggregator, "likeNotifyProperties", properties);
+
+        AdaptiveConcurrencyController controller = mock(AdaptiveConcurrencyController.class);
+        when(controller.getBatchSize()).thenReturn(BATCH_SIZE);
+        when(controller.getMaxWriteThreads()).thenReturn(1);
+
+        ContentOwnerResolver resolver = mock(ContentOwnerResolver.class);
+        when(resolver.resolveOwners(any())).thenAnswer(invocation -> {
+            Map<String, String> owners = new HashMap<>();
+            for (String contentId : invocation.<Collection<String>>getArgument(0)) {
+                owners.put(contentId, "owner-" + contentId);
+            }
+            return owners;
+        });
+
+        RelationDao relationDao = mock(RelationDao.class);
+        when(relationDao.count(RelationTypeEnum.USER_LIKE_CONTENT.getCode(), null)).thenReturn(MAX_ID);
+        LikeRelationScanDao scanDao = mock(LikeRelationScanDao.class);
+        when(scanDao.queryMaxId(any())).thenReturn(MAX_ID);
+        when(scanDao.queryMaxIdCreatedBefore(any(), any())).thenReturn(MAX_ID);
+        doAnswer(invocation -> {
+            long lastId = invocation.getArgument(1);
+            long endId = invocation.getArgument(2);
+            int limit = invocation.getArgument(3);
+            ResultHandler<SocialRelation> handler = invocation.getArgument(4);
+            DefaultResultContext<SocialRelation> context = new DefaultResultContext<>();
+            long firstId = Math.max(1, lastId + 1);
+            for (long id = firstId; id <= Math.min(endId, firstId + limit - 1); id++) {
+                SocialRelation relation = new SocialRelation();
+                relation.setId(id);
+                relation.setSourceId("user-" + id);
+                relation.setTargetId("c" + id);
+                context.nextResultObject(relation);
+                handler.handleResult(context);
+            }
+            return null;
+        }).when(scanDao).scanRelationColumnsAfterId(any(), anyLong(), anyLong(), any(), any());
+
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        applicationContext.getEnvironment().setActiveProfiles("test");
+
+        syncCheckpointStore = mock(SyncCheckpointStore.class);
+        syncWatermarkStore = mock(SyncWatermarkStore.class);
+        runRegistry = new RunRegistry();
+
+        job = new LikeNotifySyncJob();
+        ReflectionTestUtils.setField(job, "relationDao", relationDao);
+        ReflectionTestUtils.setField(job, "likeRelationScanDao", scanDao);
+        ReflectionTestUtils.setField(job, "notifyBatchWriter", writer);
+        ReflectionTestUtils.setField(job, "memoryGovernor", mock(MemoryGovernor.class));
+        ReflectionTestUtils.setField(job, "dbHealthGovernor", mock(DbHealthGovernor.class));
+        ReflectionTestUtils.setField(job, "contentOwnerResolver", resolver);
+        ReflectionTestUtils.setField(job, "likeNotifyProperties", properties);
+        ReflectionTestUtils.setField(job, "syncWatermarkStore", syncWatermarkStore);
+        ReflectionTestUtils.setField(job, "syncCheckpointStore", syncCheckpointStore);
+        ReflectionTestUtils.setField(job, "shardLeaseManager", mock(ShardLeaseManager.class));
+        ReflectionTestUtils.setField(job, "adaptiveConcurrencyController", controller);
+        ReflectionTestUtils.setField(job, "likeNotifyAggregator", aggregator);
+        ReflectionTestUtils.setField(job, "likeNotifyMetrics", metrics);
+        ReflectionTestUtils.setField(job, "resourceBudget", budget);
+        ReflectionTestUtils.setField(job, "runRegistry", runRegistry);
+        ReflectionTestUtils.setField(job, "notifyRetryQueue", mock(NotifyRetryQueue.class));
+        ReflectionTestUtils.setField(job, "runHistoryStore", mock(RunHistoryStore.class));
+        ReflectionTestUtils.setField(job, "jobTaskExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(job, "applicationContext", applicationContext);
+    }
+
+    @Test
+    void batchInterruptedMidWriteIsReprocessedOnResume() {
+        String runId = runInterruptedAtC15();
+        SyncCheckpoint checkpoint = lastCheckpoint();
+        // 失败批次之后的批次未写入，游标停在失败批次末尾
+        assertEquals(20L, checkpoint.getCursorId());
+
+        resume(runId, checkpoint);
+
+        assertEquals(RunRecord.STATUS_COMPLETED, runRegistry.find(runId).getStatus());
+        assertEquals(SyncCheckpoint.STATUS_COMPLETED, lastCheckpoint().getStatus());
+        assertTrue(lastCheckpoint().getFailedRanges().isEmpty());
+        for (long id = 1; id <= MAX_ID; id++) {
+            int expected = id >= 11 && id <= 15 ? 2 : 1;
+            assertEquals(expected, sendCounts.get("c" + id).get(), "c" + id);
+        }
+        verify(syncWatermarkStore).advanceWatermark(LikeNotifySyncJob.JOB_NAME, MAX_ID);
+    }
+
+    @Test
+    void failedRangeStaysInCheckpointUntilReplaySucceeds() {
+        String runId = runInterruptedAtC15();
+
+        // 重放 11-20 时再次中断，剩余范围照常处理，失败范围整体保留
+        interruptAt = "c12";
+        resume(runId, lastCheckpoint());
+
+        assertEquals(RunRecord.STATUS_INTERRUPTED, runRegistry.find(runId).getStatus());
+        SyncCheckpoint checkpoint = lastCheckpoint();
+        assertEquals(SyncCheckpoint.STATUS_INTERRUPTED, checkpoint.getStatus());
+        assertEquals(MAX_ID, checkpoint.getCursorId());
+        assertEquals(1, checkpoint.getFailedRanges().size());
+        assertArrayEquals(new long[]{11, 20}, checkpoint.getFailedRanges().get(0));
+        assertNull(sendCounts.get("c16"));
+        assertEquals(1, sendCounts.get("c30").get());
+        verify(syncWatermarkStore, never()).advanceWatermark(eq(LikeNotifySyncJob.JOB_NAME), longThat(watermark -> watermark > 10));
+
+        resume(runId, checkpoint);
+
+        assertEquals(RunRecord.STATUS_COMPLETED, runRegistry.find(runId).getStatus());
+        assertTrue(lastCheckpoint().getFailedRanges().isEmpty());
+        for (long id = 16; id <= MAX_ID; id++) {
+            assertEquals(1, sendCounts.get("c" + id).get(), "c" + id);
+        }
+        verify(syncWatermarkStore).advanceWatermark(LikeNotifySyncJob.JOB_NAME, MAX_ID);
+    }
+
+    @Test
+    void runsRecordTheirActualTrigger() {
+        job.scheduledSyncLikeNotifications();
+        String manualRunId = job.submitSync(LikeNotifySyncMode.RANGE, 1L, 10L, BATCH_SIZE);
+
+        List<RunRecord> runs = runRegistry.listRecent(LikeNotifySyncJob.JOB_NAME);
+        assertEquals(2, runs.size());
+        assertEquals(manualRunId, runs.get(0).getRunId());
+        assertEquals(LikeNotifySyncJob.TRIGGER_MANUAL, runs.get(0).getTrigger());
+        assertEquals(LikeNotifySyncJob.TRIGGER_SCHEDULED, runs.get(1).getTrigger());
+    }
+
+    /**
+     * 全量同步，写入 c15 后写入线程被中断：c16-c20 未发送，之后的批次不再写入
+     */
+    private String runInterruptedAtC15() {
+        interruptAt = "c15";
+        String runId = job.submitSync(LikeNotifySyncMode.FULL, 0L, -1L, BATCH_SIZE);
+
+        assertEquals(RunRecord.STATUS_INTERRUPTED, runRegistry.find(runId).getStatus());
+        assertNull(sendCounts.get("c16"));
+        assertNull(sendCounts.get("c21"));
+        verify(syncWatermarkStore, never()).advanceWatermark(eq(LikeNotifySyncJob.JOB_NAME), longThat(watermark -> watermark > 10));
+        SyncCheckpoint checkpoint = lastCheckpoint();
+        assertEquals(SyncCheckpoint.STATUS_INTERRUPTED, checkpoint.getStatus());
+        assertEquals(1, checkpoint.getFailedRanges().size());
+        assertArrayEquals(new long[]{11, 20}, checkpoint.getFailedRanges().get(0));
+        return runId;
+    }
+
+    private void resume(String runId, SyncCheckpoint checkpoint) {
+        when(syncCheckpointStore.load(LikeNotifySyncJob.JOB_NAME, runId)).thenReturn(checkpoint);
+        job.submitResume(runId);
+    }
+
+    private SyncCheckpoint lastCheckpoint() {
+        ArgumentCaptor<SyncCheckpoint> captor = ArgumentCaptor.forClass(SyncCheckpoint.class);
+        verify(syncCheckpointStore, atLeastOnce()).save(anyString(), captor.capture());
+        List<SyncCheckpoint> saved = captor.getAllValues();
+        return saved.get(saved.size() - 1);
+    }
+}
@@ -0,0 +1,70 @@
+package com.hidreamai.community.job.task.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 批次提交跟踪器测试
+ *
+ * @author hidream
+ */
+class RangeCommitTrackerTest {
+
+    @Test
+    void watermarkOnlyAdvancesOverContiguouslyCompletedBatches() {
+        RangeCommitTracker tracker = new RangeCommitTracker(Arrays.asList(new long[]{1, 100}));
+        long first = tracker.register(0);
+        long second = tracker.register(0);
+
+        tracker.complete(0, second, 11, 20, true);
+        assertEquals(0L, tracker.getWatermark());
+
+        tracker.complete(0, first, 1, 10, true);
+        assertEquals(20L, tracker.getWatermark());
+
+        tracker.finishRange(0);
+        assertEquals(100L, tracker.getWatermark());
+    }
+
+    @Test
+    void watermarkStopsAtFirstUnfinishedRange() {
+        RangeCommitTracker tracker = new RangeCommitTracker(Arrays.asList(new long[]{1, 50}, new long[]{51, 100}));
+        long firstRangeBatch = tracker.register(0);
+        long secondRangeBatch = tracker.register(1);
+
+        tracker.complete(1, secondRangeBatch, 51, 60, true);
+        tracker.finishRange(1);
+        assertEquals(0L, tracker.getWatermark());
+
+        tracker.complete(0, firstRangeBatch, 1, 10, true);
+        assertEquals(10L, tracker.getWatermark());
+
+        tracker.finishRange(0);
+        assertEquals(100L, tracker.getWatermark());
+    }
+
+    @Test
+    void failedBatchBlocksWatermarkEvenAfterRangeFinishes() {
+        RangeCommitTracker tracker = new RangeCommitTracker(Arrays.asList(new long[]{1, 50}, new long[]{51, 100}));
+        long first = tracker.register(0);
+        long failed = tracker.register(0);
+        long third = tracker.register(0);
+        long secondRangeBatch = tracker.register(1);
+
+        tracker.complete(0, third, 21, 30, true);
+        tracker.complete(0, failed, 11, 20, false);
+        tracker.complete(0, first, 1, 10, true);
+        tracker.complete(1, secondRangeBatch, 51, 100, true);
+        tracker.finishRange(0);
+        tracker.finishRange(1);
+
+        assertEquals(10L, tracker.getWatermark());
+        assertEquals(100L, tracker.getCursor());
+        assertEquals(1, tracker.getFailedRanges().size());
+        assertArrayEquals(new long[]{11, 20}, tracker.getFailedRanges().get(0));
+    }
+}